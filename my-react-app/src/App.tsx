@@ -104,9 +104,14 @@ interface Field {
   confidence?: number;
   bbox?: number[];
 }
+// Large tables come without rows: page through
+// /extractions/{runId}/tables/{table_id}/rows?offset=&limit= instead
 interface Table {
+  table_id?: number;
   name: string;
-  rows: Record<string, any>[];
+  columns?: string[];
+  row_count?: number;
+  rows?: Record<string, any>[];
   confidence?: number;
 }
 interface HistoryItem {
@@ -0,0 +1,115 @@
+package com.task.hwai;
+
+import com.task.hwai.model.ExtractionResult;
+import com.task.hwai.model.TableRows;
+import com.task.hwai.service.OcrTool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic documents for the benchmarks: a short receipt, a multi-page form and a
+ * ledger-sized document, shaped like what OCR and the LLM actually produce.
+ */
+public final class SampleDocuments {
+
+    public enum Size {
+        SMALL(1, 8, 0, 600),
+        MEDIUM(4, 40, 50, 4_000),
+        HUGE(40, 150, 200, 20_000),
+        // one ledger page whose table dwarfs everything else
+        LEDGER(1, 10, 5_000, 20_000);
+
+        final int pages;
+        final int fieldsPerPage;
+        final int tableRowsPerPage;
+        final int ocrCharsPerPage;
+
+        Size(int pages, int fieldsPerPage, int tableRowsPerPage, int ocrCharsPerPage) {
+            this.pages = pages;
+            this.fieldsPerPage = fieldsPerPage;
+            this.tableRowsPerPage = tableRowsPerPage;
+            this.ocrCharsPerPage = ocrCharsPerPage;
+        }
+    }
+
+    private static final String[] WORDS = {
+            "invoice", "total", "date", "patient", "name", "address", "amount", "due", "signature",
+            "qty", "unit", "price", "tax", "account", "ref", "phone", "dob", "notes", "paid", "balance"
+    };
+
+    private SampleDocuments() {}
+
+    public static ExtractionResult extraction(Size size) {
+        Random rnd = new Random(42);
+        List<ExtractionResult.Page> pages = new ArrayList<>();
+        for (int p = 1; p <= size.pages; p++) {
+            List<ExtractionResult.Field> fields = new ArrayList<>();
+            for (int f = 0; f < size.fieldsPerPage; f++) {
+                fields.add(new ExtractionResult.Field(
+                        WORDS[f % WORDS.length] + "_" + f,
+                        value(rnd, f),
+                        Math.round(rnd.nextDouble() * 1000) / 1000.0,
+                        f % 3 == 0 ? List.of(rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble()) : null));
+            }
+            List<ExtractionResult.Table> tables = new ArrayList<>();
+            if (size.tableRowsPerPage > 0) {
+                var rows = new TableRows(List.of("line", "description", "qty", "unit_price", "tax_code", "amount"));
+                for (int r = 0; r < size.tableRowsPerPage; r++) {
+                    rows.add(r + 1, words(rnd, 4), rnd.nextInt(20), Math.round(rnd.nextDouble() * 10_000) / 100.0,
+                            "T" + rnd.nextInt(5), Math.round(rnd.nextDouble() * 100_000) / 100.0);
+                }
+                tables.add(new ExtractionResult.Table("line_items", rows, 0.8));
+            }
+            pages.add(new ExtractionResult.Page(p, fields, tables));
+        }
+        return new ExtractionResult(
+                UUID.nameUUIDFromBytes(("file" + size).getBytes()).toString(),
+                UUID.nameUUIDFromBytes(("run" + size).getBytes()).toString(),
+                "invoice",
+                pages,
+                List.of("low contrast on page 1"),
+                1234);
+    }
+
+    public static List<OcrTool.PageResult> ocrPages(Size size) {
+        Random rnd = new Random(7);
+        List<OcrTool.PageResult> pages = new ArrayList<>();
+        for (int p = 1; p <= size.pages; p++) {
+            var sb = new StringBuilder(size.ocrCharsPerPage + 32);
+            while (sb.length() < size.ocrCharsPerPage) {
+                sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(rnd.nextInt(7) == 0 ? ":\n" : " ");
+            }
+            pages.add(new OcrTool.PageResult(p,
+                    List.of(new OcrTool.Token(sb.toString(), 0.92)),
+                    List.of(Map.of("width", 2480, "height", 3508))));
+        }
+        return pages;
+    }
+
+    /** What the model typically sends back: the document wrapped in a markdown fence plus chatter. */
+    public static String fencedLlmOutput(String json) {
+        return "Here is the extracted data:\n```json\n" + json + "\n```\nLet me know if you need anything else.";
+    }
+
+    private static Object value(Random rnd, int f) {
+        return switch (f % 4) {
+            case 0 -> "INV-" + (10_000 + rnd.nextInt(90_000));
+            case 1 -> "2024-" + (1 + rnd.nextInt(12)) + "-" + (1 + rnd.nextInt(28));
+            case 2 -> Math.round(rnd.nextDouble() * 100_000) / 100.0;
+            default -> words(rnd, 3);
+        };
+    }
+
+    private static String words(Random rnd, int n) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
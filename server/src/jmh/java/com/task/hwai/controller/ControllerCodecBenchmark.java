@@ -0,0 +1,47 @@
+package com.task.hwai.controller;
+
+import com.task.hwai.SampleDocuments;
+import com.task.hwai.model.ExtractionResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RunController read/write/export paths: JsonUtil (snake_case mapper used by GET/PUT) and the
+ * CSV export, over the same documents as {@code ExtractionHotPathBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerCodecBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "HUGE", "LEDGER"})
+    public SampleDocuments.Size size;
+
+    private ExtractionResult result;
+    private String resultJson;
+
+    @Setup
+    public void setup() {
+        result = SampleDocuments.extraction(size);
+        resultJson = RunController.JsonUtil.writeValueAsString(result);
+    }
+
+    @Benchmark
+    public ExtractionResult jsonUtilRead() {
+        return RunController.JsonUtil.read(resultJson, ExtractionResult.class);
+    }
+
+    @Benchmark
+    public String jsonUtilWrite() {
+        return RunController.JsonUtil.writeValueAsString(result);
+    }
+
+    @Benchmark
+    public String csvExport() {
+        return RunController.CsvUtil.fromExtractionJson(resultJson);
+    }
+}
@@ -0,0 +1,73 @@
+package com.task.hwai.service;
+
+import com.task.hwai.SampleDocuments;
+import com.task.hwai.model.ConfidenceStats;
+import com.task.hwai.model.ExtractionResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AgentService hot paths: prompt payload serialization, cleaning and parsing the model output,
+ * serializing the result for storage, and the confidence aggregation done on every write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractionHotPathBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "HUGE", "LEDGER"})
+    public SampleDocuments.Size size;
+
+    private List<OcrTool.PageResult> ocrPages;
+    private ExtractionResult result;
+    private String resultJson;
+    private String llmOutput;
+
+    @Setup
+    public void setup() throws Exception {
+        ocrPages = SampleDocuments.ocrPages(size);
+        result = SampleDocuments.extraction(size);
+        resultJson = AgentService.OM.writeValueAsString(result);
+        llmOutput = SampleDocuments.fencedLlmOutput(resultJson);
+    }
+
+    @Benchmark
+    public String promptPayload() throws Exception {
+        return AgentService.promptPayload(ocrPages);
+    }
+
+    @Benchmark
+    public String cleanJsonResponse() {
+        return AgentService.cleanJsonResponse(llmOutput);
+    }
+
+    @Benchmark
+    public ExtractionResult readResult() throws Exception {
+        return AgentService.OM.readValue(resultJson, ExtractionResult.class);
+    }
+
+    @Benchmark
+    public ExtractionResult cleanAndReadResult() throws Exception {
+        return AgentService.OM.readValue(AgentService.cleanJsonResponse(llmOutput), ExtractionResult.class);
+    }
+
+    @Benchmark
+    public String writeResult() throws Exception {
+        return AgentService.OM.writeValueAsString(result);
+    }
+
+    @Benchmark
+    public double averageConfidence() {
+        return ConfidenceStats.of(result).average();
+    }
+
+    @Benchmark
+    public RollupDelta rollupDelta() {
+        return RollupDelta.ofDocument(result, false, 1);
+    }
+}
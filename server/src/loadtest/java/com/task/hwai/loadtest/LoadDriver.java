@@ -0,0 +1,173 @@
+package com.task.hwai.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives {@code POST /v1/uploads} followed by polling {@code /v1/runs/{id}} from a fixed number
+ * of concurrent clients, and collects client-side latencies plus the server's per-stage
+ * breakdown ({@code metrics.stages_ms}) for every finished run. With a {@code batchShare} that
+ * share of the uploads comes from one backfill client at batch priority and the rest from
+ * interactive clients, and end-to-end latency is also reported per class.
+ */
+public class LoadDriver {
+
+    private static final ObjectMapper M = new ObjectMapper();
+
+    private final String apiBase;
+    private final int concurrency;
+    private final long pollMs;
+    private final double batchShare;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private final ConcurrentMap<String, List<Long>> samples = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> outcomes = new ConcurrentHashMap<>();
+
+    public LoadDriver(String apiBase, int concurrency, long pollMs) {
+        this(apiBase, concurrency, pollMs, 0);
+    }
+
+    public LoadDriver(String apiBase, int concurrency, long pollMs, double batchShare) {
+        this.apiBase = apiBase.endsWith("/") ? apiBase.substring(0, apiBase.length() - 1) : apiBase;
+        this.concurrency = concurrency;
+        this.pollMs = pollMs;
+        this.batchShare = batchShare;
+    }
+
+    public Report run(List<byte[]> images, int uploads, Duration timeout) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int i = 0; i < uploads; i++) {
+            byte[] image = images.get(i % images.size());
+            int n = i;
+            // spread evenly: upload n is batch when the running share first passes a whole upload
+            boolean batch = (int) ((n + 1) * batchShare) > (int) (n * batchShare);
+            pool.submit(() -> one(image, "form-" + n + ".png", batch ? "backfill" : "ui-" + n % concurrency, batch));
+        }
+        pool.shutdown();
+        if (!pool.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            pool.shutdownNow();
+            count("timeout");
+        }
+        return new Report(System.nanoTime() - start, snapshot(samples), snapshot(outcomes));
+    }
+
+    private void one(byte[] image, String name, String client, boolean batch) {
+        try {
+            long t0 = System.nanoTime();
+            var upload = send(multipart(image, name).header("X-Client-Id", client),
+                    apiBase + "/uploads" + (batch ? "?priority=batch" : ""));
+            long uploaded = System.nanoTime();
+            if (upload.statusCode() != 200) {
+                count("upload_" + upload.statusCode());
+                return;
+            }
+            record("upload", uploaded - t0);
+            String runId = M.readTree(upload.body()).path("runId").asText();
+
+            while (true) {
+                var poll = http.send(HttpRequest.newBuilder(URI.create(apiBase + "/runs/" + runId)).GET()
+                        .timeout(Duration.ofMinutes(5)).build(), HttpResponse.BodyHandlers.ofString());
+                JsonNode body = M.readTree(poll.body());
+                String status = body.path("status").asText();
+                if (status.equals("COMPLETED") || status.equals("FAILED")) {
+                    long done = System.nanoTime();
+                    record("queue_and_process", done - uploaded);
+                    record("end_to_end", done - t0);
+                    if (batchShare > 0) record((batch ? "batch" : "interactive") + "_end_to_end", done - t0);
+                    boolean fallback = body.path("result").path("warnings").toString().contains("LLM returned");
+                    count(status.equals("FAILED") ? "failed" : fallback ? "completed_fallback" : "completed");
+                    body.path("metrics").path("stages_ms").fields().forEachRemaining(
+                            e -> record("server_" + e.getKey(), TimeUnit.MILLISECONDS.toNanos(e.getValue().asLong())));
+                    return;
+                }
+                Thread.sleep(pollMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            count("client_error");
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request, String url) throws Exception {
+        return http.send(request.uri(URI.create(url)).timeout(Duration.ofMinutes(1)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest.Builder multipart(byte[] file, String name) {
+        String boundary = "----hwai" + UUID.randomUUID();
+        var body = new ByteArrayOutputStream(file.length + 512);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + name + "\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(file);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return HttpRequest.newBuilder()
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+    }
+
+    private void record(String stage, long nanos) {
+        samples.computeIfAbsent(stage, k -> Collections.synchronizedList(new ArrayList<>())).add(nanos);
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static <V> Map<String, V> snapshot(Map<String, V> m) {
+        return new TreeMap<>(m);
+    }
+
+    public record Report(long wallNanos, Map<String, List<Long>> samples, Map<String, AtomicInteger> outcomes) {
+
+        public String format() {
+            var sb = new StringBuilder();
+            double wallSec = wallNanos / 1e9;
+            int finished = outcomes.entrySet().stream()
+                    .filter(e -> e.getKey().startsWith("completed") || e.getKey().equals("failed"))
+                    .mapToInt(e -> e.getValue().get()).sum();
+            sb.append(String.format("wall time      %.1f s%n", wallSec));
+            sb.append(String.format("throughput     %.2f runs/s (%d finished)%n", finished / wallSec, finished));
+            outcomes.forEach((k, v) -> sb.append(String.format("  %-22s %d%n", k, v.get())));
+            sb.append(String.format("%n%-24s %8s %10s %10s %10s %10s%n", "stage (ms)", "n", "p50", "p95", "p99", "max"));
+            samples.forEach((stage, values) -> {
+                List<Long> sorted;
+                synchronized (values) {
+                    sorted = new ArrayList<>(values);
+                }
+                Collections.sort(sorted);
+                sb.append(String.format("%-24s %8d %10.1f %10.1f %10.1f %10.1f%n", stage, sorted.size(),
+                        pct(sorted, 0.50), pct(sorted, 0.95), pct(sorted, 0.99), pct(sorted, 1.0)));
+            });
+            return sb.toString();
+        }
+
+        private static double pct(List<Long> sorted, double q) {
+            if (sorted.isEmpty()) return Double.NaN;
+            int idx = (int) Math.ceil(q * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(sorted.size() - 1, idx))) / 1e6;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.task.hwai.loadtest;
+
+import com.task.hwai.HandwriteAiApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline load test: starts the stub LLM, boots the backend in-process against it (or targets a
+ * running backend via {@code --target}), pushes synthetic scans through upload → run → result and
+ * prints throughput and p50/p95/p99 per stage. Needs only a local Tesseract install.
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--uploads=500 --concurrency=32 --llmLatencyMs=1200"
+ * </pre>
+ *
+ * Options (all {@code --key=value}): target, uploads, concurrency, pollMs, timeoutMinutes,
+ * llmPort, llmLatencyMs, llmJitterMs, errorRate, malformedRate, fields, distinctImages, width, height,
+ * storage ({@code local} or {@code s3}: originals go to an in-process {@link StubS3Server}), s3ErrorRate,
+ * batchShare (share of uploads sent by one backfill client at batch priority, e.g. 0.9).
+ * With {@code --target} the backend must already point {@code OPENAI_BASE_URL} at the stub
+ * (use a fixed {@code --llmPort}).
+ */
+public final class LoadHarness {
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = parse(argv);
+        int uploads = Integer.parseInt(args.getOrDefault("uploads", "200"));
+        int concurrency = Integer.parseInt(args.getOrDefault("concurrency", "16"));
+        int fields = Integer.parseInt(args.getOrDefault("fields", "12"));
+
+        var llmConfig = new StubLlmServer.Config(
+                Long.parseLong(args.getOrDefault("llmLatencyMs", "800")),
+                Long.parseLong(args.getOrDefault("llmJitterMs", "400")),
+                Double.parseDouble(args.getOrDefault("errorRate", "0.02")),
+                Double.parseDouble(args.getOrDefault("malformedRate", "0.03")),
+                fields);
+
+        System.out.println("generating synthetic forms...");
+        int distinct = Integer.parseInt(args.getOrDefault("distinctImages", "20"));
+        int width = Integer.parseInt(args.getOrDefault("width", "1240"));
+        int height = Integer.parseInt(args.getOrDefault("height", "1754"));
+        List<byte[]> images = new ArrayList<>();
+        for (int i = 0; i < distinct; i++) {
+            images.add(SyntheticForms.png(i, fields, width, height));
+        }
+
+        boolean s3 = "s3".equals(args.getOrDefault("storage", "local"));
+        try (var llm = new StubLlmServer(Integer.parseInt(args.getOrDefault("llmPort", "0")), llmConfig).start();
+             var objects = new StubS3Server(0, Double.parseDouble(args.getOrDefault("s3ErrorRate", "0.02")))) {
+            System.out.println("stub LLM listening at " + llm.baseUrl());
+            if (s3) System.out.println("stub S3 listening at " + objects.start().endpoint());
+
+            ConfigurableApplicationContext app = null;
+            String target = args.get("target");
+            if (target == null) {
+                Path storage = Files.createTempDirectory("hwai-loadtest");
+                // command-line args so they win over application.properties
+                app = new SpringApplicationBuilder(HandwriteAiApplication.class).run(
+                        "--server.port=0",
+                        "--app.llm.baseUrl=" + llm.baseUrl(),
+                        "--app.llm.apiKey=stub",
+                        "--app.storage.localDir=" + storage,
+                        "--app.storage.backend=" + (s3 ? "s3" : "local"),
+                        "--app.storage.s3.endpoint=" + objects.endpoint(),
+                        "--app.storage.s3.bucket=loadtest",
+                        "--app.storage.s3.pathStyle=true",
+                        "--app.storage.s3.accessKey=stub",
+                        "--app.storage.s3.secretKey=stub",
+                        // the backfill client sends most uploads; let it queue them all rather than see 429s
+                        "--app.admission.maxPendingPerClient=" + Math.max(100, uploads),
+                        // the driver stands in for the gateway that names the clients
+                        "--app.admission.trustedProxies=127.0.0.1",
+                        "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+                target = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port") + "/v1";
+            }
+
+            try {
+                System.out.printf("driving %d uploads with %d clients against %s%n", uploads, concurrency, target);
+                var driver = new LoadDriver(target, concurrency, Long.parseLong(args.getOrDefault("pollMs", "250")),
+                        Double.parseDouble(args.getOrDefault("batchShare", "0")));
+                var report = driver.run(images, uploads,
+                        Duration.ofMinutes(Long.parseLong(args.getOrDefault("timeoutMinutes", "30"))));
+
+                System.out.println();
+                System.out.print(report.format());
+                System.out.printf("%nstub LLM: %d requests, %d injected errors, %d malformed%n",
+                        llm.requests(), llm.errors(), llm.malformed());
+                if (s3) {
+                    System.out.printf("stub S3: %d requests, %d injected errors, %d objects, %d bytes read%n",
+                            objects.requests(), objects.errors(), objects.objects(), objects.bytesRead());
+                }
+            } finally {
+                if (app != null) app.close();
+            }
+        }
+    }
+
+    private static Map<String, String> parse(String[] argv) {
+        Map<String, String> args = new HashMap<>();
+        for (String a : argv) {
+            if (!a.startsWith("--") || !a.contains("=")) {
+                throw new IllegalArgumentException("expected --key=value, got " + a);
+            }
+            int eq = a.indexOf('=');
+            args.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        return args;
+    }
+}
@@ -0,0 +1,130 @@
+package com.task.hwai.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal OpenAI-compatible {@code POST /v1/chat/completions} endpoint. Answers with a plausible
+ * extraction after a configurable delay, and injects HTTP errors and malformed JSON at fixed rates
+ * so the fallback paths get exercised too.
+ */
+public class StubLlmServer implements AutoCloseable {
+
+    public record Config(long latencyMs, long jitterMs, double errorRate, double malformedRate, int fields) {}
+
+    private static final ObjectMapper M = new ObjectMapper();
+
+    private final Config config;
+    private final HttpServer server;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+
+    public StubLlmServer(int port, Config config) throws IOException {
+        this.config = config;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 512);
+        this.server.createContext("/v1/chat/completions", this::handle);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public StubLlmServer start() {
+        server.start();
+        return this;
+    }
+
+    /** Base URL to hand to {@code app.llm.baseUrl}. */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/";
+    }
+
+    public long requests() { return requests.get(); }
+    public long errors() { return errors.get(); }
+    public long malformed() { return malformed.get(); }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            requests.incrementAndGet();
+            var rnd = ThreadLocalRandom.current();
+
+            long delay = config.latencyMs() + (config.jitterMs() > 0 ? rnd.nextLong(config.jitterMs() + 1) : 0);
+            if (delay > 0) Thread.sleep(delay);
+
+            if (rnd.nextDouble() < config.errorRate()) {
+                errors.incrementAndGet();
+                send(exchange, rnd.nextBoolean() ? 500 : 429,
+                        "{\"error\":{\"message\":\"stub injected failure\",\"type\":\"server_error\"}}");
+                return;
+            }
+
+            String content;
+            if (rnd.nextDouble() < config.malformedRate()) {
+                malformed.incrementAndGet();
+                content = "Sure! Here is the data: {\"document_type\": \"form\", \"pages\": [ {\"page\": 1, \"fields\": [";
+            } else {
+                content = "```json\n" + M.writeValueAsString(extraction(rnd)) + "\n```";
+            }
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("id", "chatcmpl-stub-" + requests.get());
+            response.put("object", "chat.completion");
+            response.put("created", System.currentTimeMillis() / 1000);
+            response.put("model", "stub");
+            response.put("choices", List.of(Map.of(
+                    "index", 0,
+                    "message", Map.of("role", "assistant", "content", content),
+                    "finish_reason", "stop")));
+            int completionTokens = content.length() / 4;
+            response.put("usage", Map.of(
+                    "prompt_tokens", 800,
+                    "completion_tokens", completionTokens,
+                    "total_tokens", 800 + completionTokens));
+            send(exchange, 200, M.writeValueAsString(response));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, Object> extraction(ThreadLocalRandom rnd) {
+        List<Map<String, Object>> fields = new ArrayList<>();
+        for (int i = 0; i < config.fields(); i++) {
+            fields.add(Map.of(
+                    "name", SyntheticForms.LABELS[i % SyntheticForms.LABELS.length].toLowerCase().replace(' ', '_'),
+                    "value", "value-" + rnd.nextInt(100_000),
+                    "confidence", Math.round(rnd.nextDouble(0.4, 1.0) * 100) / 100.0));
+        }
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("document_type", "intake_form");
+        doc.put("pages", List.of(Map.of("page", 1, "fields", fields, "tables", List.of())));
+        doc.put("warnings", List.of());
+        doc.put("processing_time_ms", 0);
+        return doc;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
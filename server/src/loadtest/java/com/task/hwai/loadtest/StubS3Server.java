@@ -0,0 +1,206 @@
+package com.task.hwai.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory, path-style S3 endpoint covering what the backend uses: put/head/delete object,
+ * ranged get and multipart upload. Fails a configurable share of part uploads and ranged reads
+ * with a 503 so the SDK and cache retries get exercised. No authentication is checked.
+ */
+public class StubS3Server implements AutoCloseable {
+
+    private final HttpServer server;
+    private final double errorRate;
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    public StubS3Server(int port, double errorRate) throws IOException {
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 512);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public StubS3Server start() {
+        server.start();
+        return this;
+    }
+
+    /** Endpoint to hand to {@code app.storage.s3.endpoint} (with {@code pathStyle=true}). */
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long requests() { return requests.get(); }
+    public long errors() { return errors.get(); }
+    public long objects() { return objects.size(); }
+    public long bytesRead() { return bytesRead.get(); }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            String key = exchange.getRequestURI().getPath().substring(1); // bucket/key
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+            byte[] body = body(exchange);
+
+            switch (method) {
+                case "PUT" -> {
+                    if (query.containsKey("uploadId")) {
+                        if (injectError(exchange)) return;
+                        var parts = uploads.get(query.get("uploadId"));
+                        if (parts == null) { error(exchange, 404, "NoSuchUpload"); return; }
+                        parts.put(Integer.parseInt(query.get("partNumber")), body);
+                    } else {
+                        objects.put(key, body);
+                    }
+                    exchange.getResponseHeaders().add("ETag", etag(body));
+                    send(exchange, 200, "");
+                }
+                case "POST" -> {
+                    String[] bucketAndKey = key.split("/", 2);
+                    if (query.containsKey("uploads")) {
+                        String id = UUID.randomUUID().toString();
+                        uploads.put(id, new TreeMap<>());
+                        send(exchange, 200, "<InitiateMultipartUploadResult><Bucket>" + bucketAndKey[0] + "</Bucket><Key>"
+                                + bucketAndKey[1] + "</Key><UploadId>" + id + "</UploadId></InitiateMultipartUploadResult>");
+                    } else {
+                        var parts = uploads.remove(query.get("uploadId"));
+                        if (parts == null) { error(exchange, 404, "NoSuchUpload"); return; }
+                        var out = new ByteArrayOutputStream();
+                        for (byte[] part : parts.values()) out.write(part);
+                        objects.put(key, out.toByteArray());
+                        send(exchange, 200, "<CompleteMultipartUploadResult><Bucket>" + bucketAndKey[0] + "</Bucket><Key>"
+                                + bucketAndKey[1] + "</Key><ETag>\"stub\"</ETag></CompleteMultipartUploadResult>");
+                    }
+                }
+                case "HEAD" -> {
+                    byte[] data = objects.get(key);
+                    if (data == null) { exchange.sendResponseHeaders(404, -1); return; }
+                    exchange.getResponseHeaders().add("Content-Length", String.valueOf(data.length));
+                    exchange.getResponseHeaders().add("ETag", etag(data));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "GET" -> {
+                    byte[] data = objects.get(key);
+                    if (data == null) { error(exchange, 404, "NoSuchKey"); return; }
+                    String range = exchange.getRequestHeaders().getFirst("Range");
+                    if (range == null) { sendBytes(exchange, 200, data); return; }
+                    if (injectError(exchange)) return;
+                    String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                    int from = Integer.parseInt(bounds[0]);
+                    int to = bounds[1].isEmpty() ? data.length - 1 : Math.min(Integer.parseInt(bounds[1]), data.length - 1);
+                    exchange.getResponseHeaders().add("Content-Range", "bytes " + from + "-" + to + "/" + data.length);
+                    sendBytes(exchange, 206, Arrays.copyOfRange(data, from, to + 1));
+                }
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) uploads.remove(query.get("uploadId"));
+                    else objects.remove(key);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> error(exchange, 405, "MethodNotAllowed");
+            }
+        }
+    }
+
+    private boolean injectError(HttpExchange exchange) throws IOException {
+        if (ThreadLocalRandom.current().nextDouble() >= errorRate) return false;
+        errors.incrementAndGet();
+        error(exchange, 503, "SlowDown");
+        return true;
+    }
+
+    // PUTs over plain http are sent aws-chunked: "<hex size>;chunk-signature=...\r\n<data>\r\n" until a 0-size chunk
+    private static byte[] body(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        String sha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (sha == null || !sha.startsWith("STREAMING-")) return raw;
+        var out = new ByteArrayOutputStream();
+        int pos = 0;
+        while (pos < raw.length) {
+            int eol = indexOfCrlf(raw, pos);
+            String header = new String(raw, pos, eol - pos, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.split(";", 2)[0], 16);
+            if (size == 0) break;
+            out.write(raw, eol + 2, size);
+            pos = eol + 2 + size + 2;
+        }
+        return out.toByteArray();
+    }
+
+    private static int indexOfCrlf(byte[] data, int from) {
+        for (int i = from; i < data.length - 1; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n') return i;
+        }
+        return data.length;
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> query = new HashMap<>();
+        if (raw == null) return query;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            query.put(eq < 0 ? pair : pair.substring(0, eq), eq < 0 ? "" : pair.substring(eq + 1));
+        }
+        return query;
+    }
+
+    // the SDK checks a single-part ETag against the MD5 of what it sent
+    private static String etag(byte[] data) {
+        try {
+            return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void sendBytes(HttpExchange exchange, int status, byte[] data) throws IOException {
+        bytesRead.addAndGet(data.length);
+        exchange.sendResponseHeaders(status, data.length == 0 ? -1 : data.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data);
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String code) throws IOException {
+        send(exchange, status, "<Error><Code>" + code + "</Code><Message>stub</Message></Error>");
+    }
+
+    private static void send(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
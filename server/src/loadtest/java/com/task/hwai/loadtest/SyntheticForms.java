@@ -0,0 +1,83 @@
+package com.task.hwai.loadtest;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Renders form-like scans: printed labels, "handwritten" values in an italic font with per-glyph
+ * jitter, a slight skew and speckle noise. Good enough to give Tesseract realistic work.
+ */
+public final class SyntheticForms {
+
+    static final String[] LABELS = {
+            "Name", "Date of Birth", "Address", "Phone", "Email", "Policy Number",
+            "Invoice Number", "Amount Due", "Signature", "Notes", "City", "Postcode"
+    };
+
+    private static final String[] VALUES = {
+            "Jane Smith", "12/04/1987", "42 Harbour Road", "555-0134", "jane@example.com", "PN-448120",
+            "INV-20931", "$1,204.50", "J. Smith", "Follow-up in two weeks", "Springfield", "90210"
+    };
+
+    private SyntheticForms() {}
+
+    /** PNG bytes of a form with {@code fields} label/value rows; {@code seed} makes it reproducible. */
+    public static byte[] png(long seed, int fields, int width, int height) throws IOException {
+        Random rnd = new Random(seed);
+        var img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.rotate(Math.toRadians(rnd.nextDouble(-1.5, 1.5)), width / 2.0, height / 2.0);
+
+            int margin = width / 12;
+            g.setColor(Color.BLACK);
+            g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, height / 40));
+            g.drawString("PATIENT INTAKE FORM  #" + (1000 + rnd.nextInt(9000)), margin, margin + height / 40);
+
+            int rowHeight = Math.max(height / 24, (height - 3 * margin) / Math.max(1, fields));
+            var labelFont = new Font(Font.SANS_SERIF, Font.PLAIN, rowHeight / 3);
+            var handFont = new Font(Font.SERIF, Font.ITALIC, rowHeight / 2);
+            g.setStroke(new BasicStroke(1.5f));
+
+            for (int i = 0; i < fields; i++) {
+                int y = 2 * margin + i * rowHeight;
+                if (y > height - margin) break;
+                String label = LABELS[i % LABELS.length];
+                g.setFont(labelFont);
+                g.setColor(Color.BLACK);
+                g.drawString(label + ":", margin, y);
+                int valueX = margin + width / 4;
+                g.drawLine(valueX, y + 4, width - margin, y + 4);
+
+                g.setFont(handFont);
+                g.setColor(new Color(20, 20, 60 + rnd.nextInt(60)));
+                int x = valueX + 8;
+                for (char c : VALUES[(i + rnd.nextInt(3)) % VALUES.length].toCharArray()) {
+                    g.drawString(String.valueOf(c), x, y - rnd.nextInt(4));
+                    x += g.getFontMetrics().charWidth(c) + rnd.nextInt(2);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+
+        for (int i = 0; i < width * height / 400; i++) {
+            img.setRGB(rnd.nextInt(width), rnd.nextInt(height), rnd.nextBoolean() ? 0x000000 : 0x888888);
+        }
+
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+}
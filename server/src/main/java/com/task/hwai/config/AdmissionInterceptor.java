@@ -0,0 +1,72 @@
+package com.task.hwai.config;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.task.hwai.service.AdmissionService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Applies {@link AdmissionService} to uploads. Runs before argument resolution, and multipart
+ * parsing is lazy, so a rejected upload is answered with 429 before its body is read or spooled.
+ * Uploads are keyed on the remote address; {@code X-Client-Id} is only honoured on requests from
+ * {@code app.admission.trustedProxies} (the gateway that authenticated the caller), since anyone
+ * else could pick a fresh id per request and never hit the per-client quota.
+ */
+@Component
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    public static final String CLIENT_HEADER = "X-Client-Id";
+    public static final String CLIENT_ATTRIBUTE = "com.task.hwai.admission.client";
+
+    private final AdmissionService admission;
+    private final Set<String> trustedProxies;
+
+    public AdmissionInterceptor(AdmissionService admission,
+                                @Value("${app.admission.trustedProxies:}") String trustedProxies) {
+        this.admission = admission;
+        this.trustedProxies = Arrays.stream(trustedProxies.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"POST".equals(request.getMethod())) return true;
+
+        String client = clientOf(request);
+        var decision = admission.tryAdmit(client, request.getContentLengthLong());
+        if (!decision.admitted()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+            response.setHeader("X-Rejected-Reason", decision.reason());
+            return false;
+        }
+        request.setAttribute(CLIENT_ATTRIBUTE, client);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(CLIENT_ATTRIBUTE) instanceof String client) {
+            admission.release(client);
+        }
+    }
+
+    String clientOf(HttpServletRequest request) {
+        String remote = request.getRemoteAddr();
+        String id = trustedProxies.contains(remote) ? request.getHeader(CLIENT_HEADER) : null;
+        if (id == null || id.isBlank()) id = remote;
+        return id.length() > 128 ? id.substring(0, 128) : id;
+    }
+}
@@ -1,18 +1,28 @@
 package com.task.hwai.config;
 
 import com.theokanning.openai.OpenAiService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.time.Duration;
 
 @Configuration
 public class LangchainConfig {
 
+    // built on the first LLM call (Retrofit/OkHttp/Jackson setup is not needed to become ready)
     @Bean
-    public OpenAiService openAiService() {
-        String apiKey = System.getenv("OPENAI_API_KEY");
+    @Lazy
+    public OpenAiService openAiService(
+            @Value("${app.llm.apiKey:${OPENAI_API_KEY:}}") String apiKey,
+            // any OpenAI-compatible chat-completions endpoint, e.g. the load-test stub; must end with '/'
+            @Value("${app.llm.baseUrl:https://api.openai.com/}") String baseUrl,
+            @Value("${app.llm.timeoutSeconds:10}") long timeoutSeconds) {
         if (apiKey == null || apiKey.isBlank()) {
             throw new IllegalStateException("OPENAI_API_KEY environment variable must be set and non-empty");
         }
-        return new OpenAiService(apiKey);
+        String url = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        return new OpenAiService(apiKey, url, Duration.ofSeconds(timeoutSeconds));
     }
-}
\ No newline at end of file
+}
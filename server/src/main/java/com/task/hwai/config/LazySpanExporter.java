@@ -0,0 +1,60 @@
+package com.task.hwai.config;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Defers building the real exporter until spans are first exported. Exports happen on the batch
+ * processor's worker thread, so channel setup costs neither startup nor a request. If building
+ * fails the batch is reported as failed and the next export tries again.
+ */
+class LazySpanExporter implements SpanExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(LazySpanExporter.class);
+
+    private final Supplier<SpanExporter> factory;
+    private volatile SpanExporter delegate;
+
+    LazySpanExporter(Supplier<SpanExporter> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        SpanExporter exporter = delegate();
+        return exporter == null ? CompletableResultCode.ofFailure() : exporter.export(spans);
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        SpanExporter exporter = delegate;
+        return exporter == null ? CompletableResultCode.ofSuccess() : exporter.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        SpanExporter exporter = delegate;
+        return exporter == null ? CompletableResultCode.ofSuccess() : exporter.shutdown();
+    }
+
+    private SpanExporter delegate() {
+        SpanExporter exporter = delegate;
+        if (exporter != null) return exporter;
+        synchronized (this) {
+            if (delegate == null) {
+                try {
+                    delegate = factory.get();
+                } catch (RuntimeException e) {
+                    log.warn("span exporter could not be created: {}", e.toString());
+                }
+            }
+            return delegate;
+        }
+    }
+}
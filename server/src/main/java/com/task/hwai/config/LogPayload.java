@@ -0,0 +1,24 @@
+package com.task.hwai.config;
+
+/**
+ * Log argument for potentially large text (OCR output, raw LLM responses). Truncation happens in
+ * {@link #toString()}, i.e. only if the event is actually written, and never copies more than
+ * {@code maxChars} characters.
+ */
+public record LogPayload(String text, int maxChars) {
+
+    public static LogPayload of(String text, int maxChars) {
+        return new LogPayload(text, maxChars);
+    }
+
+    public int length() {
+        return text == null ? 0 : text.length();
+    }
+
+    @Override
+    public String toString() {
+        if (text == null) return "null";
+        if (text.length() <= maxChars) return text;
+        return text.substring(0, Math.max(0, maxChars)) + "...[+" + (text.length() - maxChars) + " chars]";
+    }
+}
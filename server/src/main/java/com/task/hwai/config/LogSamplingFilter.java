@@ -0,0 +1,53 @@
+package com.task.hwai.config;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Keeps a random fraction of TRACE/DEBUG/INFO events from our own loggers; WARN and ERROR always
+ * pass. Runs before the message is formatted, so dropped events cost one random draw.
+ * Configured from logback-spring.xml.
+ */
+public class LogSamplingFilter extends TurboFilter {
+
+    private String loggerPrefix = "com.task.hwai";
+    private double traceRate = 1.0;
+    private double debugRate = 1.0;
+    private double infoRate = 1.0;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.isGreaterOrEqual(Level.WARN)) return FilterReply.NEUTRAL;
+        if (!logger.getName().startsWith(loggerPrefix)) return FilterReply.NEUTRAL;
+
+        double rate = switch (level.toInt()) {
+            case Level.TRACE_INT -> traceRate;
+            case Level.DEBUG_INT -> debugRate;
+            default -> infoRate;
+        };
+        if (rate >= 1.0) return FilterReply.NEUTRAL;
+        return ThreadLocalRandom.current().nextDouble() < rate ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public void setTraceRate(double traceRate) {
+        this.traceRate = traceRate;
+    }
+
+    public void setDebugRate(double debugRate) {
+        this.debugRate = debugRate;
+    }
+
+    public void setInfoRate(double infoRate) {
+        this.infoRate = infoRate;
+    }
+}
@@ -1,19 +1,54 @@
 package com.task.hwai.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
 import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.data.LinkData;
 import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 public class OpenTelemetryConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenTelemetryConfig.class);
+
+    // Head sampling ratio for new traces; children follow their parent's decision.
+    @Value("${app.tracing.sampleRatio:1.0}")
+    private double sampleRatio;
+
+    // Unsampled traces whose root takes at least this long are exported anyway (0 disables).
+    @Value("${app.tracing.slowRunThresholdMs:10000}")
+    private long slowRunThresholdMs;
+
+    @Value("${app.tracing.maxQueueSize:2048}")
+    private int maxQueueSize;
+
+    @Value("${app.tracing.maxExportBatchSize:512}")
+    private int maxExportBatchSize;
+
+    @Value("${app.tracing.scheduleDelayMs:5000}")
+    private long scheduleDelayMs;
+
     @Bean
     public OpenTelemetry openTelemetry() {
         try {
@@ -21,29 +56,48 @@ public class OpenTelemetryConfig {
                     "LANGFUSE_OTLP_ENDPOINT", "http://localhost:4317"
             );
 
-            OtlpGrpcSpanExporter exporter = OtlpGrpcSpanExporter.builder()
+            // the gRPC exporter is only built when the first batch is exported, off the startup path
+            SpanExporter exporter = new LazySpanExporter(() -> OtlpGrpcSpanExporter.builder()
                     .setEndpoint(endpoint)
                     .addHeader("x-langfuse-public-key", System.getenv("LANGFUSE_PUBLIC_KEY"))
                     .addHeader("x-langfuse-secret-key", System.getenv("LANGFUSE_SECRET_KEY"))
-                    .build();
+                    .build());
 
             Resource resource = Resource.getDefault().toBuilder()
                     .put(AttributeKey.stringKey("service.name"), "handwrite-ai")
                     .build();
 
-            SdkTracerProvider provider = SdkTracerProvider.builder()
-                    .addSpanProcessor(BatchSpanProcessor.builder(exporter).build())
-                    .setResource(resource)
+            // Bounded queue: under overload spans are dropped rather than piling up in memory
+            BatchSpanProcessor batch = BatchSpanProcessor.builder(exporter)
+                    .setMaxQueueSize(maxQueueSize)
+                    .setMaxExportBatchSize(maxExportBatchSize)
+                    .setScheduleDelay(Duration.ofMillis(scheduleDelayMs))
                     .build();
 
+            boolean captureSlow = sampleRatio < 1.0 && slowRunThresholdMs > 0;
+            Sampler ratio = Sampler.traceIdRatioBased(sampleRatio);
+            Sampler root = captureSlow ? new RecordUnsampled(ratio) : ratio;
+            Sampler sampler = captureSlow
+                    ? Sampler.parentBasedBuilder(root).setLocalParentNotSampled(new RecordUnsampled(Sampler.alwaysOff())).build()
+                    : Sampler.parentBased(root);
+
+            SdkTracerProviderBuilder providerBuilder = SdkTracerProvider.builder()
+                    .setSampler(sampler)
+                    .addSpanProcessor(batch)
+                    .setResource(resource);
+            if (captureSlow) {
+                providerBuilder.addSpanProcessor(new SlowTraceSpanProcessor(
+                        exporter, Duration.ofMillis(slowRunThresholdMs).toNanos(), 256, 64, 64));
+            }
+
             OpenTelemetrySdk sdk = OpenTelemetrySdk.builder()
-                    .setTracerProvider(provider)
+                    .setTracerProvider(providerBuilder.build())
                     .build();
 
             GlobalOpenTelemetry.set(sdk);
             return sdk;
         } catch (Throwable t) {
-            System.err.println("OpenTelemetry initialization failed, falling back to noop: " + t.getMessage());
+            log.warn("OpenTelemetry initialization failed, falling back to noop: {}", t.toString());
             return GlobalOpenTelemetry.get();
         }
     }
@@ -52,4 +106,19 @@ public class OpenTelemetryConfig {
     public Tracer tracer(OpenTelemetry otel) {
         return otel.getTracer("com.example.hwai");
     }
-}
\ No newline at end of file
+
+    /** Turns a DROP decision into RECORD_ONLY so {@link SlowTraceSpanProcessor} can still see the spans. */
+    private record RecordUnsampled(Sampler delegate) implements Sampler {
+        @Override
+        public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+                                           Attributes attributes, List<LinkData> parentLinks) {
+            SamplingResult result = delegate.shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+            return result.getDecision() == SamplingDecision.DROP ? SamplingResult.recordOnly() : result;
+        }
+
+        @Override
+        public String getDescription() {
+            return "RecordUnsampled{" + delegate.getDescription() + "}";
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.task.hwai.config;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps traces that lost the head-sampling coin toss when their local root turns out slow.
+ * Spans of unsampled traces are recorded (not exported) and buffered per trace; when the local
+ * root ends after {@code thresholdNanos} the whole trace is exported, otherwise it is dropped.
+ * Buffers are bounded in traces and spans per trace so memory stays predictable under load.
+ * Slow traces are handed to a bounded queue and exported by a background thread, never on the
+ * thread that ended the span; when the exporter can't keep up, further slow traces are dropped.
+ */
+class SlowTraceSpanProcessor implements SpanProcessor {
+    private static final Logger log = LoggerFactory.getLogger(SlowTraceSpanProcessor.class);
+
+    private final SpanExporter exporter;
+    private final long thresholdNanos;
+    private final int maxSpansPerTrace;
+    private final Map<String, List<SpanData>> pending;
+    private final BlockingQueue<List<SpanData>> slow;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread worker;
+
+    SlowTraceSpanProcessor(SpanExporter exporter, long thresholdNanos, int maxTraces, int maxSpansPerTrace,
+                           int maxQueuedTraces) {
+        this.exporter = exporter;
+        this.thresholdNanos = thresholdNanos;
+        this.maxSpansPerTrace = maxSpansPerTrace;
+        this.pending = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<SpanData>> eldest) {
+                return size() > maxTraces;
+            }
+        };
+        this.slow = new ArrayBlockingQueue<>(maxQueuedTraces);
+        this.worker = new Thread(this::exportLoop, "slow-trace-export");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {}
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        // sampled spans are handled by the regular batch processor
+        if (span.getSpanContext().isSampled()) return;
+
+        String traceId = span.getSpanContext().getTraceId();
+        var parent = span.getParentSpanContext();
+        boolean localRoot = !parent.isValid() || parent.isRemote();
+
+        List<SpanData> spans;
+        synchronized (pending) {
+            if (!localRoot) {
+                var buffered = pending.computeIfAbsent(traceId, k -> new ArrayList<>());
+                if (buffered.size() < maxSpansPerTrace) buffered.add(span.toSpanData());
+                return;
+            }
+            spans = pending.remove(traceId);
+        }
+
+        if (span.getLatencyNanos() < thresholdNanos) return;
+        List<SpanData> trace = spans == null ? new ArrayList<>() : spans;
+        trace.add(span.toSpanData());
+        if (!slow.offer(trace) && dropped.incrementAndGet() % 100 == 1) {
+            log.warn("slow trace export queue full, {} slow traces dropped so far", dropped.get());
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return exportQueued();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        synchronized (pending) {
+            pending.clear();
+        }
+        worker.interrupt();
+        return exportQueued();
+    }
+
+    private void exportLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<SpanData> batch = new ArrayList<>(slow.take());
+                drainTo(batch);
+                export(batch).join(30, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableResultCode exportQueued() {
+        List<SpanData> batch = new ArrayList<>();
+        drainTo(batch);
+        return batch.isEmpty() ? CompletableResultCode.ofSuccess() : export(batch);
+    }
+
+    private void drainTo(List<SpanData> batch) {
+        List<List<SpanData>> traces = new ArrayList<>();
+        slow.drainTo(traces);
+        for (var trace : traces) batch.addAll(trace);
+    }
+
+    private CompletableResultCode export(List<SpanData> batch) {
+        try {
+            return exporter.export(batch);
+        } catch (RuntimeException e) {
+            log.warn("slow trace export failed: {}", e.toString());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.task.hwai.config;
+
+import com.task.hwai.service.BlobStore;
+import com.task.hwai.service.LocalBlobStore;
+import com.task.hwai.service.S3BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class StorageConfig {
+
+    @Value("${app.storage.s3.bucket:}")
+    private String bucket;
+
+    @Value("${app.storage.s3.region:us-east-1}")
+    private String region;
+
+    // S3-compatible endpoint such as MinIO (http://minio:9000); empty for AWS
+    @Value("${app.storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${app.storage.s3.pathStyle:false}")
+    private boolean pathStyle;
+
+    // empty: the default AWS chain (env, profile, instance role)
+    @Value("${app.storage.s3.accessKey:}")
+    private String accessKey;
+
+    @Value("${app.storage.s3.secretKey:}")
+    private String secretKey;
+
+    @Value("${app.storage.s3.multipartThresholdMb:16}")
+    private long multipartThresholdMb;
+
+    @Value("${app.storage.s3.partSizeMb:8}")
+    private int partSizeMb;
+
+    @Value("${app.storage.s3.maxRetries:3}")
+    private int maxRetries;
+
+    @Value("${app.storage.s3.timeoutSeconds:30}")
+    private long timeoutSeconds;
+
+    // decided at runtime rather than with @ConditionalOnProperty, so the AOT-processed context
+    // from the faststart build can still be pointed at either backend
+    @Bean
+    public BlobStore blobStore(@Value("${app.storage.backend:local}") String backend,
+                               @Value("${app.storage.localDir}") String localDir) {
+        if (!"s3".equalsIgnoreCase(backend)) {
+            return new LocalBlobStore(Path.of(localDir));
+        }
+        if (bucket.isBlank()) {
+            throw new IllegalStateException("app.storage.s3.bucket must be set when app.storage.backend=s3");
+        }
+        var builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyle)
+                .credentialsProvider(accessKey.isBlank()
+                        ? DefaultCredentialsProvider.create()
+                        : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
+                .overrideConfiguration(c -> c
+                        .retryPolicy(RetryPolicy.builder().numRetries(maxRetries).build())
+                        .apiCallAttemptTimeout(Duration.ofSeconds(timeoutSeconds)));
+        if (!endpoint.isBlank()) builder.endpointOverride(URI.create(endpoint));
+        return new S3BlobStore(builder.build(), bucket, multipartThresholdMb * 1024 * 1024, partSizeMb * 1024 * 1024);
+    }
+}
@@ -0,0 +1,114 @@
+package com.task.hwai.controller;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.task.hwai.entity.ConfidenceRollupEntity;
+import com.task.hwai.service.AnalyticsService;
+
+@RestController
+@RequestMapping("/v1/analytics")
+@CrossOrigin(origins = "*")
+public class AnalyticsController {
+    private final AnalyticsService analytics;
+
+    public AnalyticsController(AnalyticsService analytics) {
+        this.analytics = analytics;
+    }
+
+    // Daily buckets per document type plus a per-type total over the requested range (default: last 30 days)
+    @GetMapping("/confidence")
+    public ResponseEntity<ConfidenceReport> confidence(
+            @RequestParam(name = "documentType", required = false) String documentType,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+
+        Instant end = to == null ? Instant.now() : to;
+        Instant start = from == null ? end.minus(30, ChronoUnit.DAYS) : from;
+        if (!start.isBefore(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        var rows = analytics.range(documentType, start, end);
+        List<Bucket> buckets = rows.stream().map(AnalyticsController::toBucket).toList();
+
+        Map<String, ConfidenceRollupEntity> totals = new LinkedHashMap<>();
+        for (var r : rows) {
+            totals.merge(r.getDocumentType(), copy(r), AnalyticsController::merge);
+        }
+        totals.values().forEach(t -> t.setBucketStart(AnalyticsService.bucketOf(start)));
+        List<Bucket> summary = totals.values().stream().map(AnalyticsController::toBucket).toList();
+
+        return ResponseEntity.ok(new ConfidenceReport(buckets, summary));
+    }
+
+    private static Bucket toBucket(ConfidenceRollupEntity r) {
+        long docs = r.getDocuments();
+        long fields = r.getFieldCount();
+        return new Bucket(
+                r.getDocumentType(),
+                r.getBucketStart(),
+                docs,
+                docs == 0 ? null : r.getAvgConfidenceSum() / docs,
+                fields,
+                fields == 0 ? null : r.getFieldConfidenceSum() / fields,
+                AnalyticsService.quantile(r.getHistogram(), 0.1),
+                AnalyticsService.quantile(r.getHistogram(), 0.5),
+                AnalyticsService.quantile(r.getHistogram(), 0.9),
+                docs == 0 ? null : (double) r.getFallbacks() / docs,
+                r.getHistogram()
+        );
+    }
+
+    private static ConfidenceRollupEntity copy(ConfidenceRollupEntity r) {
+        var c = new ConfidenceRollupEntity();
+        c.setDocumentType(r.getDocumentType());
+        c.setBucketStart(r.getBucketStart());
+        c.setDocuments(r.getDocuments());
+        c.setFallbacks(r.getFallbacks());
+        c.setAvgConfidenceSum(r.getAvgConfidenceSum());
+        c.setFieldCount(r.getFieldCount());
+        c.setFieldConfidenceSum(r.getFieldConfidenceSum());
+        c.setHistogram(r.getHistogram() == null ? null : r.getHistogram().clone());
+        return c;
+    }
+
+    private static ConfidenceRollupEntity merge(ConfidenceRollupEntity a, ConfidenceRollupEntity b) {
+        a.setDocuments(a.getDocuments() + b.getDocuments());
+        a.setFallbacks(a.getFallbacks() + b.getFallbacks());
+        a.setAvgConfidenceSum(a.getAvgConfidenceSum() + b.getAvgConfidenceSum());
+        a.setFieldCount(a.getFieldCount() + b.getFieldCount());
+        a.setFieldConfidenceSum(a.getFieldConfidenceSum() + b.getFieldConfidenceSum());
+        if (a.getHistogram() != null && b.getHistogram() != null && a.getHistogram().length == b.getHistogram().length) {
+            for (int i = 0; i < a.getHistogram().length; i++) a.getHistogram()[i] += b.getHistogram()[i];
+        }
+        return a;
+    }
+
+    public record ConfidenceReport(List<Bucket> buckets, List<Bucket> totals) {}
+
+    public record Bucket(
+            String documentType,
+            Instant bucketStart,
+            long documents,
+            Double meanConfidence,
+            long fieldCount,
+            Double meanFieldConfidence,
+            Double p10FieldConfidence,
+            Double p50FieldConfidence,
+            Double p90FieldConfidence,
+            Double fallbackRate,
+            long[] histogram
+    ) {}
+}
@@ -0,0 +1,130 @@
+package com.task.hwai.controller;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.task.hwai.entity.ExtractionVersionEntity;
+import com.task.hwai.entity.ReprocessJobEntity;
+import com.task.hwai.model.ExtractionResult;
+import com.task.hwai.model.JobStatus;
+import com.task.hwai.model.ReprocessRequest;
+import com.task.hwai.repo.ExtractionVersionRepo;
+import com.task.hwai.repo.ReprocessJobRepo;
+import com.task.hwai.service.ReprocessService;
+
+@RestController
+@RequestMapping("/v1")
+@CrossOrigin(origins = "*")
+public class ReprocessController {
+    private final ReprocessService reprocess;
+    private final ReprocessJobRepo jobRepo;
+    private final ExtractionVersionRepo versionRepo;
+
+    public ReprocessController(ReprocessService reprocess, ReprocessJobRepo jobRepo, ExtractionVersionRepo versionRepo) {
+        this.reprocess = reprocess;
+        this.jobRepo = jobRepo;
+        this.versionRepo = versionRepo;
+    }
+
+    // Starts re-extracting every completed run matching the filter; poll the returned job for progress
+    @PostMapping("/reprocess/jobs")
+    public ResponseEntity<JobView> create(@RequestBody ReprocessRequest req) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(JobView.of(reprocess.create(req)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/reprocess/jobs")
+    public ResponseEntity<List<JobView>> list() {
+        return ResponseEntity.ok(jobRepo.findTop50ByOrderByCreatedAtDesc().stream().map(JobView::of).toList());
+    }
+
+    @GetMapping("/reprocess/jobs/{jobId}")
+    public ResponseEntity<JobView> get(@PathVariable UUID jobId) {
+        return jobRepo.findById(jobId).map(JobView::of)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/reprocess/jobs/{jobId}/cancel")
+    public ResponseEntity<JobView> cancel(@PathVariable UUID jobId) {
+        var job = jobRepo.findById(jobId).orElse(null);
+        if (job == null) return ResponseEntity.notFound().build();
+        if (!reprocess.cancel(jobId)) return ResponseEntity.status(HttpStatus.CONFLICT).body(JobView.of(job));
+        return ResponseEntity.ok(jobRepo.findById(jobId).map(JobView::of).orElse(null));
+    }
+
+    // Extractions replaced by reprocessing, newest first
+    @GetMapping("/extractions/{runId}/versions")
+    public ResponseEntity<List<VersionView>> versions(@PathVariable UUID runId) {
+        return ResponseEntity.ok(versionRepo.findByRunIdOrderByVersionDesc(runId).stream().map(VersionView::of).toList());
+    }
+
+    public record JobView(
+            UUID jobId,
+            JobStatus status,
+            Instant from,
+            Instant to,
+            String documentType,
+            Double maxConfidence,
+            int parallelism,
+            int ratePerMinute,
+            int total,
+            int succeeded,
+            int failed,
+            int skipped,
+            int remaining,
+            double percentDone,
+            Long etaSeconds,
+            String lastError,
+            Instant createdAt,
+            Instant startedAt,
+            Instant completedAt
+    ) {
+        static JobView of(ReprocessJobEntity j) {
+            int done = j.getSucceeded() + j.getFailed();
+            int remaining = Math.max(0, j.getTotal() - done);
+            Long eta = null;
+            if (j.getStatus() == JobStatus.RUNNING && j.getStartedAt() != null && done > 0) {
+                long elapsed = Duration.between(j.getStartedAt(), Instant.now()).toSeconds();
+                eta = elapsed * remaining / done;
+            }
+            return new JobView(j.getJobId(), j.getStatus(), j.getFrom(), j.getTo(), j.getDocumentType(),
+                    j.getMaxConfidence(), j.getParallelism(), j.getRatePerMinute(), j.getTotal(),
+                    j.getSucceeded(), j.getFailed(), j.getSkipped(), remaining,
+                    j.getTotal() == 0 ? 100.0 : Math.round(1000.0 * done / j.getTotal()) / 10.0,
+                    eta, j.getLastError(), j.getCreatedAt(), j.getStartedAt(), j.getCompletedAt());
+        }
+    }
+
+    public record VersionView(
+            int version,
+            UUID jobId,
+            String documentType,
+            Double avgConfidence,
+            boolean fallback,
+            Instant createdAt,
+            Instant archivedAt,
+            ExtractionResult result
+    ) {
+        static VersionView of(ExtractionVersionEntity v) {
+            return new VersionView(v.getVersion(), v.getJobId(), v.getDocumentType(), v.getAvgConfidence(),
+                    v.isFallback(), v.getCreatedAt(), v.getArchivedAt(),
+                    RunController.JsonUtil.read(v.getResultJson(), ExtractionResult.class));
+        }
+    }
+}
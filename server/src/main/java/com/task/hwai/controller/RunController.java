@@ -1,13 +1,20 @@
 package com.task.hwai.controller;
 
-import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.Objects;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,31 +23,65 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.task.hwai.model.ConfidenceStats;
+import com.task.hwai.model.ExtractionPatch;
 import com.task.hwai.model.ExtractionResult;
+import com.task.hwai.model.RunMetrics;
 import com.task.hwai.model.RunResponse;
 import com.task.hwai.model.RunStatus;
 import com.task.hwai.repo.ExtractionRepo;
 import com.task.hwai.repo.FileRepo;
 import com.task.hwai.repo.RunRepo;
-import com.task.hwai.service.AgentService;
+import com.task.hwai.service.RunScheduler;
+import com.task.hwai.service.AnalyticsService;
+import com.task.hwai.service.DuplicateService;
+import com.task.hwai.service.ExtractionEditService;
+import com.task.hwai.service.FieldIndexService;
+import com.task.hwai.service.RollupDelta;
+import com.task.hwai.service.StorageService;
+import com.task.hwai.service.TableStore;
 
 @RestController
 @RequestMapping("/v1")
 @CrossOrigin(origins = "*")
 public class RunController {
+    private static final Logger log = LoggerFactory.getLogger(RunController.class);
+
     private final RunRepo runRepo;
     private final ExtractionRepo extractionRepo;
     private final FileRepo fileRepo;
-    private final AgentService agent;
-
-    public RunController(RunRepo runRepo, ExtractionRepo extractionRepo, FileRepo fileRepo, AgentService agent) {
+    private final RunScheduler scheduler;
+    private final FieldIndexService fieldIndex;
+    private final AnalyticsService analytics;
+    private final DuplicateService duplicates;
+    private final StorageService storage;
+    private final TableStore tables;
+    private final ExtractionEditService edits;
+    private final TransactionTemplate tx;
+
+    // how long GET/POST on a queued or running run waits for it before answering with its status
+    @Value("${app.scheduler.awaitTimeout:20s}")
+    private Duration awaitTimeout = Duration.ofSeconds(20);
+
+    public RunController(RunRepo runRepo, ExtractionRepo extractionRepo, FileRepo fileRepo, RunScheduler scheduler,
+                         FieldIndexService fieldIndex, AnalyticsService analytics, DuplicateService duplicates,
+                         StorageService storage, TableStore tables, ExtractionEditService edits,
+                         PlatformTransactionManager txManager) {
         this.runRepo = runRepo;
         this.extractionRepo = extractionRepo;
         this.fileRepo = fileRepo;
-        this.agent = agent;
+        this.scheduler = scheduler;
+        this.fieldIndex = fieldIndex;
+        this.analytics = analytics;
+        this.duplicates = duplicates;
+        this.storage = storage;
+        this.tables = tables;
+        this.edits = edits;
+        this.tx = new TransactionTemplate(txManager);
     }
 
     @GetMapping("/runs/{runId}")
@@ -48,19 +89,12 @@ public class RunController {
         var run = runRepo.findById(runId).orElse(null);
         if (run == null) return ResponseEntity.notFound().build();
 
-        // MVP: if still queued → trigger processing synchronously
-        if (run.getStatus() == RunStatus.QUEUED) {
-            try {
-                var file = fileRepo.findById(run.getFileId()).orElseThrow(() -> new Exception("File not found"));
-                var result = agent.run(file.getFileId(), runId, Path.of(file.getStorageUri()));
-                return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, result, null));
-            } catch (Exception e) {
-                System.err.println("Error processing queued run: " + e.getMessage());
-                e.printStackTrace();
-                run.setStatus(RunStatus.FAILED);
-                run.setError(e.getMessage());
-                runRepo.save(run);
-                return ResponseEntity.ok(new RunResponse(RunStatus.FAILED, null, e.getMessage()));
+        // still waiting or running: hold the request a while so a quick run answers in one round trip
+        if (run.getStatus() == RunStatus.QUEUED || run.getStatus() == RunStatus.PROCESSING) {
+            var result = scheduler.await(run, awaitTimeout);
+            run = runRepo.findById(runId).orElse(run);
+            if (result != null) {
+                return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, result, null, metricsOf(run)));
             }
         }
 
@@ -68,20 +102,19 @@ public class RunController {
             var ex = extractionRepo.findByRunId(runId).orElse(null);
             ExtractionResult result = null;
             try {
-                result = ex != null && ex.getResultJson() != null ? JsonUtil.read(ex.getResultJson(), ExtractionResult.class) : null;
+                result = ex != null && ex.getResultJson() != null ? tables.inline(JsonUtil.read(ex.getResultJson(), ExtractionResult.class)) : null;
             } catch (Exception e) {
-                System.err.println("Error deserializing extraction result: " + e.getMessage());
-                e.printStackTrace();
-                return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, null, "Failed to deserialize result: " + e.getMessage()));
+                log.error("Error deserializing extraction result for run {}: {}", runId, e.getMessage());
+                return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, null, "Failed to deserialize result: " + e.getMessage(), metricsOf(run)));
             }
-            return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, result, null));
+            return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, result, null, metricsOf(run)));
         }
 
         if (run.getStatus() == RunStatus.FAILED) {
-            return ResponseEntity.ok(new RunResponse(RunStatus.FAILED, null, run.getError()));
+            return ResponseEntity.ok(new RunResponse(RunStatus.FAILED, null, run.getError(), metricsOf(run)));
         }
 
-        return ResponseEntity.ok(new RunResponse(run.getStatus(), null, null));
+        return ResponseEntity.ok(new RunResponse(run.getStatus(), null, null, metricsOf(run)));
     }
 
     @PostMapping("/runs/{runId}")
@@ -90,18 +123,12 @@ public class RunController {
         var run = runRepo.findById(runId).orElse(null);
         if (run == null) return ResponseEntity.notFound().build();
 
-        if (run.getStatus() == RunStatus.QUEUED) {
-            try {
-                var file = fileRepo.findById(run.getFileId()).orElseThrow(() -> new Exception("File not found"));
-                var result = agent.run(file.getFileId(), runId, Path.of(file.getStorageUri()));
-                return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, result, null));
-            } catch (Exception e) {
-                System.err.println("Error processing queued run: " + e.getMessage());
-                e.printStackTrace();
-                run.setStatus(RunStatus.FAILED);
-                run.setError(e.getMessage());
-                runRepo.save(run);
-                return ResponseEntity.ok(new RunResponse(RunStatus.FAILED, null, e.getMessage()));
+        // still waiting or running: hold the request a while so a quick run answers in one round trip
+        if (run.getStatus() == RunStatus.QUEUED || run.getStatus() == RunStatus.PROCESSING) {
+            var result = scheduler.await(run, awaitTimeout);
+            run = runRepo.findById(runId).orElse(run);
+            if (result != null) {
+                return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, result, null, metricsOf(run)));
             }
         }
 
@@ -109,20 +136,36 @@ public class RunController {
             var ex = extractionRepo.findByRunId(runId).orElse(null);
             ExtractionResult result = null;
             try {
-                result = ex != null && ex.getResultJson() != null ? JsonUtil.read(ex.getResultJson(), ExtractionResult.class) : null;
+                result = ex != null && ex.getResultJson() != null ? tables.inline(JsonUtil.read(ex.getResultJson(), ExtractionResult.class)) : null;
             } catch (Exception e) {
-                System.err.println("Error deserializing extraction result: " + e.getMessage());
-                e.printStackTrace();
-                return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, null, "Failed to deserialize result: " + e.getMessage()));
+                log.error("Error deserializing extraction result for run {}: {}", runId, e.getMessage());
+                return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, null, "Failed to deserialize result: " + e.getMessage(), metricsOf(run)));
             }
-            return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, result, null));
+            return ResponseEntity.ok(new RunResponse(RunStatus.COMPLETED, result, null, metricsOf(run)));
         }
 
         if (run.getStatus() == RunStatus.FAILED) {
-            return ResponseEntity.ok(new RunResponse(RunStatus.FAILED, null, run.getError()));
+            return ResponseEntity.ok(new RunResponse(RunStatus.FAILED, null, run.getError(), metricsOf(run)));
         }
 
-        return ResponseEntity.ok(new RunResponse(run.getStatus(), null, null));
+        return ResponseEntity.ok(new RunResponse(run.getStatus(), null, null, metricsOf(run)));
+    }
+
+    // Re-queues a FAILED run and processes it like GET; pages checkpointed by the failed attempt are not redone
+    @PostMapping("/runs/{runId}/retry")
+    public ResponseEntity<RunResponse> retryRun(@PathVariable UUID runId) throws Exception {
+        var run = runRepo.findById(runId).orElse(null);
+        if (run == null) return ResponseEntity.notFound().build();
+        var file = fileRepo.findById(run.getFileId()).orElse(null);
+        if (file == null || file.getPurgedAt() != null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new RunResponse(run.getStatus(), null, "The original file was deleted; upload it again", metricsOf(run)));
+        }
+        if (runRepo.requeue(runId, Instant.now()) == 0) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new RunResponse(run.getStatus(), null, "Only FAILED runs can be retried", metricsOf(run)));
+        }
+        return getRun(runId);
     }
 
     @PostMapping("/exports")
@@ -137,7 +180,7 @@ public class RunController {
         }
         return ResponseEntity.ok()
                 .header("Content-Disposition", "attachment; filename=extraction.json")
-                .body(ex.getResultJson());
+                .body(JsonUtil.writeValueAsString(tables.inline(JsonUtil.read(ex.getResultJson(), ExtractionResult.class))));
     }
 
     // CRUD Operations for Extractions
@@ -161,8 +204,8 @@ public class RunController {
         if (entity.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-        ExtractionResult result = JsonUtil.read(entity.get().getResultJson(), ExtractionResult.class);
-        return ResponseEntity.ok(result);
+        ExtractionResult result = tables.inline(JsonUtil.read(entity.get().getResultJson(), ExtractionResult.class));
+        return ResponseEntity.ok().eTag(PatchUtil.eTag(entity.get().getVersion())).body(result);
     }
 
     @PutMapping("/extractions/{runId}")
@@ -170,62 +213,152 @@ public class RunController {
             @PathVariable UUID runId,
             @RequestBody ExtractionResult updatedResult) {
 
-        var entity = extractionRepo.findByRunId(runId);
-        if (entity.isEmpty()) {
-            return ResponseEntity.notFound().build();
+        // tables, document, field index and rollups change in one transaction
+        try {
+            return edits.replace(runId, updatedResult)
+                    .map(stored -> ResponseEntity.ok(tables.inline(stored)))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
+    }
 
-        // Validate the run exists
-        var run = runRepo.findById(runId);
-        if (run.isEmpty()) {
+    // Field-level edits: only the touched fields are re-indexed and the average confidence is
+    // adjusted from the stored sum/count instead of being recomputed over the whole document.
+    // The row, the field index and the rollups change in one transaction; anything but a 200 rolls it back.
+    @PatchMapping("/extractions/{runId}")
+    public ResponseEntity<PatchResult> patchExtraction(
+            @PathVariable UUID runId,
+            @RequestHeader(name = "If-Match", required = false) String ifMatch,
+            @RequestBody ExtractionPatch patch) {
+        return tx.execute(status -> {
+            var response = applyPatch(runId, ifMatch, patch);
+            if (!response.getStatusCode().is2xxSuccessful()) status.setRollbackOnly();
+            return response;
+        });
+    }
+
+    private ResponseEntity<PatchResult> applyPatch(UUID runId, String ifMatch, ExtractionPatch patch) {
+        var entity = extractionRepo.findByRunId(runId).orElse(null);
+        if (entity == null) {
             return ResponseEntity.notFound().build();
         }
 
-        // Update the entity
-        entity.get().setResultJson(JsonUtil.writeValueAsString(updatedResult));
-        entity.get().setAvgConfidence(calculateAverageConfidence(updatedResult));
-        entity.get().setDocumentType(updatedResult.documentType());
+        Long expected = patch.version() != null ? patch.version() : PatchUtil.parseETag(ifMatch);
+        if (expected == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
+        }
+        if (!expected.equals(entity.getVersion())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).eTag(PatchUtil.eTag(entity.getVersion())).build();
+        }
+
+        var root = JsonUtil.readTree(entity.getResultJson());
+        ConfidenceStats stats = entity.getConfidenceStats();
+        if (stats == null) {
+            // rows written before sum/count were stored: compute once, incremental from here on
+            stats = ConfidenceStats.of(JsonUtil.treeToValue(root, ExtractionResult.class));
+        }
+
+        boolean typeChanged = patch.documentType() != null && !patch.documentType().equals(entity.getDocumentType());
+        String previousType = entity.getDocumentType();
+        // a type change moves the whole document between rollups; otherwise only the edited fields move
+        RollupDelta retract = typeChanged
+                ? RollupDelta.ofDocument(JsonUtil.treeToValue(root, ExtractionResult.class), entity.isFallback(), -1)
+                : null;
+
+        var delta = new RollupDelta();
+        double averageBefore = stats.average();
+        var touched = new LinkedHashSet<PatchUtil.FieldKey>();
+        try {
+            for (var edit : patch.edits() == null ? List.<ExtractionPatch.FieldEdit>of() : patch.edits()) {
+                stats = PatchUtil.apply(root, edit, stats, delta);
+                touched.add(new PatchUtil.FieldKey(edit.page(), edit.field()));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        delta.moveAverage(averageBefore, stats.average());
+
+        if (typeChanged) {
+            root.put("document_type", patch.documentType());
+            entity.setDocumentType(patch.documentType());
+        }
 
-        extractionRepo.save(entity.get());
+        entity.setResultJson(JsonUtil.writeValueAsString(root));
+        entity.setConfidenceStats(stats);
+
+        com.task.hwai.entity.ExtractionEntity saved;
+        try {
+            saved = extractionRepo.saveAndFlush(entity);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        if (typeChanged) {
+            fieldIndex.updateDocumentType(runId, saved.getDocumentType());
+            analytics.apply(previousType, saved.getCreatedAt(), retract);
+            analytics.apply(saved.getDocumentType(), saved.getCreatedAt(),
+                    RollupDelta.ofDocument(JsonUtil.treeToValue(root, ExtractionResult.class), saved.isFallback(), 1));
+        } else {
+            analytics.apply(saved.getDocumentType(), saved.getCreatedAt(), delta);
+        }
+        for (var key : touched) {
+            fieldIndex.reindexField(runId, saved.getDocumentType(), key.page(), key.name(),
+                    PatchUtil.fieldsNamed(root, key.page(), key.name()));
+        }
 
-        return ResponseEntity.ok(updatedResult);
+        return ResponseEntity.ok()
+                .eTag(PatchUtil.eTag(saved.getVersion()))
+                .body(new PatchResult(runId, saved.getVersion(), saved.getAvgConfidence(), touched.size()));
     }
 
+    // The run, the extraction and its tables, the field index and the rollups change in one
+    // transaction; the stored original is deleted only once that has committed.
     @DeleteMapping("/extractions/{runId}")
     public ResponseEntity<Void> deleteExtraction(@PathVariable UUID runId) {
-        var entity = extractionRepo.findByRunId(runId);
-        if (entity.isEmpty()) {
+        UUID fileId = tx.execute(status -> {
+            var entity = extractionRepo.findByRunId(runId).orElse(null);
+            var run = runRepo.findById(runId).orElse(null);
+            if (entity == null || run == null) return null;
+
+            // Also update the run status to reflect deletion
+            runRepo.finish(runId, RunStatus.FAILED, Instant.now(), "Extraction manually deleted", run.getMetricsJson());
+
+            extractionRepo.deleteById(entity.getId());
+            tables.deleteCurrent(runId);
+            fieldIndex.remove(runId);
+            analytics.apply(entity.getDocumentType(), entity.getCreatedAt(), RollupDelta.ofDocument(
+                    JsonUtil.read(entity.getResultJson(), ExtractionResult.class), entity.isFallback(), -1));
+            return run.getFileId();
+        });
+        if (fileId == null) {
             return ResponseEntity.notFound().build();
         }
 
-        // Also update the run status to reflect deletion
-        var run = runRepo.findById(runId);
-        if (run.isPresent()) {
-            run.get().setStatus(RunStatus.FAILED);
-            run.get().setError("Extraction manually deleted");
-            runRepo.save(run.get());
-        }
-
-        extractionRepo.deleteById(entity.get().getId());
+        duplicates.removed(runId);
+        // the original only existed to produce this extraction
+        fileRepo.findById(fileId).ifPresent(storage::delete);
         return ResponseEntity.ok().build();
     }
 
-    // Helper method to calculate average confidence
-    private Double calculateAverageConfidence(ExtractionResult r) {
-        if (r == null || r.pages() == null) return null;
-
-        return r.pages().stream()
-                .filter(Objects::nonNull)
-                .flatMap(p -> p.fields() == null ? Stream.empty() : p.fields().stream())
-                .map(com.task.hwai.model.ExtractionResult.Field::confidence)
-                .filter(Objects::nonNull)
-                .mapToDouble(Double::doubleValue)
-                .average()
-                .orElse(0.0);
+    private static RunMetrics metricsOf(com.task.hwai.entity.RunEntity run) {
+        if (run == null || run.getMetricsJson() == null) return null;
+        try {
+            return JsonUtil.read(run.getMetricsJson(), RunMetrics.class);
+        } catch (Exception e) {
+            return null;
+        }
     }
 
     public record ExportReq(UUID runId, String format) {}
 
+    public record PatchResult(
+            UUID runId,
+            Long version,
+            Double avgConfidence,
+            int fieldsChanged
+    ) {}
+
     public record ExtractionSummary(
             UUID runId,
             String documentType,
@@ -252,6 +385,26 @@ public class RunController {
             }
         }
 
+        static com.fasterxml.jackson.databind.node.ObjectNode readTree(String s) {
+            try {
+                return (com.fasterxml.jackson.databind.node.ObjectNode) M.readTree(s);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        static <T> T treeToValue(com.fasterxml.jackson.databind.JsonNode n, Class<T> t) {
+            try {
+                return M.treeToValue(n, t);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        static com.fasterxml.jackson.databind.JsonNode valueToTree(Object value) {
+            return M.valueToTree(value);
+        }
+
         static String writeValueAsString(Object obj) {
             try {
                 return M.writeValueAsString(obj);
@@ -262,6 +415,107 @@ public class RunController {
     }
 
 
+    // applies field edits in place on the stored JSON tree (snake_case keys, as persisted);
+    // "set" updates the first field of the name on the page, "remove" deletes all of them
+    static class PatchUtil {
+        record FieldKey(int page, String name) {}
+
+        static String eTag(Long version) {
+            return "\"" + (version == null ? 0 : version) + "\"";
+        }
+
+        static Long parseETag(String ifMatch) {
+            if (ifMatch == null || ifMatch.isBlank()) return null;
+            try {
+                return Long.valueOf(ifMatch.replace("W/", "").replace("\"", "").trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        static ConfidenceStats apply(com.fasterxml.jackson.databind.node.ObjectNode root,
+                                     ExtractionPatch.FieldEdit edit, ConfidenceStats stats, RollupDelta delta) {
+            if (edit == null || edit.field() == null || edit.field().isBlank()) {
+                throw new IllegalArgumentException("edit must name a field");
+            }
+            var page = findPage(root, edit.page());
+            if (page == null) {
+                throw new IllegalArgumentException("unknown page " + edit.page());
+            }
+            var fields = page.withArray("fields");
+            int idx = indexOf(fields, edit.field());
+
+            String op = edit.op() == null ? "set" : edit.op();
+            switch (op) {
+                case "remove" -> {
+                    // every field of that name on the page goes, so repeated fields don't need an index
+                    for (int i = fields.size() - 1; i >= 0; i--) {
+                        if (!edit.field().equals(fields.get(i).path("name").asText(null))) continue;
+                        delta.addField(confidenceOf(fields.get(i)), -1);
+                        stats = stats.minus(confidenceOf(fields.get(i)));
+                        fields.remove(i);
+                    }
+                    return stats;
+                }
+                case "set" -> {
+                    com.fasterxml.jackson.databind.node.ObjectNode field;
+                    if (idx >= 0) {
+                        field = (com.fasterxml.jackson.databind.node.ObjectNode) fields.get(idx);
+                    } else {
+                        field = fields.addObject();
+                        field.put("name", edit.field());
+                    }
+                    field.set("value", JsonUtil.valueToTree(edit.value()));
+                    if (edit.confidence() != null) {
+                        delta.addField(confidenceOf(field), -1);
+                        delta.addField(edit.confidence(), 1);
+                        stats = stats.minus(confidenceOf(field)).plus(edit.confidence());
+                        field.put("confidence", edit.confidence());
+                    }
+                    return stats;
+                }
+                default -> throw new IllegalArgumentException("unsupported op " + op);
+            }
+        }
+
+        static List<ExtractionResult.Field> fieldsNamed(com.fasterxml.jackson.databind.node.ObjectNode root,
+                                                        int pageNo, String name) {
+            var page = findPage(root, pageNo);
+            var out = new java.util.ArrayList<ExtractionResult.Field>();
+            if (page == null || !page.path("fields").isArray()) return out;
+            for (var f : page.get("fields")) {
+                if (name.equals(f.path("name").asText(null))) {
+                    out.add(JsonUtil.treeToValue(f, ExtractionResult.Field.class));
+                }
+            }
+            return out;
+        }
+
+        private static com.fasterxml.jackson.databind.node.ObjectNode findPage(
+                com.fasterxml.jackson.databind.node.ObjectNode root, int pageNo) {
+            var pages = root.get("pages");
+            if (pages == null || !pages.isArray()) return null;
+            for (var p : pages) {
+                if (p.isObject() && p.path("page").asInt(1) == pageNo) {
+                    return (com.fasterxml.jackson.databind.node.ObjectNode) p;
+                }
+            }
+            return null;
+        }
+
+        private static int indexOf(com.fasterxml.jackson.databind.node.ArrayNode fields, String name) {
+            for (int i = 0; i < fields.size(); i++) {
+                if (name.equals(fields.get(i).path("name").asText(null))) return i;
+            }
+            return -1;
+        }
+
+        private static Double confidenceOf(com.fasterxml.jackson.databind.JsonNode field) {
+            var c = field.get("confidence");
+            return c == null || !c.isNumber() ? null : c.asDouble();
+        }
+    }
+
     static class CsvUtil {
         static String fromExtractionJson(String json) {
             var M = new com.fasterxml.jackson.databind.ObjectMapper();
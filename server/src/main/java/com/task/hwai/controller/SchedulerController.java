@@ -0,0 +1,38 @@
+package com.task.hwai.controller;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.task.hwai.service.RunScheduler;
+
+@RestController
+@RequestMapping("/v1/scheduler")
+@CrossOrigin(origins = "*")
+public class SchedulerController {
+    private final RunScheduler scheduler;
+
+    public SchedulerController(RunScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    // Queued and running runs per client and priority class, with the p95 queue wait of each
+    @GetMapping
+    public ResponseEntity<SchedulerView> get() {
+        var flows = scheduler.snapshot();
+        int running = flows.stream().mapToInt(RunScheduler.FlowState::running).sum();
+        int queued = flows.stream().mapToInt(RunScheduler.FlowState::queued).sum();
+        return ResponseEntity.ok(new SchedulerView(scheduler.workers(), running, queued, flows));
+    }
+
+    public record SchedulerView(
+            int workers,
+            int running,
+            int queued,
+            List<RunScheduler.FlowState> flows
+    ) {}
+}
@@ -0,0 +1,57 @@
+package com.task.hwai.controller;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.task.hwai.service.FieldIndexService;
+
+@RestController
+@RequestMapping("/v1")
+@CrossOrigin(origins = "*")
+public class SearchController {
+    private static final int MAX_LIMIT = 1000;
+
+    private final FieldIndexService fieldIndex;
+
+    public SearchController(FieldIndexService fieldIndex) {
+        this.fieldIndex = fieldIndex;
+    }
+
+    // e.g. /v1/search?field=invoice_number&value=INV-001 or /v1/search?field=date&maxConfidence=0.5
+    @GetMapping("/search")
+    public ResponseEntity<List<SearchHit>> search(
+            @RequestParam(name = "field", required = false) String field,
+            @RequestParam(name = "value", required = false) String value,
+            @RequestParam(name = "documentType", required = false) String documentType,
+            @RequestParam(name = "minConfidence", required = false) Double minConfidence,
+            @RequestParam(name = "maxConfidence", required = false) Double maxConfidence,
+            @RequestParam(name = "limit", defaultValue = "100") int limit) {
+
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<SearchHit> hits = fieldIndex.search(field, value, documentType, minConfidence, maxConfidence, limit)
+                .stream()
+                .map(f -> new SearchHit(f.getRunId(), f.getDocumentType(), f.getPage(),
+                        f.getName(), f.getValue(), f.getConfidence()))
+                .toList();
+        return ResponseEntity.ok(hits);
+    }
+
+    public record SearchHit(
+            UUID runId,
+            String documentType,
+            int page,
+            String field,
+            String value,
+            Double confidence
+    ) {}
+}
@@ -0,0 +1,90 @@
+package com.task.hwai.controller;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.task.hwai.entity.ExtractionTableEntity;
+import com.task.hwai.model.TableRows;
+import com.task.hwai.service.TableStore;
+
+@RestController
+@RequestMapping("/v1/extractions/{runId}/tables")
+@CrossOrigin(origins = "*")
+public class TableController {
+    private final TableStore tables;
+
+    @Value("${app.tables.maxPageRows:5000}")
+    private int maxPageRows;
+
+    public TableController(TableStore tables) {
+        this.tables = tables;
+    }
+
+    // Tables of the run's current extraction, without their rows
+    @GetMapping
+    public ResponseEntity<List<TableView>> list(@PathVariable UUID runId) {
+        return ResponseEntity.ok(tables.tables(runId).stream().map(TableView::of).toList());
+    }
+
+    // One page of rows; only the chunks holding them are read. Follow nextOffset until it is null.
+    @GetMapping("/{tableId}/rows")
+    public ResponseEntity<RowPage> rows(@PathVariable UUID runId, @PathVariable long tableId,
+                                        @RequestParam(name = "offset", defaultValue = "0") int offset,
+                                        @RequestParam(name = "limit", defaultValue = "500") int limit) {
+        if (offset < 0 || limit < 1 || limit > maxPageRows) return ResponseEntity.badRequest().build();
+        var table = tables.table(runId, tableId).orElse(null);
+        if (table == null) return ResponseEntity.notFound().build();
+
+        TableRows rows = tables.rows(table, offset, limit);
+        int end = offset + rows.size();
+        return ResponseEntity.ok(new RowPage(table.getId(), table.getName(), rows.columns(), table.getRowCount(),
+                offset, rows.size(), end < table.getRowCount() ? end : null, rows));
+    }
+
+    // Every row as newline-delimited JSON, streamed chunk by chunk
+    @GetMapping(value = "/{tableId}/rows.ndjson", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> stream(@PathVariable UUID runId, @PathVariable long tableId) {
+        var table = tables.table(runId, tableId).orElse(null);
+        if (table == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(out -> tables.stream(table, out));
+    }
+
+    public record TableView(
+            long tableId,
+            int page,
+            int position,
+            String name,
+            List<String> columns,
+            int rowCount,
+            Double confidence
+    ) {
+        static TableView of(ExtractionTableEntity t) {
+            return new TableView(t.getId(), t.getPage(), t.getPosition(), t.getName(), TableStore.columns(t),
+                    t.getRowCount(), t.getConfidence());
+        }
+    }
+
+    public record RowPage(
+            long tableId,
+            String name,
+            List<String> columns,
+            int rowCount,
+            int offset,
+            int returned,
+            Integer nextOffset,
+            TableRows rows
+    ) {}
+}
@@ -1,12 +1,21 @@
 package com.task.hwai.controller;
 
+import com.task.hwai.config.AdmissionInterceptor;
 import com.task.hwai.entity.FileEntity;
 import com.task.hwai.entity.RunEntity;
 import com.task.hwai.model.*;
 import com.task.hwai.repo.FileRepo;
 import com.task.hwai.repo.RunRepo;
+import com.task.hwai.service.DuplicateService;
+import com.task.hwai.service.OcrTool;
+import com.task.hwai.service.PipelineMetrics;
+import com.task.hwai.service.RunScheduler;
 import com.task.hwai.service.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -17,33 +26,77 @@ import java.util.UUID;
 @RequestMapping("/v1")
 @CrossOrigin(origins = "*")
 public class UploadController {
+    private static final Logger log = LoggerFactory.getLogger(UploadController.class);
 
     private final StorageService storage;
     private final FileRepo fileRepo;
     private final RunRepo runRepo;
+    private final PipelineMetrics metrics;
+    private final DuplicateService duplicates;
+    private final RunScheduler scheduler;
+    private final OcrTool ocr;
 
-    public UploadController(StorageService storage, FileRepo fileRepo, RunRepo runRepo) {
-        this.storage = storage; this.fileRepo = fileRepo; this.runRepo = runRepo;
+    @Value("${app.scheduler.defaultPriority:interactive}")
+    private String defaultPriority = "interactive";
+
+    public UploadController(StorageService storage, FileRepo fileRepo, RunRepo runRepo, PipelineMetrics metrics,
+                            DuplicateService duplicates, RunScheduler scheduler, OcrTool ocr) {
+        this.storage = storage; this.fileRepo = fileRepo; this.runRepo = runRepo; this.metrics = metrics;
+        this.duplicates = duplicates; this.scheduler = scheduler; this.ocr = ocr;
     }
 
+    // priority (form field or query parameter): "interactive" for someone waiting on the result, "batch" for bulk loads
     @PostMapping(value="/uploads", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public UploadResponse upload(@RequestPart("file") MultipartFile file) throws Exception {
+    public ResponseEntity<UploadResponse> upload(@RequestPart("file") MultipartFile file,
+                                 @RequestParam(name = "priority", required = false) String priority,
+                                 @RequestAttribute(name = AdmissionInterceptor.CLIENT_ATTRIBUTE, required = false) String clientId) throws Exception {
+        RunPriority runPriority;
+        try {
+            runPriority = RunPriority.parse(priority, RunPriority.parse(defaultPriority, RunPriority.INTERACTIVE));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
         var fe = new FileEntity();
         fe.setName(file.getOriginalFilename());
         fe.setMimeType(file.getContentType());
         fe.setSize(file.getSize());
 
         UUID fileId = fe.getFileId();
-        Path saved = storage.save(file, fileId.toString());
-        fe.setStorageUri(saved.toString());
+        try (var saved = storage.save(file, fileId.toString())) {
+            fe.setStorageUri(saved.uri());
+            var hashes = duplicates.hash(saved.path());
+            if (hashes != null) {
+                fe.setPages(hashes.pages());
+                fe.setPageHashes(hashes.hashes());
+            } else {
+                // dedup off or the hash failed: the scheduler still costs the run by its pages
+                fe.setPages(pageCount(saved.path()));
+            }
+        }
         fileRepo.save(fe);
 
         var run = new RunEntity();
         run.setFileId(fileId);
+        run.setClientId(clientId);
+        run.setPriority(runPriority);
         run.setStatus(RunStatus.QUEUED);
         runRepo.save(run);
+        metrics.upload(file.getSize());
+        scheduler.submit(run, fe.getPages());
+
+        var match = duplicates.find(fe);
+        return ResponseEntity.ok(match == null
+                ? new UploadResponse(fileId, run.getRunId())
+                : new UploadResponse(fileId, run.getRunId(), match.runId(), match.distance()));
+    }
 
-        // For MVP we run inline; in prod enqueue to SQS/worker
-        return new UploadResponse(fileId, run.getRunId());
+    private Integer pageCount(Path path) {
+        try {
+            return ocr.pageCount(path);
+        } catch (Exception e) {
+            log.debug("page count failed for {}: {}", path.getFileName(), e.toString());
+            return null;
+        }
     }
 }
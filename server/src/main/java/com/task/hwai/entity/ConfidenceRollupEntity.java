@@ -0,0 +1,98 @@
+package com.task.hwai.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Running confidence aggregates for one document type and one day. Updated in place as
+ * extractions are written, edited and deleted so analytics never scan {@code extractions}.
+ */
+@Entity
+@Table(name="confidence_rollups", uniqueConstraints =
+        @UniqueConstraint(name="uk_confidence_rollups_type_bucket", columnNames={"documentType", "bucketStart"}))
+public class ConfidenceRollupEntity {
+    @Id
+    @GeneratedValue(strategy= GenerationType.IDENTITY) private Long id;
+    private String documentType;
+    private Instant bucketStart;
+    private long documents;
+    private long fallbacks;
+    private double avgConfidenceSum;
+    private long fieldCount;
+    private double fieldConfidenceSum;
+    @Convert(converter=LongArrayConverter.class)
+    @Column(length=1000) private long[] histogram;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDocumentType() {
+        return documentType;
+    }
+
+    public void setDocumentType(String documentType) {
+        this.documentType = documentType;
+    }
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(Instant bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getDocuments() {
+        return documents;
+    }
+
+    public void setDocuments(long documents) {
+        this.documents = documents;
+    }
+
+    public long getFallbacks() {
+        return fallbacks;
+    }
+
+    public void setFallbacks(long fallbacks) {
+        this.fallbacks = fallbacks;
+    }
+
+    public double getAvgConfidenceSum() {
+        return avgConfidenceSum;
+    }
+
+    public void setAvgConfidenceSum(double avgConfidenceSum) {
+        this.avgConfidenceSum = avgConfidenceSum;
+    }
+
+    public long getFieldCount() {
+        return fieldCount;
+    }
+
+    public void setFieldCount(long fieldCount) {
+        this.fieldCount = fieldCount;
+    }
+
+    public double getFieldConfidenceSum() {
+        return fieldConfidenceSum;
+    }
+
+    public void setFieldConfidenceSum(double fieldConfidenceSum) {
+        this.fieldConfidenceSum = fieldConfidenceSum;
+    }
+
+    public long[] getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(long[] histogram) {
+        this.histogram = histogram;
+    }
+}
@@ -1,12 +1,14 @@
 package com.task.hwai.entity;
 
+import com.task.hwai.model.ConfidenceStats;
 import jakarta.persistence.*;
 
 import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name="extractions")
+@Table(name="extractions", uniqueConstraints =
+        @UniqueConstraint(name="uk_extractions_run", columnNames="runId"))
 public class ExtractionEntity {
     @Id
     @GeneratedValue(strategy= GenerationType.IDENTITY) private Long id;
@@ -14,6 +16,10 @@ public class ExtractionEntity {
     private String documentType;
     @Column(length=65535) private String resultJson;
     private Double avgConfidence;
+    private Double confidenceSum;
+    private Integer confidenceCount;
+    private boolean fallback;
+    @Version private Long version;
     private Instant createdAt = Instant.now();
 
     public Long getId() {
@@ -56,6 +62,50 @@ public class ExtractionEntity {
         this.avgConfidence = avgConfidence;
     }
 
+    public Double getConfidenceSum() {
+        return confidenceSum;
+    }
+
+    public void setConfidenceSum(Double confidenceSum) {
+        this.confidenceSum = confidenceSum;
+    }
+
+    public Integer getConfidenceCount() {
+        return confidenceCount;
+    }
+
+    public void setConfidenceCount(Integer confidenceCount) {
+        this.confidenceCount = confidenceCount;
+    }
+
+    /** Stored sum/count, or {@code null} for rows written before they were tracked. */
+    public ConfidenceStats getConfidenceStats() {
+        if (confidenceSum == null || confidenceCount == null) return null;
+        return new ConfidenceStats(confidenceSum, confidenceCount);
+    }
+
+    public void setConfidenceStats(ConfidenceStats stats) {
+        this.confidenceSum = stats.sum();
+        this.confidenceCount = stats.count();
+        this.avgConfidence = stats.average();
+    }
+
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    public void setFallback(boolean fallback) {
+        this.fallback = fallback;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,94 @@
+package com.task.hwai.entity;
+
+import jakarta.persistence.*;
+
+import java.util.UUID;
+
+/**
+ * One row per extracted field, kept in sync with {@link ExtractionEntity#getResultJson()}
+ * so field/value/confidence lookups do not need to parse every stored document.
+ */
+@Entity
+@Table(name="extraction_fields", indexes = {
+        @Index(name="idx_extraction_fields_run", columnList="runId"),
+        @Index(name="idx_extraction_fields_name_value", columnList="name,valueNorm"),
+        @Index(name="idx_extraction_fields_name_confidence", columnList="name,confidence")
+})
+public class ExtractionFieldEntity {
+    @Id
+    // sequence rather than identity so saveAll() can batch the inserts
+    @GeneratedValue(strategy= GenerationType.SEQUENCE, generator="extraction_fields_seq")
+    @SequenceGenerator(name="extraction_fields_seq", sequenceName="extraction_fields_seq", allocationSize=50)
+    private Long id;
+    private UUID runId;
+    private String documentType;
+    private int page;
+    private String name;
+    @Column(name="field_value", length=1000) private String value;
+    private String valueNorm;
+    private Double confidence;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getRunId() {
+        return runId;
+    }
+
+    public void setRunId(UUID runId) {
+        this.runId = runId;
+    }
+
+    public String getDocumentType() {
+        return documentType;
+    }
+
+    public void setDocumentType(String documentType) {
+        this.documentType = documentType;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public String getValueNorm() {
+        return valueNorm;
+    }
+
+    public void setValueNorm(String valueNorm) {
+        this.valueNorm = valueNorm;
+    }
+
+    public Double getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(Double confidence) {
+        this.confidence = confidence;
+    }
+}
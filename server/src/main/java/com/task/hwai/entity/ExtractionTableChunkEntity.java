@@ -0,0 +1,59 @@
+package com.task.hwai.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Rows {@code [firstRow, firstRow + rowCount)} of an extracted table, column-oriented: {@code data}
+ * is a JSON array holding one array of values per column of the table, in column order.
+ */
+@Entity
+@Table(name="extraction_table_chunks", uniqueConstraints =
+        @UniqueConstraint(name="uk_extraction_table_chunks_row", columnNames={"tableId", "firstRow"}))
+public class ExtractionTableChunkEntity {
+    @Id
+    @GeneratedValue(strategy= GenerationType.IDENTITY) private Long id;
+    private long tableId;
+    private int firstRow;
+    private int rowCount;
+    @Column(length=1000000) private String data;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getTableId() {
+        return tableId;
+    }
+
+    public void setTableId(long tableId) {
+        this.tableId = tableId;
+    }
+
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    public void setFirstRow(int firstRow) {
+        this.firstRow = firstRow;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public String getData() {
+        return data;
+    }
+
+    public void setData(String data) {
+        this.data = data;
+    }
+}
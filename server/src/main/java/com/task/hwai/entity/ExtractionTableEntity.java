@@ -0,0 +1,107 @@
+package com.task.hwai.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A table of a run's extraction, stored apart from {@code resultJson} which only keeps a stub with
+ * this row's id. The rows live in {@link ExtractionTableChunkEntity}s. {@code archivedVersion} is
+ * null for the current extraction and the version number once a reprocessing job archived it.
+ */
+@Entity
+@Table(name="extraction_tables", indexes = @Index(name="idx_extraction_tables_run", columnList="runId,archivedVersion"))
+public class ExtractionTableEntity {
+    @Id
+    @GeneratedValue(strategy= GenerationType.IDENTITY) private Long id;
+    private UUID runId;
+    private int page;
+    private int position;
+    private String name;
+    @Column(length=65535) private String columnsJson;
+    private int rowCount;
+    private Double confidence;
+    private Integer archivedVersion;
+    private Instant createdAt = Instant.now();
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getRunId() {
+        return runId;
+    }
+
+    public void setRunId(UUID runId) {
+        this.runId = runId;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getColumnsJson() {
+        return columnsJson;
+    }
+
+    public void setColumnsJson(String columnsJson) {
+        this.columnsJson = columnsJson;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public Double getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(Double confidence) {
+        this.confidence = confidence;
+    }
+
+    public Integer getArchivedVersion() {
+        return archivedVersion;
+    }
+
+    public void setArchivedVersion(Integer archivedVersion) {
+        this.archivedVersion = archivedVersion;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,127 @@
+package com.task.hwai.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** An extraction as it was before a reprocessing job replaced it, with the run metrics that produced it. */
+@Entity
+@Table(name="extraction_versions", uniqueConstraints =
+        @UniqueConstraint(name="uk_extraction_versions_run_version", columnNames={"runId", "version"}))
+public class ExtractionVersionEntity {
+    @Id
+    @GeneratedValue(strategy= GenerationType.IDENTITY) private Long id;
+    private UUID runId;
+    private int version;
+    private UUID jobId;
+    private String documentType;
+    @Column(length=65535) private String resultJson;
+    private Double avgConfidence;
+    private boolean fallback;
+    @Column(length=1000000) private String metricsJson;
+    private Instant createdAt;
+    private Instant archivedAt = Instant.now();
+
+    public static ExtractionVersionEntity of(ExtractionEntity ex, int version, UUID jobId, String metricsJson) {
+        var v = new ExtractionVersionEntity();
+        v.setRunId(ex.getRunId());
+        v.setVersion(version);
+        v.setJobId(jobId);
+        v.setDocumentType(ex.getDocumentType());
+        v.setResultJson(ex.getResultJson());
+        v.setAvgConfidence(ex.getAvgConfidence());
+        v.setFallback(ex.isFallback());
+        v.setMetricsJson(metricsJson);
+        v.setCreatedAt(ex.getCreatedAt());
+        return v;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getRunId() {
+        return runId;
+    }
+
+    public void setRunId(UUID runId) {
+        this.runId = runId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public UUID getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(UUID jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getDocumentType() {
+        return documentType;
+    }
+
+    public void setDocumentType(String documentType) {
+        this.documentType = documentType;
+    }
+
+    public String getResultJson() {
+        return resultJson;
+    }
+
+    public void setResultJson(String resultJson) {
+        this.resultJson = resultJson;
+    }
+
+    public Double getAvgConfidence() {
+        return avgConfidence;
+    }
+
+    public void setAvgConfidence(Double avgConfidence) {
+        this.avgConfidence = avgConfidence;
+    }
+
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    public void setFallback(boolean fallback) {
+        this.fallback = fallback;
+    }
+
+    public String getMetricsJson() {
+        return metricsJson;
+    }
+
+    public void setMetricsJson(String metricsJson) {
+        this.metricsJson = metricsJson;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(Instant archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+}
@@ -1,20 +1,30 @@
 package com.task.hwai.entity;
 
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
 import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name="files")
+@Table(name="files", indexes = @Index(name="idx_files_purged_accessed", columnList="purgedAt,lastAccessedAt"))
 public class FileEntity {
     @Id
     private UUID fileId = UUID.randomUUID();
     private String name; private String mimeType; private long size;
     private String storageUri; private Integer pages;
+    // perceptual hash per page, see PerceptualHash
+    @Convert(converter=LongArrayConverter.class)
+    @Column(length=4000) private long[] pageHashes;
     private Instant createdAt = Instant.now();
+    // last time the original was read for processing; eviction under the disk quota goes oldest first
+    private Instant lastAccessedAt;
+    // set once retention or the quota deleted the original; the row and its results stay
+    private Instant purgedAt;
 
     public UUID getFileId() {
         return fileId;
@@ -64,6 +74,14 @@ public class FileEntity {
         this.pages = pages;
     }
 
+    public long[] getPageHashes() {
+        return pageHashes;
+    }
+
+    public void setPageHashes(long[] pageHashes) {
+        this.pageHashes = pageHashes;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
@@ -72,4 +90,20 @@ public class FileEntity {
         this.createdAt = createdAt;
     }
     // getters/setters
-}
\ No newline at end of file
+
+    public Instant getLastAccessedAt() {
+        return lastAccessedAt;
+    }
+
+    public void setLastAccessedAt(Instant lastAccessedAt) {
+        this.lastAccessedAt = lastAccessedAt;
+    }
+
+    public Instant getPurgedAt() {
+        return purgedAt;
+    }
+
+    public void setPurgedAt(Instant purgedAt) {
+        this.purgedAt = purgedAt;
+    }
+}
@@ -0,0 +1,31 @@
+package com.task.hwai.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/** Stores small fixed-size counters (e.g. histogram bins) as a comma separated string. */
+@Converter
+public class LongArrayConverter implements AttributeConverter<long[], String> {
+
+    @Override
+    public String convertToDatabaseColumn(long[] values) {
+        if (values == null) return null;
+        var sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(values[i]);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public long[] convertToEntityAttribute(String s) {
+        if (s == null || s.isBlank()) return new long[0];
+        String[] parts = s.split(",");
+        long[] values = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Long.parseLong(parts[i].trim());
+        }
+        return values;
+    }
+}
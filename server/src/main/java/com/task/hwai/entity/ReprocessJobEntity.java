@@ -0,0 +1,157 @@
+package com.task.hwai.entity;
+
+import com.task.hwai.model.JobStatus;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name="reprocess_jobs")
+public class ReprocessJobEntity {
+    @Id
+    private UUID jobId = UUID.randomUUID();
+    @Enumerated(EnumType.STRING) @Column(length=16) private JobStatus status = JobStatus.QUEUED;
+    @Column(name="from_ts") private Instant from;
+    @Column(name="to_ts") private Instant to;
+    private String documentType;
+    private Double maxConfidence;
+    private int parallelism;
+    private int ratePerMinute;
+    private int total;
+    private int succeeded;
+    private int failed;
+    private int skipped;
+    @Column(length=4000) private String lastError;
+    private Instant createdAt = Instant.now();
+    private Instant startedAt;
+    private Instant completedAt;
+
+    public UUID getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(UUID jobId) {
+        this.jobId = jobId;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public void setFrom(Instant from) {
+        this.from = from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public void setTo(Instant to) {
+        this.to = to;
+    }
+
+    public String getDocumentType() {
+        return documentType;
+    }
+
+    public void setDocumentType(String documentType) {
+        this.documentType = documentType;
+    }
+
+    public Double getMaxConfidence() {
+        return maxConfidence;
+    }
+
+    public void setMaxConfidence(Double maxConfidence) {
+        this.maxConfidence = maxConfidence;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getRatePerMinute() {
+        return ratePerMinute;
+    }
+
+    public void setRatePerMinute(int ratePerMinute) {
+        this.ratePerMinute = ratePerMinute;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(int skipped) {
+        this.skipped = skipped;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+}
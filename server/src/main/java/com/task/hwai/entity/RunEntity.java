@@ -1,5 +1,6 @@
 package com.task.hwai.entity;
 
+import com.task.hwai.model.RunPriority;
 import com.task.hwai.model.RunStatus;
 import jakarta.persistence.*;
 
@@ -7,15 +8,28 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name="runs")
+@Table(name="runs", indexes = {
+        @Index(name="idx_runs_status", columnList="status"),
+        @Index(name="idx_runs_file", columnList="fileId"),
+        @Index(name="idx_runs_client_status", columnList="clientId,status"),
+        @Index(name="idx_runs_status_queued", columnList="status,queuedAt"),
+        @Index(name="idx_runs_status_lease", columnList="status,leaseUntil")
+})
 public class RunEntity {
     @Id
     private UUID runId = UUID.randomUUID();
     private UUID fileId;
-    @Enumerated(EnumType.STRING) private RunStatus status = RunStatus.QUEUED;
+    @Column(length=128) private String clientId;
+    @Enumerated(EnumType.STRING) @Column(length=32) private RunStatus status = RunStatus.QUEUED;
+    // null on runs from before scheduling classes existed; read as INTERACTIVE
+    @Enumerated(EnumType.STRING) @Column(length=16) private RunPriority priority = RunPriority.INTERACTIVE;
+    private Instant queuedAt = Instant.now();
     private Instant startedAt; private Instant completedAt;
     @Column(length=4000) private String error;
-    @Column(length=4000) private String metricsJson;
+    @Column(length=1000000) private String metricsJson;
+    // instance processing the run and until when; renewed while it works, see RunScheduler
+    @Column(length=64) private String leaseOwner;
+    private Instant leaseUntil;
 
     public UUID getRunId() {
         return runId;
@@ -33,6 +47,14 @@ public class RunEntity {
         this.fileId = fileId;
     }
 
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
     public RunStatus getStatus() {
         return status;
     }
@@ -41,6 +63,22 @@ public class RunEntity {
         this.status = status;
     }
 
+    public RunPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(RunPriority priority) {
+        this.priority = priority;
+    }
+
+    public Instant getQueuedAt() {
+        return queuedAt;
+    }
+
+    public void setQueuedAt(Instant queuedAt) {
+        this.queuedAt = queuedAt;
+    }
+
     public Instant getStartedAt() {
         return startedAt;
     }
@@ -72,5 +110,21 @@ public class RunEntity {
     public void setMetricsJson(String metricsJson) {
         this.metricsJson = metricsJson;
     }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public Instant getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(Instant leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
     // getters/setters
 }
\ No newline at end of file
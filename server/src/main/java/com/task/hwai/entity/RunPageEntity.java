@@ -0,0 +1,91 @@
+package com.task.hwai.entity;
+
+import com.task.hwai.model.PageStatus;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Checkpoint for one page of a run in progress. A retried or restarted run skips OCR for pages that
+ * have {@code ocrJson} and the LLM for pages that are STRUCTURED or FALLBACK. Rows are removed
+ * once the merged extraction is stored.
+ */
+@Entity
+@Table(name="run_pages", uniqueConstraints =
+        @UniqueConstraint(name="uk_run_pages_run_page", columnNames={"runId", "page"}))
+public class RunPageEntity {
+    @Id
+    @GeneratedValue(strategy= GenerationType.IDENTITY) private Long id;
+    private UUID runId;
+    private int page;
+    @Enumerated(EnumType.STRING) @Column(length=16) private PageStatus status;
+    @Column(length=1000000) private String ocrJson;
+    @Column(length=1000000) private String resultJson;
+    @Column(length=1000) private String warning;
+    private Instant updatedAt = Instant.now();
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getRunId() {
+        return runId;
+    }
+
+    public void setRunId(UUID runId) {
+        this.runId = runId;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public PageStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(PageStatus status) {
+        this.status = status;
+    }
+
+    public String getOcrJson() {
+        return ocrJson;
+    }
+
+    public void setOcrJson(String ocrJson) {
+        this.ocrJson = ocrJson;
+    }
+
+    public String getResultJson() {
+        return resultJson;
+    }
+
+    public void setResultJson(String resultJson) {
+        this.resultJson = resultJson;
+    }
+
+    public String getWarning() {
+        return warning;
+    }
+
+    public void setWarning(String warning) {
+        this.warning = warning;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,38 @@
+package com.task.hwai.model;
+
+/**
+ * Running sum/count of field confidences. Kept on the extraction row so edits can adjust the
+ * average without walking the whole document again.
+ */
+public record ConfidenceStats(double sum, int count) {
+
+    public static final ConfidenceStats EMPTY = new ConfidenceStats(0.0, 0);
+
+    public static ConfidenceStats of(ExtractionResult r) {
+        if (r == null || r.pages() == null) return EMPTY;
+        double sum = 0.0;
+        int count = 0;
+        for (var page : r.pages()) {
+            if (page == null || page.fields() == null) continue;
+            for (var field : page.fields()) {
+                if (field == null || field.confidence() == null) continue;
+                sum += field.confidence();
+                count++;
+            }
+        }
+        return new ConfidenceStats(sum, count);
+    }
+
+    public ConfidenceStats plus(Double confidence) {
+        return confidence == null ? this : new ConfidenceStats(sum + confidence, count + 1);
+    }
+
+    public ConfidenceStats minus(Double confidence) {
+        return confidence == null ? this : new ConfidenceStats(sum - confidence, Math.max(0, count - 1));
+    }
+
+    /** Same semantics as the stream-based averages: 0.0 when there is nothing to average. */
+    public double average() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+}
@@ -0,0 +1,26 @@
+package com.task.hwai.model;
+
+import java.util.List;
+
+/**
+ * Field-level edits against a stored extraction. {@code version} must match the stored row
+ * (it is also accepted through {@code If-Match}); {@code documentType} is optional.
+ */
+public record ExtractionPatch(
+        Long version,
+        String documentType,
+        List<FieldEdit> edits
+) {
+
+    /**
+     * {@code op} is {@code "set"} (update the first field named {@code field} on the page, or
+     * append one) or {@code "remove"} (delete every field of that name on the page).
+     */
+    public record FieldEdit(
+            String op,
+            int page,
+            String field,
+            Object value,
+            Double confidence
+    ) {}
+}
@@ -1,5 +1,6 @@
 package com.task.hwai.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 import java.util.UUID;
@@ -49,14 +50,37 @@ public record ExtractionResult(
             List<Double> bbox
     ) {}
 
+    /**
+     * A table as the model produced it ({@code rows} set), or as stored: {@code table_id},
+     * {@code columns} and {@code row_count} set and {@code rows} left out unless the table is small
+     * enough to inline. Rows of a stored table are read from {@code /v1/extractions/{run}/tables/{id}/rows}.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public record Table(
+            @JsonProperty("table_id")
+            Long tableId,
+
             @JsonProperty("name")
             String name,
 
+            @JsonProperty("columns")
+            List<String> columns,
+
+            @JsonProperty("row_count")
+            Integer rowCount,
+
             @JsonProperty("rows")
-            List<java.util.Map<String, Object>> rows,
+            TableRows rows,
 
             @JsonProperty("confidence")
             Double confidence
-    ) {}
+    ) {
+        public Table(String name, TableRows rows, Double confidence) {
+            this(null, name, null, null, rows, confidence);
+        }
+
+        public Table withRows(TableRows rows) {
+            return new Table(tableId, name, columns, rowCount, rows, confidence);
+        }
+    }
 }
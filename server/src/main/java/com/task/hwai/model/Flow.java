@@ -0,0 +1,18 @@
+package com.task.hwai.model;
+
+/**
+ * A client's runs of one priority class: the unit the scheduler shares processing capacity
+ * between. {@code clientId} is the admission client (X-Client-Id, or the remote address).
+ */
+public record Flow(String clientId, RunPriority priority) {
+
+    /** Reprocessing jobs run as their own batch client, so a backfill never uses up a real client's caps. */
+    public static final Flow REPROCESS = new Flow("reprocess", RunPriority.BATCH);
+
+    public static final String UNKNOWN_CLIENT = "unknown";
+
+    public Flow {
+        if (clientId == null || clientId.isBlank()) clientId = UNKNOWN_CLIENT;
+        if (priority == null) priority = RunPriority.INTERACTIVE;
+    }
+}
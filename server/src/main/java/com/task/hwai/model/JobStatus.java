@@ -0,0 +1,3 @@
+package com.task.hwai.model;
+
+public enum JobStatus { QUEUED, RUNNING, COMPLETED, CANCELLED }
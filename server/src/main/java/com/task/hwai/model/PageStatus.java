@@ -0,0 +1,4 @@
+package com.task.hwai.model;
+
+/** Progress of one page of a run: OCR text stored, then either structured or given up on. */
+public enum PageStatus { OCR_DONE, STRUCTURED, FALLBACK }
@@ -0,0 +1,17 @@
+package com.task.hwai.model;
+
+import java.time.Instant;
+
+/**
+ * Which stored extractions to run again. All filters are optional: {@code from}/{@code to} bound
+ * the extraction's creation time, {@code maxConfidence} keeps extractions whose average confidence
+ * is below it. {@code parallelism} and {@code ratePerMinute} are capped by the server settings.
+ */
+public record ReprocessRequest(
+        Instant from,
+        Instant to,
+        String documentType,
+        Double maxConfidence,
+        Integer parallelism,
+        Integer ratePerMinute
+) {}
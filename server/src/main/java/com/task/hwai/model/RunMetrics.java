@@ -0,0 +1,182 @@
+package com.task.hwai.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-run breakdown stored in {@code RunEntity.metricsJson}: how long each stage took and how
+ * much work it was given, so a single slow run can be diagnosed without a tracing backend.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RunMetrics {
+
+    @JsonProperty("stages_ms")
+    private Map<String, Long> stagesMs = new LinkedHashMap<>();
+
+    @JsonProperty("total_ms")
+    private Long totalMs;
+
+    @JsonProperty("pages")
+    private int pages;
+
+    @JsonProperty("pixels")
+    private long pixels;
+
+    @JsonProperty("ocr_chars")
+    private long ocrChars;
+
+    @JsonProperty("prompt_tokens")
+    private Long promptTokens;
+
+    @JsonProperty("completion_tokens")
+    private Long completionTokens;
+
+    @JsonProperty("cache_hits")
+    private int cacheHits;
+
+    // LLM calls repeated on the same route after a transport error (timeout, 429, 5xx)
+    @JsonProperty("retries")
+    private int retries;
+
+    // near-duplicate run whose extraction was copied instead of running OCR and the LLM
+    @JsonProperty("reused_from")
+    private String reusedFrom;
+
+    // pages already structured by an earlier, failed attempt of this run
+    @JsonProperty("resumed_pages")
+    private Integer resumedPages;
+
+    // model(s) whose answers were kept
+    @JsonProperty("model")
+    private String model;
+
+    // every LLM attempt in order, with why it was routed there and how it went
+    @JsonProperty("routing")
+    private List<LlmAttempt> routing = new ArrayList<>();
+
+    public record LlmAttempt(
+            @JsonProperty("model") String model,
+            @JsonProperty("max_tokens") int maxTokens,
+            @JsonProperty("reason") String reason,
+            @JsonProperty("outcome") String outcome,
+            @JsonProperty("avg_confidence") Double avgConfidence) {}
+
+    /** Records the time since {@code startNanos} (from {@link System#nanoTime()}) under {@code stage}. */
+    public void stage(String stage, long startNanos) {
+        stagesMs.merge(stage, (System.nanoTime() - startNanos) / 1_000_000, Long::sum);
+    }
+
+    public void addTokens(long prompt, long completion) {
+        promptTokens = (promptTokens == null ? 0 : promptTokens) + prompt;
+        completionTokens = (completionTokens == null ? 0 : completionTokens) + completion;
+    }
+
+    public Map<String, Long> getStagesMs() {
+        return stagesMs;
+    }
+
+    public void setStagesMs(Map<String, Long> stagesMs) {
+        this.stagesMs = stagesMs;
+    }
+
+    public Long getTotalMs() {
+        return totalMs;
+    }
+
+    public void setTotalMs(Long totalMs) {
+        this.totalMs = totalMs;
+    }
+
+    public int getPages() {
+        return pages;
+    }
+
+    public void setPages(int pages) {
+        this.pages = pages;
+    }
+
+    public long getPixels() {
+        return pixels;
+    }
+
+    public void setPixels(long pixels) {
+        this.pixels = pixels;
+    }
+
+    public long getOcrChars() {
+        return ocrChars;
+    }
+
+    public void setOcrChars(long ocrChars) {
+        this.ocrChars = ocrChars;
+    }
+
+    public Long getPromptTokens() {
+        return promptTokens;
+    }
+
+    public void setPromptTokens(Long promptTokens) {
+        this.promptTokens = promptTokens;
+    }
+
+    public Long getCompletionTokens() {
+        return completionTokens;
+    }
+
+    public void setCompletionTokens(Long completionTokens) {
+        this.completionTokens = completionTokens;
+    }
+
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    public void setCacheHits(int cacheHits) {
+        this.cacheHits = cacheHits;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public void setRetries(int retries) {
+        this.retries = retries;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public List<LlmAttempt> getRouting() {
+        return routing;
+    }
+
+    public void setRouting(List<LlmAttempt> routing) {
+        this.routing = routing;
+    }
+
+    public String getReusedFrom() {
+        return reusedFrom;
+    }
+
+    public void setReusedFrom(String reusedFrom) {
+        this.reusedFrom = reusedFrom;
+    }
+
+    public Integer getResumedPages() {
+        return resumedPages;
+    }
+
+    public void setResumedPages(Integer resumedPages) {
+        this.resumedPages = resumedPages;
+    }
+}
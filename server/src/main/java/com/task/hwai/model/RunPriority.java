@@ -0,0 +1,14 @@
+package com.task.hwai.model;
+
+import java.util.Locale;
+
+/** Scheduling class of a run: INTERACTIVE for someone waiting in the UI, BATCH for backfills and bulk loads. */
+public enum RunPriority {
+    INTERACTIVE, BATCH;
+
+    /** Case-insensitive; {@code null} or blank gives {@code fallback}, anything else unknown is an IllegalArgumentException. */
+    public static RunPriority parse(String value, RunPriority fallback) {
+        if (value == null || value.isBlank()) return fallback;
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
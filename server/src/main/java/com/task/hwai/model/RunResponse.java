@@ -3,5 +3,6 @@ package com.task.hwai.model;
 public record RunResponse(
         RunStatus status,
         ExtractionResult result,
-        String error
-) {}
\ No newline at end of file
+        String error,
+        RunMetrics metrics
+) {}
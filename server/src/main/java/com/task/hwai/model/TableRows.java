@@ -0,0 +1,157 @@
+package com.task.hwai.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows of an extracted table, held column by column: one list of values per column instead of
+ * one map per row, so a ledger page with thousands of rows costs a few lists rather than
+ * thousands of HashMaps. On the wire it is still an array of row objects; parsing streams the
+ * tokens straight into the columns. Values are JSON scalars (String, Number, Boolean, null) or a
+ * Jackson tree for anything nested. A key missing from a row reads back as null.
+ */
+@JsonSerialize(using = TableRows.Serializer.class)
+@JsonDeserialize(using = TableRows.Deserializer.class)
+public final class TableRows {
+
+    private final List<String> columns;
+    private final Map<String, Integer> index = new HashMap<>();
+    private final List<List<Object>> values = new ArrayList<>();
+    private int size;
+
+    public TableRows(List<String> columns) {
+        this.columns = new ArrayList<>();
+        for (String c : columns) column(c);
+    }
+
+    public List<String> columns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Object get(int row, int column) {
+        return values.get(column).get(row);
+    }
+
+    /** Appends a row; {@code row} holds one value per column, in column order. */
+    public void add(Object... row) {
+        if (row.length != columns.size()) {
+            throw new IllegalArgumentException("expected " + columns.size() + " values, got " + row.length);
+        }
+        for (int c = 0; c < row.length; c++) values.get(c).add(row[c]);
+        size++;
+    }
+
+    /** Rows {@code [from, to)} as one list per column (views, not copies). */
+    public List<List<Object>> slice(int from, int to) {
+        List<List<Object>> slice = new ArrayList<>(values.size());
+        for (var column : values) slice.add(column.subList(from, to));
+        return slice;
+    }
+
+    /** Appends rows {@code [from, to)} of a slice with the same columns, e.g. a stored chunk. */
+    public void append(List<List<Object>> slice, int from, int to) {
+        if (slice.size() != columns.size()) {
+            throw new IllegalArgumentException("expected " + columns.size() + " columns, got " + slice.size());
+        }
+        for (int c = 0; c < slice.size(); c++) values.get(c).addAll(slice.get(c).subList(from, to));
+        size += to - from;
+    }
+
+    private int column(String name) {
+        Integer i = index.get(name);
+        if (i != null) return i;
+        columns.add(name);
+        List<Object> column = new ArrayList<>(Math.max(size, 10));
+        for (int r = 0; r < size; r++) column.add(null);
+        values.add(column);
+        index.put(name, columns.size() - 1);
+        return columns.size() - 1;
+    }
+
+    // ends the row being parsed: columns the row didn't mention get a null
+    private void endRow() {
+        size++;
+        for (var column : values) {
+            if (column.size() < size) column.add(null);
+        }
+    }
+
+    /** Writes rows {@code [from, to)} as row objects, one entry per column. */
+    public void writeRows(JsonGenerator gen, int from, int to) throws IOException {
+        for (int r = from; r < to; r++) {
+            gen.writeStartObject();
+            for (int c = 0; c < columns.size(); c++) {
+                gen.writeFieldName(columns.get(c));
+                gen.writeObject(values.get(c).get(r));
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    static final class Serializer extends JsonSerializer<TableRows> {
+        @Override
+        public void serialize(TableRows rows, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray();
+            rows.writeRows(gen, 0, rows.size);
+            gen.writeEndArray();
+        }
+    }
+
+    static final class Deserializer extends JsonDeserializer<TableRows> {
+        @Override
+        public TableRows deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.START_ARRAY) {
+                return (TableRows) ctxt.handleUnexpectedToken(TableRows.class, p);
+            }
+            TableRows rows = new TableRows(List.of());
+            for (JsonToken t = p.nextToken(); t != JsonToken.END_ARRAY; t = p.nextToken()) {
+                if (t == JsonToken.START_OBJECT) {
+                    for (t = p.nextToken(); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                        int c = rows.column(p.currentName());
+                        p.nextToken();
+                        List<Object> column = rows.values.get(c);
+                        Object value = value(p, ctxt);
+                        // a key repeated within one row: the last value wins, as with a map
+                        if (column.size() > rows.size) column.set(rows.size, value);
+                        else column.add(value);
+                    }
+                } else {
+                    // a bare value instead of a row object
+                    rows.values.get(rows.column("value")).add(value(p, ctxt));
+                }
+                rows.endRow();
+            }
+            return rows;
+        }
+
+        private static Object value(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return switch (p.currentToken()) {
+                case VALUE_STRING -> p.getText();
+                case VALUE_NUMBER_INT -> p.getNumberValue();
+                case VALUE_NUMBER_FLOAT -> p.getDoubleValue();
+                case VALUE_TRUE -> Boolean.TRUE;
+                case VALUE_FALSE -> Boolean.FALSE;
+                case VALUE_NULL -> null;
+                default -> ctxt.readTree(p);
+            };
+        }
+    }
+}
@@ -1,5 +1,14 @@
 package com.task.hwai.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.UUID;
 
-public record UploadResponse(UUID fileId, UUID runId) {}
\ No newline at end of file
+/** {@code duplicateOf} is a completed run whose pages look the same (Hamming {@code distance} of the page hashes). */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UploadResponse(UUID fileId, UUID runId, UUID duplicateOf, Integer distance) {
+
+    public UploadResponse(UUID fileId, UUID runId) {
+        this(fileId, runId, null, null);
+    }
+}
@@ -0,0 +1,34 @@
+package com.task.hwai.repo;
+
+import com.task.hwai.entity.ConfidenceRollupEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface ConfidenceRollupRepo extends JpaRepository<ConfidenceRollupEntity, Long> {
+
+    /**
+     * Creates the empty bucket row unless it exists. A concurrent transaction inserting the same
+     * row makes this wait for it to commit and then do nothing, instead of failing on the unique key.
+     */
+    @Modifying
+    @Query(value = "insert into confidence_rollups (document_type, bucket_start, documents, fallbacks, " +
+            "avg_confidence_sum, field_count, field_confidence_sum) " +
+            "values (:documentType, :bucketStart, 0, 0, 0, 0, 0) on conflict do nothing", nativeQuery = true)
+    int createIfAbsent(@Param("documentType") String documentType, @Param("bucketStart") Instant bucketStart);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<ConfidenceRollupEntity> findByDocumentTypeAndBucketStart(String documentType, Instant bucketStart);
+
+    @Query("select r from ConfidenceRollupEntity r where r.bucketStart >= :from and r.bucketStart < :to " +
+            "and (:documentType is null or r.documentType = :documentType) order by r.documentType, r.bucketStart")
+    List<ConfidenceRollupEntity> findRange(@Param("documentType") String documentType,
+                                           @Param("from") Instant from, @Param("to") Instant to);
+}
@@ -0,0 +1,26 @@
+package com.task.hwai.repo;
+
+import com.task.hwai.entity.ExtractionFieldEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.UUID;
+
+public interface ExtractionFieldRepo extends JpaRepository<ExtractionFieldEntity, Long>,
+        JpaSpecificationExecutor<ExtractionFieldEntity> {
+
+    @Modifying
+    @Query("delete from ExtractionFieldEntity f where f.runId = :runId")
+    int deleteByRunId(@Param("runId") UUID runId);
+
+    @Modifying
+    @Query("delete from ExtractionFieldEntity f where f.runId = :runId and f.page = :page and f.name = :name")
+    int deleteByRunIdAndPageAndName(@Param("runId") UUID runId, @Param("page") int page, @Param("name") String name);
+
+    @Modifying
+    @Query("update ExtractionFieldEntity f set f.documentType = :documentType where f.runId = :runId")
+    int updateDocumentType(@Param("runId") UUID runId, @Param("documentType") String documentType);
+}
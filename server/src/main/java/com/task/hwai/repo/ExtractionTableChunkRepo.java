@@ -0,0 +1,36 @@
+package com.task.hwai.repo;
+
+import com.task.hwai.entity.ExtractionTableChunkEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ExtractionTableChunkRepo extends JpaRepository<ExtractionTableChunkEntity, Long> {
+
+    // chunks holding any of the rows [start, end)
+    @Query("""
+            select c from ExtractionTableChunkEntity c
+            where c.tableId = :tableId and c.firstRow < :end and c.firstRow + c.rowCount > :start
+            order by c.firstRow""")
+    List<ExtractionTableChunkEntity> findOverlapping(@Param("tableId") long tableId,
+                                                     @Param("start") int start, @Param("end") int end);
+
+    Optional<ExtractionTableChunkEntity> findFirstByTableIdAndFirstRowGreaterThanEqualOrderByFirstRow(long tableId, int firstRow);
+
+    // a near-duplicate run reusing another run's extraction gets its own copy of the rows
+    @Modifying
+    @Query(value = """
+            insert into extraction_table_chunks (table_id, first_row, row_count, data)
+            select :toTable, first_row, row_count, data from extraction_table_chunks where table_id = :fromTable""",
+            nativeQuery = true)
+    int copy(@Param("fromTable") long fromTable, @Param("toTable") long toTable);
+
+    @Modifying
+    @Query("delete from ExtractionTableChunkEntity c where c.tableId in :tableIds")
+    int deleteByTableIds(@Param("tableIds") Collection<Long> tableIds);
+}
@@ -0,0 +1,18 @@
+package com.task.hwai.repo;
+
+import com.task.hwai.entity.ExtractionTableEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface ExtractionTableRepo extends JpaRepository<ExtractionTableEntity, Long> {
+    List<ExtractionTableEntity> findByRunIdAndArchivedVersionIsNullOrderByPageAscPositionAsc(UUID runId);
+
+    @Modifying
+    @Query("update ExtractionTableEntity t set t.archivedVersion = :version where t.runId = :runId and t.archivedVersion is null")
+    int archive(@Param("runId") UUID runId, @Param("version") int version);
+}
@@ -0,0 +1,16 @@
+package com.task.hwai.repo;
+
+import com.task.hwai.entity.ExtractionVersionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface ExtractionVersionRepo extends JpaRepository<ExtractionVersionEntity, Long> {
+    List<ExtractionVersionEntity> findByRunIdOrderByVersionDesc(UUID runId);
+
+    @Query("select coalesce(max(v.version), 0) from ExtractionVersionEntity v where v.runId = :runId")
+    int latestVersion(@Param("runId") UUID runId);
+}
@@ -1,8 +1,60 @@
 package com.task.hwai.repo;
 
 import com.task.hwai.entity.FileEntity;
+import com.task.hwai.model.RunStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
-public interface FileRepo extends JpaRepository<FileEntity, UUID> {}
\ No newline at end of file
+public interface FileRepo extends JpaRepository<FileEntity, UUID> {
+
+    @Transactional
+    @Modifying
+    @Query("update FileEntity f set f.lastAccessedAt = :now where f.fileId = :fileId")
+    int touch(@Param("fileId") UUID fileId, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("update FileEntity f set f.purgedAt = :now where f.fileId = :fileId and f.purgedAt is null")
+    int markPurged(@Param("fileId") UUID fileId, @Param("now") Instant now);
+
+    /** Bytes of originals still on disk. */
+    @Query("select coalesce(sum(f.size), 0) from FileEntity f where f.purgedAt is null")
+    long storedBytes();
+
+    /**
+     * Originals whose run reached {@code status} before {@code finishedBefore} and that were not
+     * read since {@code idleSince}; files with a run still queued or processing never qualify.
+     */
+    @Query("select f from FileEntity f where f.purgedAt is null " +
+            "and coalesce(f.lastAccessedAt, f.createdAt) < :idleSince " +
+            "and exists (select r from RunEntity r where r.fileId = f.fileId and r.status = :status " +
+            "and r.completedAt < :finishedBefore) " +
+            "and not exists (select r from RunEntity r where r.fileId = f.fileId " +
+            "and r.status in (com.task.hwai.model.RunStatus.QUEUED, com.task.hwai.model.RunStatus.PROCESSING)) " +
+            "order by f.createdAt")
+    List<FileEntity> findExpired(@Param("status") RunStatus status, @Param("finishedBefore") Instant finishedBefore,
+                                 @Param("idleSince") Instant idleSince, Pageable page);
+
+    /** Originals that never got a run (the upload failed half way). */
+    @Query("select f from FileEntity f where f.purgedAt is null and f.createdAt < :createdBefore " +
+            "and not exists (select r from RunEntity r where r.fileId = f.fileId) order by f.createdAt")
+    List<FileEntity> findOrphaned(@Param("createdBefore") Instant createdBefore, Pageable page);
+
+    /** Originals of completed runs, least recently read first: what the quota evicts. */
+    @Query("select f from FileEntity f where f.purgedAt is null " +
+            "and coalesce(f.lastAccessedAt, f.createdAt) < :idleSince " +
+            "and exists (select r from RunEntity r where r.fileId = f.fileId " +
+            "and r.status = com.task.hwai.model.RunStatus.COMPLETED) " +
+            "and not exists (select r from RunEntity r where r.fileId = f.fileId " +
+            "and r.status in (com.task.hwai.model.RunStatus.QUEUED, com.task.hwai.model.RunStatus.PROCESSING)) " +
+            "order by coalesce(f.lastAccessedAt, f.createdAt)")
+    List<FileEntity> findLeastRecentlyUsed(@Param("idleSince") Instant idleSince, Pageable page);
+}
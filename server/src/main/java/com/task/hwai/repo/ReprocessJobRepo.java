@@ -0,0 +1,83 @@
+package com.task.hwai.repo;
+
+import com.task.hwai.entity.ReprocessJobEntity;
+import com.task.hwai.model.JobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/** Jobs, plus their item list (reprocess_job_items), which is only ever touched in bulk. */
+public interface ReprocessJobRepo extends JpaRepository<ReprocessJobEntity, UUID> {
+    List<ReprocessJobEntity> findByStatusInOrderByCreatedAt(Collection<JobStatus> statuses);
+
+    List<ReprocessJobEntity> findTop50ByOrderByCreatedAtDesc();
+
+    String MATCHING = "from extractions e join runs r on r.run_id = e.run_id join files f on f.file_id = r.file_id " +
+            "where r.status = 'COMPLETED' and e.created_at >= :from and e.created_at < :to " +
+            "and (cast(:documentType as varchar) is null or e.document_type = cast(:documentType as varchar)) " +
+            "and (cast(:maxConfidence as double precision) is null " +
+            "or coalesce(e.avg_confidence, 0) < cast(:maxConfidence as double precision)) ";
+
+    /**
+     * Snapshots the matching runs into the job in one statement; returns how many matched. Runs whose
+     * original was purged by retention cannot be extracted again and are left out.
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into reprocess_job_items (job_id, run_id, status) " +
+            "select :jobId, e.run_id, 'PENDING' " + MATCHING + "and f.purged_at is null")
+    int addItems(@Param("jobId") UUID jobId, @Param("from") Instant from, @Param("to") Instant to,
+                 @Param("documentType") String documentType, @Param("maxConfidence") Double maxConfidence);
+
+    /** Matching runs left out of {@link #addItems} because their original was purged. */
+    @Query(nativeQuery = true, value = "select count(*) " + MATCHING + "and f.purged_at is not null")
+    int countPurged(@Param("from") Instant from, @Param("to") Instant to,
+                    @Param("documentType") String documentType, @Param("maxConfidence") Double maxConfidence);
+
+    // run ids come back as text: drivers disagree on how a native uuid column is returned
+    @Query(nativeQuery = true, value = "select cast(run_id as varchar(36)) from reprocess_job_items " +
+            "where job_id = :jobId and status = 'PENDING' and run_id > :after order by run_id limit :limit")
+    List<String> pendingItems(@Param("jobId") UUID jobId, @Param("after") UUID after, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "update reprocess_job_items set status = :status where job_id = :jobId and run_id = :runId")
+    int markItem(@Param("jobId") UUID jobId, @Param("runId") UUID runId, @Param("status") String status);
+
+    @Transactional
+    @Modifying
+    @Query("update ReprocessJobEntity j set j.succeeded = j.succeeded + 1 where j.jobId = :jobId")
+    int addSucceeded(@Param("jobId") UUID jobId);
+
+    @Transactional
+    @Modifying
+    @Query("update ReprocessJobEntity j set j.failed = j.failed + 1, j.lastError = :error where j.jobId = :jobId")
+    int addFailed(@Param("jobId") UUID jobId, @Param("error") String error);
+
+    /** QUEUED (or RUNNING, after a restart) -> RUNNING; 0 if the job was cancelled meanwhile. */
+    @Transactional
+    @Modifying
+    @Query("update ReprocessJobEntity j set j.status = com.task.hwai.model.JobStatus.RUNNING, " +
+            "j.startedAt = coalesce(j.startedAt, :now) where j.jobId = :jobId " +
+            "and j.status in (com.task.hwai.model.JobStatus.QUEUED, com.task.hwai.model.JobStatus.RUNNING)")
+    int start(@Param("jobId") UUID jobId, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("update ReprocessJobEntity j set j.status = com.task.hwai.model.JobStatus.COMPLETED, j.completedAt = :now " +
+            "where j.jobId = :jobId and j.status = com.task.hwai.model.JobStatus.RUNNING")
+    int complete(@Param("jobId") UUID jobId, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("update ReprocessJobEntity j set j.status = com.task.hwai.model.JobStatus.CANCELLED, j.completedAt = :now " +
+            "where j.jobId = :jobId and j.status in (com.task.hwai.model.JobStatus.QUEUED, com.task.hwai.model.JobStatus.RUNNING)")
+    int cancel(@Param("jobId") UUID jobId, @Param("now") Instant now);
+}
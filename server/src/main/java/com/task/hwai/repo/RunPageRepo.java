@@ -0,0 +1,18 @@
+package com.task.hwai.repo;
+
+import com.task.hwai.entity.RunPageEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface RunPageRepo extends JpaRepository<RunPageEntity, Long> {
+    List<RunPageEntity> findByRunIdOrderByPage(UUID runId);
+
+    @Modifying
+    @Query("delete from RunPageEntity p where p.runId = :runId")
+    int deleteByRunId(@Param("runId") UUID runId);
+}
@@ -1,8 +1,89 @@
 package com.task.hwai.repo;
 
 import com.task.hwai.entity.RunEntity;
+import com.task.hwai.model.RunStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
-public interface RunRepo extends JpaRepository<RunEntity, UUID> {}
+public interface RunRepo extends JpaRepository<RunEntity, UUID> {
+    long countByStatus(RunStatus status);
+
+    long countByStatusIn(Collection<RunStatus> statuses);
+
+    long countByClientIdAndStatusIn(String clientId, Collection<RunStatus> statuses);
+
+    /** FAILED -> QUEUED for an explicit retry; page checkpoints are kept so the run resumes. */
+    @Transactional
+    @Modifying
+    @Query("update RunEntity r set r.status = com.task.hwai.model.RunStatus.QUEUED, r.error = null, r.completedAt = null, " +
+            "r.queuedAt = :queuedAt where r.runId = :runId and r.status = com.task.hwai.model.RunStatus.FAILED")
+    int requeue(@Param("runId") UUID runId, @Param("queuedAt") Instant queuedAt);
+
+    /**
+     * Runs left PROCESSING by an instance that crashed or stopped go back to QUEUED once their lease
+     * has expired; runs another instance is still working on keep being renewed and are left alone.
+     * A run without a lease was claimed before leases existed.
+     */
+    @Transactional
+    @Modifying
+    @Query("update RunEntity r set r.status = com.task.hwai.model.RunStatus.QUEUED, r.leaseOwner = null, " +
+            "r.leaseUntil = null where r.status = com.task.hwai.model.RunStatus.PROCESSING " +
+            "and (r.leaseUntil is null or r.leaseUntil < :now)")
+    int requeueExpired(@Param("now") Instant now);
+
+    /** Extends the lease of every run {@code owner} is processing; returns how many it holds. */
+    @Transactional
+    @Modifying
+    @Query("update RunEntity r set r.leaseUntil = :leaseUntil where r.leaseOwner = :owner " +
+            "and r.status = com.task.hwai.model.RunStatus.PROCESSING")
+    int renewLeases(@Param("owner") String owner, @Param("leaseUntil") Instant leaseUntil);
+
+    /** (runId, fileId, clientId, priority, queuedAt, pages) of every QUEUED run, oldest first, to schedule. */
+    @Query("select r.runId, r.fileId, r.clientId, r.priority, r.queuedAt, f.pages from RunEntity r " +
+            "join FileEntity f on f.fileId = r.fileId " +
+            "where r.status = com.task.hwai.model.RunStatus.QUEUED order by r.queuedAt")
+    List<Object[]> findQueued();
+
+    /** (runId, pages, pageHashes) of completed runs with a real (non-fallback) extraction. */
+    @Query("select r.runId, f.pages, f.pageHashes from RunEntity r join FileEntity f on f.fileId = r.fileId " +
+            "join ExtractionEntity e on e.runId = r.runId " +
+            "where r.status = com.task.hwai.model.RunStatus.COMPLETED and e.fallback = false and f.pageHashes is not null")
+    List<Object[]> findReusableHashes();
+
+    /**
+     * QUEUED -> PROCESSING under a lease held by {@code owner}, in its own transaction, so the state
+     * is visible while the run is working. Returns 0 when another caller (or instance) already
+     * claimed the run.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("update RunEntity r set r.status = com.task.hwai.model.RunStatus.PROCESSING, r.startedAt = :startedAt, " +
+            "r.leaseOwner = :owner, r.leaseUntil = :leaseUntil " +
+            "where r.runId = :runId and r.status = com.task.hwai.model.RunStatus.QUEUED")
+    int claim(@Param("runId") UUID runId, @Param("owner") String owner, @Param("startedAt") Instant startedAt,
+              @Param("leaseUntil") Instant leaseUntil);
+
+    /** Final state in one statement, committed together with the extraction it belongs to. */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update RunEntity r set r.status = :status, r.completedAt = :completedAt, r.error = :error, " +
+            "r.metricsJson = :metricsJson where r.runId = :runId")
+    int finish(@Param("runId") UUID runId, @Param("status") RunStatus status, @Param("completedAt") Instant completedAt,
+               @Param("error") String error, @Param("metricsJson") String metricsJson);
+
+    /** Marks a run FAILED in its own transaction so it sticks when the caller's work rolls back. */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("update RunEntity r set r.status = com.task.hwai.model.RunStatus.FAILED, r.completedAt = :completedAt, " +
+            "r.error = :error, r.metricsJson = coalesce(:metricsJson, r.metricsJson) where r.runId = :runId")
+    int fail(@Param("runId") UUID runId, @Param("completedAt") Instant completedAt,
+             @Param("error") String error, @Param("metricsJson") String metricsJson);
+}
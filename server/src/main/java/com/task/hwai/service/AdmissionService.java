@@ -0,0 +1,126 @@
+package com.task.hwai.service;
+
+import com.task.hwai.model.RunStatus;
+import com.task.hwai.repo.RunRepo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether an upload may be accepted, before its body is read. Pending work is what is
+ * already in the database (QUEUED and PROCESSING runs) plus uploads admitted but not finished yet,
+ * checked globally and per client; free space in the storage directory is checked too.
+ * Rejections carry a Retry-After estimated from the backlog and the average run duration.
+ * The backlog is shared through the database, but the drain rate in that estimate is this
+ * instance's own {@code inFlight} and run average: with several replicas the hint is per instance
+ * and errs long.
+ */
+@Service
+public class AdmissionService {
+
+    private static final Set<RunStatus> PENDING = EnumSet.of(RunStatus.QUEUED, RunStatus.PROCESSING);
+
+    public record Decision(boolean admitted, String reason, long retryAfterSeconds) {
+        static final Decision ADMITTED = new Decision(true, null, 0);
+    }
+
+    private final RunRepo runRepo;
+    private final PipelineMetrics metrics;
+    private final Path storageDir;
+
+    // admitted uploads whose run row does not exist yet, so concurrent bursts can't overshoot
+    private final AtomicInteger admitting = new AtomicInteger();
+    private final ConcurrentMap<String, AtomicInteger> admittingByClient = new ConcurrentHashMap<>();
+
+    @Value("${app.admission.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.admission.maxPendingRuns:1000}")
+    private long maxPendingRuns = 1000;
+
+    @Value("${app.admission.maxPendingPerClient:100}")
+    private long maxPendingPerClient = 100;
+
+    @Value("${app.admission.minFreeDiskMb:1024}")
+    private long minFreeDiskMb = 1024;
+
+    @Value("${app.admission.maxRetryAfterSeconds:300}")
+    private long maxRetryAfterSeconds = 300;
+
+    public AdmissionService(RunRepo runRepo, PipelineMetrics metrics,
+                            @Value("${app.storage.localDir}") String storageDir) {
+        this.runRepo = runRepo;
+        this.metrics = metrics;
+        this.storageDir = Path.of(storageDir);
+    }
+
+    /** On success the caller must {@link #release(String)} once the upload has been stored (or failed). */
+    public Decision tryAdmit(String clientId, long contentLength) {
+        if (!enabled) return Decision.ADMITTED;
+
+        Decision disk = checkDisk(contentLength);
+        if (disk != null) return reject(disk);
+
+        var perClient = admittingByClient.computeIfAbsent(clientId, k -> new AtomicInteger());
+        int inProgress = admitting.incrementAndGet();
+        int clientInProgress = perClient.incrementAndGet();
+
+        long pending = runRepo.countByStatusIn(PENDING) + inProgress;
+        if (pending > maxPendingRuns) {
+            release(clientId);
+            return reject(new Decision(false, "backlog", retryAfter(pending - maxPendingRuns)));
+        }
+        long clientPending = runRepo.countByClientIdAndStatusIn(clientId, PENDING) + clientInProgress;
+        if (clientPending > maxPendingPerClient) {
+            release(clientId);
+            return reject(new Decision(false, "client_quota", retryAfter(clientPending - maxPendingPerClient)));
+        }
+        return Decision.ADMITTED;
+    }
+
+    public void release(String clientId) {
+        if (!enabled) return;
+        admitting.decrementAndGet();
+        var perClient = admittingByClient.get(clientId);
+        if (perClient != null && perClient.decrementAndGet() <= 0) {
+            admittingByClient.remove(clientId, perClient);
+        }
+    }
+
+    private Decision checkDisk(long contentLength) {
+        try {
+            FileStore store = Files.getFileStore(storageDir);
+            long needed = minFreeDiskMb * 1024 * 1024 + Math.max(0, contentLength);
+            if (store.getUsableSpace() < needed) {
+                // space only comes back when runs are deleted; don't invite a quick retry
+                return new Decision(false, "disk", maxRetryAfterSeconds);
+            }
+        } catch (IOException e) {
+            // can't tell; let the write itself fail if the disk really is full
+        }
+        return null;
+    }
+
+    // time for the runs above the limit to drain at this instance's current concurrency
+    private long retryAfter(long excess) {
+        double avgRunMs = metrics.averageRunMs();
+        if (avgRunMs <= 0) avgRunMs = 5_000;
+        int workers = Math.max(1, metrics.inFlight());
+        long seconds = (long) Math.ceil(excess * avgRunMs / workers / 1000.0);
+        return Math.max(1, Math.min(maxRetryAfterSeconds, seconds));
+    }
+
+    private Decision reject(Decision decision) {
+        metrics.uploadRejected(decision.reason());
+        return decision;
+    }
+}
@@ -1,8 +1,11 @@
 package com.task.hwai.service;
 
 import com.task.hwai.entity.ExtractionEntity;
+import com.task.hwai.entity.ExtractionVersionEntity;
+import com.task.hwai.entity.RunPageEntity;
 import com.task.hwai.model.*;
 import com.task.hwai.model.ExtractionResult.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.theokanning.openai.OpenAiService;
@@ -11,180 +14,565 @@ import com.theokanning.openai.completion.chat.ChatCompletionChoice;
 import com.theokanning.openai.completion.chat.ChatMessage;
 
 import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
-
+import io.opentelemetry.context.Scope;
+
+import com.task.hwai.config.LogPayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Stream;
 
 @Service
 public class AgentService {
 
-    private final OpenAiService llm;
+    private static final Logger log = LoggerFactory.getLogger(AgentService.class);
+
+    // resolved on the first LLM call: the client is built lazily so it stays off the startup path
+    private final ObjectProvider<OpenAiService> llm;
     private final OcrTool ocr;
-    private final ObjectMapper om = new ObjectMapper();
+    // shared with the benchmarks in src/jmh; ObjectMapper is thread-safe once configured
+    static final ObjectMapper OM = new ObjectMapper();
+    private static final int MAX_METRICS_CHARS = 1_000_000;
+
+    private static final String SYSTEM_PROMPT = """
+                You are a strict information extraction engine.
+                Convert OCR text into structured JSON ONLY.
+
+                RULES:
+                - Output ONLY VALID JSON.
+                - No explanations.
+                - Follow EXACT schema:
+
+                {
+                  "file_id": string,
+                  "run_id": string,
+                  "document_type": string,
+                  "pages": [ {
+                    "page": number,
+                    "fields": [
+                      {"name": string, "value": string, "confidence": number}
+                    ],
+                    "tables": []
+                  } ],
+                  "warnings": [string],
+                  "processing_time_ms": number
+                }
+            """;
     private final Tracer tracer;
     private final com.task.hwai.repo.RunRepo runRepo;
     private final com.task.hwai.repo.ExtractionRepo extractionRepo;
-
-    public AgentService(OpenAiService llm, OcrTool ocr, Tracer tracer,
+    private final com.task.hwai.repo.RunPageRepo runPageRepo;
+    private final com.task.hwai.repo.ExtractionVersionRepo versions;
+    private final FieldIndexService fieldIndex;
+    private final AnalyticsService analytics;
+    private final PipelineMetrics pipelineMetrics;
+    private final TransactionTemplate tx;
+    private final ModelRouter router;
+    private final DuplicateService duplicates;
+    private final TableStore tables;
+    private final WorkSlots slots;
+
+    // LLM output is only logged at DEBUG, and cut to this many characters
+    @Value("${app.logging.maxPayloadChars:2000}")
+    private int maxPayloadChars = 2000;
+
+    public AgentService(ObjectProvider<OpenAiService> llm, OcrTool ocr, Tracer tracer,
                         com.task.hwai.repo.RunRepo runRepo,
-                        com.task.hwai.repo.ExtractionRepo extractionRepo) {
+                        com.task.hwai.repo.ExtractionRepo extractionRepo,
+                        com.task.hwai.repo.RunPageRepo runPageRepo,
+                        com.task.hwai.repo.ExtractionVersionRepo versions,
+                        FieldIndexService fieldIndex,
+                        AnalyticsService analytics,
+                        PipelineMetrics pipelineMetrics,
+                        PlatformTransactionManager txManager,
+                        ModelRouter router,
+                        DuplicateService duplicates,
+                        TableStore tables,
+                        WorkSlots slots) {
 
         this.llm = llm;
         this.ocr = ocr;
         this.tracer = tracer;
         this.runRepo = runRepo;
         this.extractionRepo = extractionRepo;
+        this.runPageRepo = runPageRepo;
+        this.versions = versions;
+        this.fieldIndex = fieldIndex;
+        this.analytics = analytics;
+        this.pipelineMetrics = pipelineMetrics;
+        this.tx = new TransactionTemplate(txManager);
+        this.router = router;
+        this.duplicates = duplicates;
+        this.tables = tables;
+        this.slots = slots;
     }
 
-    @Transactional
-    public ExtractionResult run(UUID fileId, UUID runId, Path path) throws Exception {
+    /**
+     * Processes a run the caller has claimed ({@link com.task.hwai.repo.RunRepo#claim}). No
+     * transaction is held during OCR and the LLM calls; each page is checkpointed in {@code run_pages}
+     * as it is OCR'd and structured, so a run that failed part way is resumed from its last finished
+     * page. The merged extraction, the final run UPDATE and the removal of the checkpoints commit
+     * together. OCR pages and LLM calls take a {@link WorkSlots} slot for {@code flow}.
+     */
+    public ExtractionResult run(UUID fileId, UUID runId, Path path, Flow flow) throws Exception {
+        return process(fileId, runId, path, null, flow);
+    }
 
-        var run = runRepo.findById(runId).orElseThrow();
-        run.setStatus(RunStatus.PROCESSING);
-        run.setStartedAt(Instant.now());
-        runRepo.save(run);
+    /**
+     * Extracts a COMPLETED run again for reprocessing job {@code jobId}. The run stays COMPLETED
+     * and keeps serving its current extraction until the new one commits, at which point the old
+     * one is archived in {@code extraction_versions}. A rerun where every page falls back throws
+     * rather than replace it. If this throws, nothing was changed, and the page checkpoints of the
+     * attempt are discarded so the next rerun starts from scratch.
+     */
+    public ExtractionResult reprocess(UUID fileId, UUID runId, Path path, UUID jobId) throws Exception {
+        return process(fileId, runId, path, jobId, Flow.REPROCESS);
+    }
 
+    private ExtractionResult process(UUID fileId, UUID runId, Path path, UUID jobId, Flow flow) throws Exception {
         long t0 = System.currentTimeMillis();
+        RunMetrics metrics = new RunMetrics();
+        pipelineMetrics.runStarted();
 
         Span root = tracer.spanBuilder("agent.run")
                 .setAttribute("file.id", fileId.toString())
                 .setAttribute("run.id", runId.toString())
                 .startSpan();
+        if (jobId != null) root.setAttribute("reprocess.job_id", jobId.toString());
+
+        // log correlation; cleared in the finally below, after the catch has logged too
+        MDC.put("runId", runId.toString());
+        MDC.put("traceId", root.getSpanContext().getTraceId());
+        // make agent.run current so the stage spans below are its children, not separate traces
+        try (Scope ignored = root.makeCurrent()) {
+            // ------------------ NEAR-DUPLICATE ------------------
+            // a reprocessing job wants a fresh answer, not a copy of another run's
+            var duplicate = jobId == null ? duplicates.reusable(fileId) : null;
+            ExtractionResult previous = duplicate == null ? null : previousResult(duplicate.runId());
+            if (previous != null) {
+                metrics.setCacheHits(1);
+                metrics.setReusedFrom(duplicate.runId().toString());
+                root.setAttribute("dedup.reused_from", duplicate.runId().toString());
+                root.setAttribute("dedup.distance", duplicate.distance());
+                List<String> warnings = new ArrayList<>(previous.warnings() == null ? List.of() : previous.warnings());
+                warnings.add("Reused extraction of near-duplicate run " + duplicate.runId()
+                        + " (hash distance " + duplicate.distance() + ")");
+                var reused = new ExtractionResult(null, null, previous.documentType(), previous.pages(), warnings, 0);
+                return saveResult(fileId, runId, reused, "reused", duplicate.runId(), metrics, t0, root, null);
+            }
+
+            // ------------------ CHECKPOINTS ------------------
+            // pages finished by an earlier attempt of this run are not OCR'd or structured again
+            Map<Integer, RunPageEntity> checkpoints = new TreeMap<>();
+            for (var cp : runPageRepo.findByRunIdOrderByPage(runId)) checkpoints.put(cp.getPage(), cp);
+            if (!checkpoints.isEmpty()) {
+                int resumed = (int) checkpoints.values().stream().filter(cp -> cp.getStatus() != PageStatus.OCR_DONE).count();
+                metrics.setResumedPages(resumed);
+                root.setAttribute("run.resumed_pages", resumed);
+                log.info("resuming run checkpointedPages={} structuredPages={}", checkpoints.size(), resumed);
+            }
 
-        try {
             // ------------------ OCR ------------------
             var ocrSpan = tracer.spanBuilder("ocr.extract").startSpan();
-            List<OcrTool.PageResult> pages;
-            try {
-                pages = ocr.extract(path);
+            List<OcrTool.PageResult> pages = new ArrayList<>();
+            long stageStart = System.nanoTime();
+            // the document is opened once for all its pages; a PDF is not parsed again per page
+            try (var document = ocr.open(path)) {
+                int pageCount = document.pageCount();
+                for (int p = 1; p <= pageCount; p++) {
+                    var cp = checkpoints.get(p);
+                    if (cp != null) {
+                        pages.add(OM.readValue(cp.getOcrJson(), OcrTool.PageResult.class));
+                        continue;
+                    }
+                    OcrTool.PageResult page;
+                    try (var slot = slots.acquire(WorkSlots.Stage.OCR, flow)) {
+                        page = document.extractPage(p);
+                    }
+                    pages.add(page);
+                    cp = new RunPageEntity();
+                    cp.setRunId(runId);
+                    cp.setPage(p);
+                    cp.setStatus(PageStatus.OCR_DONE);
+                    cp.setOcrJson(OM.writeValueAsString(page));
+                    checkpoints.put(p, runPageRepo.save(cp));
+                }
+                recordOcrSize(metrics, pages);
+                ocrSpan.setAttribute("ocr.pages", metrics.getPages());
+                ocrSpan.setAttribute("ocr.chars", metrics.getOcrChars());
+                ocrSpan.setAttribute("image.pixels", metrics.getPixels());
+                ocrSpan.setAttribute("file.bytes", fileSize(path));
+            } catch (Exception e) {
+                ocrSpan.recordException(e);
+                ocrSpan.setStatus(StatusCode.ERROR);
+                throw e;
             } finally {
                 ocrSpan.end();
+                metrics.stage("ocr", stageStart);
+            }
+
+            // ------------------ LLM CALLS ------------------
+            // one call per page so each answer can be checkpointed; a call that fails outright
+            // fails the run (pages so far are kept for the retry), a bad answer falls back per page
+            Set<String> models = new LinkedHashSet<>();
+            for (var page : pages) {
+                var cp = checkpoints.get(page.page());
+                if (cp.getStatus() != PageStatus.OCR_DONE) continue;
+
+                stageStart = System.nanoTime();
+                String userPayload = promptPayload(List.of(page));
+                metrics.stage("prompt", stageStart);
+
+                Attempt attempt;
+                try (var slot = slots.acquire(WorkSlots.Stage.LLM, flow)) {
+                    attempt = structure(pageChars(page), pages.size(), userPayload, metrics, root);
+                }
+                models.add(attempt.route().model());
+                if (attempt.outcome().equals("error")) {
+                    throw new IllegalStateException("LLM call failed on page " + page.page() + " of " + pages.size());
+                }
+                if (attempt.result() == null) {
+                    cp.setStatus(PageStatus.FALLBACK);
+                    cp.setWarning(attempt.outcome().equals("invalid_json")
+                            ? "LLM returned invalid JSON" : "LLM returned null or empty response");
+                } else {
+                    cp.setStatus(PageStatus.STRUCTURED);
+                    cp.setResultJson(OM.writeValueAsString(attempt.result()));
+                }
+                cp.setUpdatedAt(Instant.now());
+                runPageRepo.save(cp);
+            }
+            if (!models.isEmpty()) {
+                metrics.setModel(String.join(",", models));
+                root.setAttribute("gen_ai.response.model", metrics.getModel());
             }
 
-            Map<String, Object> payload = Map.of("pages", pages);
+            // ------------------ MERGE ------------------
+            List<RunPageEntity> done = new ArrayList<>(checkpoints.values());
+            if (done.stream().allMatch(cp -> cp.getStatus() == PageStatus.FALLBACK)) {
+                String warning = done.isEmpty() ? "OCR produced no pages" : done.get(0).getWarning();
+                // a rerun that got nothing better than a fallback must not replace a good extraction
+                if (jobId != null) throw new IllegalStateException("rerun produced no structured page: " + warning);
+                String reason = warning.contains("invalid JSON") ? "invalid_json" : "empty";
+                pipelineMetrics.fallback(reason);
+                root.setAttribute("run.outcome", "fallback");
+                return saveFallback(fileId, runId, t0, warning, metrics);
+            }
+            return saveResult(fileId, runId, merge(done), "extracted", null, metrics, t0, root, jobId);
 
-            // ------------------ PROMPT ------------------
-            String systemPrompt = """
-                You are a strict information extraction engine.
-                Convert OCR text into structured JSON ONLY.
+        } catch (Exception ex) {
+            root.recordException(ex);
+            root.setStatus(StatusCode.ERROR);
+            // a failed rerun leaves the run COMPLETED with its previous extraction; one interrupted by
+            // shutdown stays PROCESSING and is requeued once its lease expires
+            if (jobId == null && !(ex instanceof InterruptedException)) runRepo.fail(runId, Instant.now(), errorText(ex), metricsJson(metrics, t0));
+            if (jobId != null && !(ex instanceof InterruptedException) && !Thread.currentThread().isInterrupted()) {
+                // pages of a failed rerun would otherwise be resumed by the next one
+                discardCheckpoints(runId);
+            }
+            pipelineMetrics.runFinished(RunStatus.FAILED, "error", System.currentTimeMillis() - t0);
+            log.warn("run failed totalMs={}: {}", metrics.getTotalMs(), ex.toString());
+            throw ex;
+        } finally {
+            root.end();
+            MDC.remove("runId");
+            MDC.remove("traceId");
+        }
+    }
 
-                RULES:
-                - Output ONLY VALID JSON.
-                - No explanations.
-                - Follow EXACT schema:
+    private void discardCheckpoints(UUID runId) {
+        try {
+            tx.executeWithoutResult(status -> runPageRepo.deleteByRunId(runId));
+        } catch (RuntimeException e) {
+            log.warn("could not discard checkpoints of run {}: {}", runId, e.toString());
+        }
+    }
 
-                {
-                  "file_id": string,
-                  "run_id": string,
-                  "document_type": string,
-                  "pages": [ {
-                    "page": number,
-                    "fields": [
-                      {"name": string, "value": string, "confidence": number}
-                    ],
-                    "tables": []
-                  } ],
-                  "warnings": [string],
-                  "processing_time_ms": number
-                }
-            """;
+    private ExtractionResult saveResult(UUID fileId, UUID runId, ExtractionResult result, String outcome,
+                                        UUID reusedFrom, RunMetrics metrics, long t0, Span root, UUID jobId)
+            throws Exception {
+        // ------------------ ENFORCE IDs ------------------
+        result = new ExtractionResult(
+                fileId.toString(),
+                runId.toString(),
+                result.documentType() == null ? "generic_form" : result.documentType(),
+                result.pages(),
+                result.warnings(),
+                System.currentTimeMillis() - t0
+        );
+
+        // ------------------ SAVE SUCCESS ------------------
+        long persistStart = System.nanoTime();
+        var persistSpan = tracer.spanBuilder("extraction.persist").startSpan();
+        ExtractionEntity ex = new ExtractionEntity();
+        ExtractionResult stored;
+        try {
+            ex.setRunId(runId);
+            ex.setDocumentType(result.documentType());
+            ex.setConfidenceStats(ConfidenceStats.of(result));
+
+            var extracted = result;
+            // table rows go to their own chunked storage; result_json keeps a stub per table
+            stored = tx.execute(status -> {
+                var current = jobId == null ? null : archive(runId, jobId);
+                var document = tables.store(runId, extracted, reusedFrom);
+                ex.setResultJson(toJson(document));
+                var saved = extractionRepo.save(current == null ? ex : overwrite(current, ex));
+                runPageRepo.deleteByRunId(runId);
+                fieldIndex.index(runId, extracted);
+                analytics.apply(extracted.documentType(), saved.getCreatedAt(), RollupDelta.ofDocument(extracted, false, 1));
+                metrics.stage("persist", persistStart);
+                runRepo.finish(runId, RunStatus.COMPLETED, Instant.now(), null, metricsJson(metrics, t0));
+                return document;
+            });
+        } finally {
+            persistSpan.end();
+        }
 
-            String userPayload = om.writeValueAsString(payload);
+        root.setAttribute("run.outcome", outcome);
+        root.setAttribute("document.type", result.documentType());
+        root.setAttribute("extraction.avg_confidence", ex.getAvgConfidence());
+
+        // committed COMPLETED: a failure from here on is logged and must not mark the run FAILED
+        afterCommit(runId, "metrics",
+                () -> pipelineMetrics.runFinished(RunStatus.COMPLETED, outcome, System.currentTimeMillis() - t0));
+        log.info("run completed outcome={} documentType={} fields={} totalMs={}",
+                outcome, result.documentType(), ex.getConfidenceCount(), metrics.getTotalMs());
+        // reused results are already represented in the index by the run they came from
+        if (outcome.equals("extracted") && jobId == null) {
+            afterCommit(runId, "near-duplicate index", () -> duplicates.completed(runId, fileId));
+        }
+        try {
+            return tables.inline(stored);
+        } catch (RuntimeException e) {
+            log.warn("could not inline tables of run {}: {}", runId, e.toString());
+            return stored;
+        }
+    }
 
-            // ------------------ LLM CALL ------------------
-            var llmSpan = tracer.spanBuilder("llm.structuring").startSpan();
-            String rawOutput = null;
+    private static void afterCommit(UUID runId, String what, Runnable step) {
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            log.warn("{} update after run {} completed failed: {}", what, runId, e.toString());
+        }
+    }
 
-            try {
-                List<ChatMessage> messages = List.of(
-                        new ChatMessage("system", systemPrompt),
-                        new ChatMessage("user", "OCR_DATA:\n" + userPayload)
-                );
-
-                ChatCompletionRequest request = ChatCompletionRequest.builder()
-                        .model("gpt-4o-mini") // or "gpt-3.5-turbo"
-                        .messages(messages)
-                        .maxTokens(3000)
-                        .temperature(0.0)
-                        .build();
-
-                var response = llm.createChatCompletion(request);
-
-                if (response.getChoices() != null && !response.getChoices().isEmpty()) {
-                    ChatCompletionChoice choice = response.getChoices().get(0);
-                    rawOutput = choice.getMessage().getContent();
-                }
+    /**
+     * Archives the run's current extraction and its tables and retracts it from the rollups,
+     * returning it so the new one can be moved onto the same row ({@link #overwrite}): its id,
+     * optimistic-lock version and rollup bucket (creation time) carry over. Runs in the save transaction.
+     */
+    private ExtractionEntity archive(UUID runId, UUID jobId) {
+        var current = extractionRepo.findByRunId(runId).orElse(null);
+        if (current == null) return null;
+        String runMetrics = runRepo.findById(runId).map(r -> r.getMetricsJson()).orElse(null);
+        int version = versions.latestVersion(runId) + 1;
+        versions.save(ExtractionVersionEntity.of(current, version, jobId, runMetrics));
+        tables.archive(runId, version);
+        try {
+            var before = OM.readValue(current.getResultJson(), ExtractionResult.class);
+            analytics.apply(current.getDocumentType(), current.getCreatedAt(),
+                    RollupDelta.ofDocument(before, current.isFallback(), -1));
+        } catch (Exception e) {
+            throw new IllegalStateException("stored extraction of run " + runId + " is unreadable", e);
+        }
+        return current;
+    }
 
-                System.out.println("LLM RAW OUTPUT --> " + rawOutput);
+    private static ExtractionEntity overwrite(ExtractionEntity current, ExtractionEntity fresh) {
+        current.setDocumentType(fresh.getDocumentType());
+        current.setResultJson(fresh.getResultJson());
+        current.setConfidenceStats(fresh.getConfidenceStats());
+        current.setFallback(fresh.isFallback());
+        return current;
+    }
 
-            } catch (Exception ex) {
-                System.err.println("❌ LLM call failed: " + ex.getMessage());
-                rawOutput = null;
-            } finally {
-                llmSpan.end();
-            }
+    private static String toJson(Object value) {
+        try {
+            return OM.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException("could not serialize extraction", e);
+        }
+    }
 
-            if (rawOutput == null || rawOutput.isBlank()) {
-                return saveFallback(fileId, runId, t0, "LLM returned null or empty response");
-            }
+    private ExtractionResult previousResult(UUID runId) {
+        try {
+            var previous = extractionRepo.findByRunId(runId).filter(e -> !e.isFallback()).orElse(null);
+            return previous == null ? null : OM.readValue(previous.getResultJson(), ExtractionResult.class);
+        } catch (Exception e) {
+            log.warn("could not reuse extraction of run {}: {}", runId, e.toString());
+            return null;
+        }
+    }
 
-            // ------------------ CLEAN JSON ------------------
-            String json = cleanJsonResponse(rawOutput);
-            System.out.println("CLEANED JSON --> " + json);
+    /** One LLM call on {@code route}; {@code result} is null unless the answer parsed, {@code error} set if the call failed. */
+    private record Attempt(ModelRouter.Route route, ExtractionResult result, String outcome, String finishReason,
+                           double avgConfidence, Exception error) {
+        boolean isBetterThan(Attempt other) {
+            if (result == null) return false;
+            return other.result == null || avgConfidence >= other.avgConfidence;
+        }
+    }
 
-            // ------------------ PARSE JSON ------------------
-            ExtractionResult result;
-            try {
-                result = om.readValue(json, ExtractionResult.class);
-            } catch (Exception e) {
-                System.err.println("❌ INVALID JSON FROM LLM");
-                e.printStackTrace();
-                return saveFallback(fileId, runId, t0, "LLM returned invalid JSON");
+    // routed on the page's OCR size and the document's page count; a weak answer is retried once on a stronger route
+    private Attempt structure(long ocrChars, int documentPages, String userPayload, RunMetrics metrics, Span root)
+            throws InterruptedException {
+        var route = router.initial(ocrChars, documentPages);
+        Attempt attempt = structureWithRetries(route, userPayload, metrics);
+        String escalation = router.escalationReason(attempt.result(), attempt.outcome(), attempt.finishReason());
+        var stronger = escalation == null ? null : router.escalate(route, escalation);
+        if (stronger != null) {
+            pipelineMetrics.escalation(escalation);
+            root.setAttribute("llm.escalation", escalation);
+            Attempt retry = structureWithRetries(stronger, userPayload, metrics);
+            if (retry.isBetterThan(attempt)) attempt = retry;
+        }
+        return attempt;
+    }
+
+    // a call that failed in transport (timeout, 429, 5xx) is retried on the same route, with backoff
+    private Attempt structureWithRetries(ModelRouter.Route route, String userPayload, RunMetrics metrics)
+            throws InterruptedException {
+        Attempt attempt = structure(route, SYSTEM_PROMPT, userPayload, metrics);
+        for (int retry = 1; attempt.error() != null; retry++) {
+            long delayMs = router.retryDelayMs(attempt.error(), retry);
+            if (delayMs < 0) break;
+            Thread.sleep(delayMs);
+            metrics.setRetries(metrics.getRetries() + 1);
+            attempt = structure(route, SYSTEM_PROMPT, userPayload, metrics);
+        }
+        return attempt;
+    }
+
+    /**
+     * Joins per-page answers in page order. The document type is the one most pages agree on;
+     * page numbers come from the checkpoint, not from what the model echoed back.
+     */
+    static ExtractionResult merge(List<RunPageEntity> checkpoints) throws Exception {
+        List<ExtractionResult.Page> pages = new ArrayList<>();
+        Set<String> warnings = new LinkedHashSet<>();
+        Map<String, Integer> types = new HashMap<>();
+        for (var cp : checkpoints) {
+            if (cp.getStatus() == PageStatus.FALLBACK) {
+                warnings.add("Page " + cp.getPage() + ": " + cp.getWarning());
+                continue;
+            }
+            var part = OM.readValue(cp.getResultJson(), ExtractionResult.class);
+            if (part.documentType() != null && !part.documentType().isBlank()) types.merge(part.documentType(), 1, Integer::sum);
+            if (part.pages() != null) {
+                for (var page : part.pages()) pages.add(new ExtractionResult.Page(cp.getPage(), page.fields(), page.tables()));
             }
+            if (part.warnings() != null) warnings.addAll(part.warnings());
+        }
+        String documentType = types.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse("generic_form");
+        return new ExtractionResult(null, null, documentType, pages, new ArrayList<>(warnings), 0);
+    }
+
+    private static long pageChars(OcrTool.PageResult page) {
+        long chars = 0;
+        if (page.tokens() != null) for (var t : page.tokens()) chars += t.text() == null ? 0 : t.text().length();
+        return chars;
+    }
+
+    private Attempt structure(ModelRouter.Route route, String systemPrompt, String userPayload, RunMetrics metrics) {
+        String rawOutput = null;
+        String finishReason = null;
+        String llmOutcome = "ok";
+        Exception error = null;
+        var llmSpan = tracer.spanBuilder("llm.structuring")
+                .setAttribute("gen_ai.system", "openai")
+                .setAttribute("gen_ai.request.model", route.model())
+                .setAttribute("gen_ai.request.max_tokens", route.maxTokens())
+                .setAttribute("llm.route", route.reason())
+                .setAttribute("llm.prompt_chars", systemPrompt.length() + userPayload.length())
+                .startSpan();
+        long stageStart = System.nanoTime();
 
-            // ------------------ ENFORCE IDs ------------------
-            result = new ExtractionResult(
-                    fileId.toString(),
-                    runId.toString(),
-                    result.documentType() == null ? "generic_form" : result.documentType(),
-                    result.pages(),
-                    result.warnings(),
-                    System.currentTimeMillis() - t0
+        try {
+            List<ChatMessage> messages = List.of(
+                    new ChatMessage("system", systemPrompt),
+                    new ChatMessage("user", "OCR_DATA:\n" + userPayload)
             );
 
-            // ------------------ SAVE SUCCESS ------------------
-            ExtractionEntity ex = new ExtractionEntity();
-            ex.setRunId(runId);
-            ex.setDocumentType(result.documentType());
-            ex.setResultJson(om.writeValueAsString(result));
-            ex.setAvgConfidence(averageConfidence(result));
+            ChatCompletionRequest request = ChatCompletionRequest.builder()
+                    .model(route.model())
+                    .messages(messages)
+                    .maxTokens(route.maxTokens())
+                    .temperature(0.0)
+                    .build();
 
-            extractionRepo.save(ex);
+            var response = llm.getObject().createChatCompletion(request);
 
-            run.setStatus(RunStatus.COMPLETED);
-            run.setCompletedAt(Instant.now());
-            runRepo.save(run);
+            if (response.getChoices() != null && !response.getChoices().isEmpty()) {
+                ChatCompletionChoice choice = response.getChoices().get(0);
+                rawOutput = choice.getMessage().getContent();
+                finishReason = choice.getFinishReason();
+            }
+            if (response.getUsage() != null) {
+                metrics.addTokens(response.getUsage().getPromptTokens(), response.getUsage().getCompletionTokens());
+                pipelineMetrics.tokens(response.getUsage().getPromptTokens(), response.getUsage().getCompletionTokens());
+                llmSpan.setAttribute("gen_ai.usage.input_tokens", response.getUsage().getPromptTokens());
+                llmSpan.setAttribute("gen_ai.usage.output_tokens", response.getUsage().getCompletionTokens());
+            }
+            if (finishReason != null) llmSpan.setAttribute("gen_ai.response.finish_reasons", finishReason);
 
-            return result;
+            if (log.isDebugEnabled()) {
+                log.debug("llm output model={} chars={} body={}", route.model(), rawOutput == null ? 0 : rawOutput.length(),
+                        LogPayload.of(rawOutput, maxPayloadChars));
+            }
 
         } catch (Exception ex) {
-            run.setStatus(RunStatus.FAILED);
-            run.setCompletedAt(Instant.now());
-            run.setError(ex.getMessage());
-            runRepo.save(run);
-            throw ex;
+            log.warn("llm call failed model={}: {}", route.model(), ex.toString());
+            rawOutput = null;
+            llmOutcome = "error";
+            error = ex;
+            llmSpan.recordException(ex);
+            llmSpan.setStatus(StatusCode.ERROR);
         } finally {
-            root.end();
+            if (llmOutcome.equals("ok") && (rawOutput == null || rawOutput.isBlank())) llmOutcome = "empty";
+            llmSpan.setAttribute("llm.outcome", llmOutcome);
+            llmSpan.end();
+            metrics.stage("llm", stageStart);
+        }
+        pipelineMetrics.llm(route.model(), llmOutcome, System.nanoTime() - stageStart);
+
+        ExtractionResult result = null;
+        if (llmOutcome.equals("ok")) {
+            stageStart = System.nanoTime();
+            String json = cleanJsonResponse(rawOutput);
+            try {
+                result = OM.readValue(json, ExtractionResult.class);
+            } catch (Exception e) {
+                // the parser message carries line/column; the payload itself is capped
+                log.warn("invalid json from llm model={} chars={}: {} body={}", route.model(), json.length(),
+                        e.getMessage(), LogPayload.of(json, maxPayloadChars));
+                llmOutcome = "invalid_json";
+            }
+            metrics.stage("parse", stageStart);
         }
+
+        double avg = result == null ? 0.0 : ConfidenceStats.of(result).average();
+        metrics.getRouting().add(new RunMetrics.LlmAttempt(route.model(), route.maxTokens(), route.reason(),
+                llmOutcome, result == null ? null : avg));
+        return new Attempt(route, result, llmOutcome, finishReason, avg, error);
     }
 
-    private String cleanJsonResponse(String json) {
+    static String cleanJsonResponse(String json) {
         if (json == null) return "{}";
         json = json.trim();
 
@@ -201,7 +589,8 @@ public class AgentService {
         return "{}";
     }
 
-    private ExtractionResult saveFallback(UUID fileId, UUID runId, long t0, String warning) throws Exception {
+    private ExtractionResult saveFallback(UUID fileId, UUID runId, long t0, String warning, RunMetrics metrics)
+            throws Exception {
         ExtractionResult fallback = new ExtractionResult(
                 fileId.toString(),
                 runId.toString(),
@@ -211,53 +600,86 @@ public class AgentService {
                 System.currentTimeMillis() - t0
         );
 
+        long stageStart = System.nanoTime();
         ExtractionEntity ex = new ExtractionEntity();
         ex.setRunId(runId);
         ex.setDocumentType("generic_form");
-        ex.setResultJson(om.writeValueAsString(fallback));
-        ex.setAvgConfidence(0.0);
-        extractionRepo.save(ex);
-
-        var run = runRepo.findById(runId).orElseThrow();
-        run.setStatus(RunStatus.COMPLETED);
-        run.setCompletedAt(Instant.now());
-        runRepo.save(run);
+        ex.setResultJson(OM.writeValueAsString(fallback));
+        ex.setConfidenceStats(ConfidenceStats.EMPTY);
+        ex.setFallback(true);
+        tx.executeWithoutResult(status -> {
+            tables.store(runId, fallback, null);
+            var saved = extractionRepo.save(ex);
+            runPageRepo.deleteByRunId(runId);
+            fieldIndex.index(runId, fallback);
+            analytics.apply(fallback.documentType(), saved.getCreatedAt(), RollupDelta.ofDocument(fallback, true, 1));
+            metrics.stage("persist", stageStart);
+            runRepo.finish(runId, RunStatus.COMPLETED, Instant.now(), null, metricsJson(metrics, t0));
+        });
+        afterCommit(runId, "metrics",
+                () -> pipelineMetrics.runFinished(RunStatus.COMPLETED, "fallback", System.currentTimeMillis() - t0));
+        log.info("run completed outcome=fallback warning=\"{}\" totalMs={}", warning, metrics.getTotalMs());
 
         return fallback;
     }
 
-    private Double averageConfidence(ExtractionResult r) {
-        if (r == null || r.pages() == null) return null;
-
-        return r.pages().stream()
-                .filter(Objects::nonNull)
-                .flatMap(p -> p.fields() == null ? Stream.empty() : p.fields().stream())
-                .map(Field::confidence)
-                .filter(Objects::nonNull)
-                .mapToDouble(Double::doubleValue)
-                .average()
-                .orElse(0.0);
+    // runs.error is varchar(4000)
+    public static String errorText(Throwable t) {
+        String msg = t.getMessage() == null ? t.toString() : t.getMessage();
+        return msg.length() > 4000 ? msg.substring(0, 4000) : msg;
     }
 
-    @Transactional
-    public Double calculateAverageConfidence(UUID runId) {
-        var entity = extractionRepo.findByRunId(runId);
-        if (entity.isEmpty()) {
-            return null;
+    // page width/height only feed RunMetrics.pixels; the model gets page number and text
+    static String promptPayload(List<OcrTool.PageResult> pages) throws JsonProcessingException {
+        List<OcrTool.PageResult> text = new ArrayList<>(pages.size());
+        for (var page : pages) text.add(new OcrTool.PageResult(page.page(), page.tokens()));
+        return OM.writeValueAsString(Map.of("pages", text));
+    }
+
+    private static void recordOcrSize(RunMetrics metrics, List<OcrTool.PageResult> pages) {
+        metrics.setPages(pages.size());
+        for (var page : pages) {
+            if (page.tokens() != null) {
+                for (var token : page.tokens()) {
+                    if (token.text() != null) metrics.setOcrChars(metrics.getOcrChars() + token.text().length());
+                }
+            }
+            if (page.metadata() != null) {
+                for (var meta : page.metadata()) {
+                    if (meta.get("width") instanceof Number w && meta.get("height") instanceof Number h) {
+                        metrics.setPixels(metrics.getPixels() + w.longValue() * h.longValue());
+                    }
+                }
+            }
+        }
+    }
+
+    private static long fileSize(Path path) {
+        try {
+            return java.nio.file.Files.size(path);
+        } catch (Exception e) {
+            return -1;
         }
+    }
 
+    // runs.metrics_json is varchar(1000000); metrics that don't fit are dropped rather than failing the write
+    private String metricsJson(RunMetrics metrics, long t0) {
+        metrics.setTotalMs(System.currentTimeMillis() - t0);
         try {
-            ExtractionResult result = om.readValue(entity.get().getResultJson(), ExtractionResult.class);
-            return result.pages().stream()
-                    .filter(Objects::nonNull)
-                    .flatMap(p -> p.fields() == null ? Stream.empty() : p.fields().stream())
-                    .map(Field::confidence)
-                    .filter(Objects::nonNull)
-                    .mapToDouble(Double::doubleValue)
-                    .average()
-                    .orElse(0.0);
+            String json = OM.writeValueAsString(metrics);
+            if (json.length() <= MAX_METRICS_CHARS) return json;
+            log.warn("run metrics too large to store chars={} routing={}", json.length(), metrics.getRouting().size());
+            return null;
         } catch (Exception e) {
-            return 0.0;
+            return null;
         }
     }
-}
\ No newline at end of file
+
+    /** Average field confidence of a stored run, read from the sum/count kept on the row. */
+    @Transactional(readOnly = true)
+    public Double calculateAverageConfidence(UUID runId) {
+        return extractionRepo.findByRunId(runId)
+                .map(ExtractionEntity::getAvgConfidence)
+                .orElse(null);
+    }
+}
@@ -0,0 +1,80 @@
+package com.task.hwai.service;
+
+import com.task.hwai.entity.ConfidenceRollupEntity;
+import com.task.hwai.repo.ConfidenceRollupRepo;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Keeps per document type / per day confidence aggregates current. Callers hand in a
+ * {@link RollupDelta} on every write, edit and delete; reads never touch the extractions table.
+ */
+@Service
+public class AnalyticsService {
+
+    private final ConfidenceRollupRepo rollupRepo;
+
+    public AnalyticsService(ConfidenceRollupRepo rollupRepo) {
+        this.rollupRepo = rollupRepo;
+    }
+
+    public static Instant bucketOf(Instant at) {
+        return (at == null ? Instant.now() : at).truncatedTo(ChronoUnit.DAYS);
+    }
+
+    // the bucket row is created up front, so concurrent runs never both insert it; the locked read
+    // then serializes their updates until each writer's transaction commits
+    @Transactional
+    public void apply(String documentType, Instant createdAt, RollupDelta delta) {
+        if (delta == null || delta.isEmpty()) return;
+        String type = documentType == null ? "generic_form" : documentType;
+        Instant bucket = bucketOf(createdAt);
+
+        rollupRepo.createIfAbsent(type, bucket);
+        var rollup = rollupRepo.findByDocumentTypeAndBucketStart(type, bucket).orElseThrow();
+
+        long[] histogram = rollup.getHistogram() == null || rollup.getHistogram().length != RollupDelta.BINS
+                ? new long[RollupDelta.BINS] : rollup.getHistogram().clone();
+        for (int i = 0; i < RollupDelta.BINS; i++) {
+            histogram[i] = Math.max(0, histogram[i] + delta.histogram[i]);
+        }
+
+        rollup.setDocuments(Math.max(0, rollup.getDocuments() + delta.documents));
+        rollup.setFallbacks(Math.max(0, rollup.getFallbacks() + delta.fallbacks));
+        rollup.setAvgConfidenceSum(rollup.getAvgConfidenceSum() + delta.avgConfidenceSum);
+        rollup.setFieldCount(Math.max(0, rollup.getFieldCount() + delta.fieldCount));
+        rollup.setFieldConfidenceSum(rollup.getFieldConfidenceSum() + delta.fieldConfidenceSum);
+        rollup.setHistogram(histogram);
+        rollupRepo.save(rollup);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ConfidenceRollupEntity> range(String documentType, Instant from, Instant to) {
+        return rollupRepo.findRange(documentType, bucketOf(from), to);
+    }
+
+    /** Estimates the {@code q} quantile of field confidence from the bins, interpolating inside a bin. */
+    public static Double quantile(long[] histogram, double q) {
+        if (histogram == null) return null;
+        long total = 0;
+        for (long c : histogram) total += c;
+        if (total == 0) return null;
+
+        double target = q * total;
+        long seen = 0;
+        double width = 1.0 / histogram.length;
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] == 0) continue;
+            if (seen + histogram[i] >= target) {
+                double within = (target - seen) / histogram[i];
+                return Math.min(1.0, (i + within) * width);
+            }
+            seen += histogram[i];
+        }
+        return 1.0;
+    }
+}
@@ -0,0 +1,241 @@
+package com.task.hwai.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Bounded local copies of remote originals, kept while a run is OCR'ing them and afterwards as
+ * long as space allows. An entry is pinned while a {@link StorageService.LocalFile} holds it and
+ * is never evicted then; unpinned entries go least recently used first once the cache is over
+ * {@code maxBytes}. Misses are downloaded in ranged chunks, each retried on its own, into a
+ * temp file that is renamed into place, so a crash never leaves a truncated entry behind.
+ */
+class BlobCache {
+    private static final Logger log = LoggerFactory.getLogger(BlobCache.class);
+    private static final String STAGING = ".staging";
+    private static final int CHUNK_ATTEMPTS = 3;
+
+    private final Path dir;
+    private final long maxBytes;
+    private final long chunkBytes;
+    private final PipelineMetrics metrics;
+
+    // access-ordered, so iteration runs from least to most recently used
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private static final class Entry {
+        final Path path;
+        final long size;
+        int pins;
+        boolean deleted;
+
+        Entry(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    BlobCache(Path dir, long maxBytes, long chunkBytes, PipelineMetrics metrics) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.chunkBytes = chunkBytes;
+        this.metrics = metrics;
+        try {
+            Files.createDirectories(dir.resolve(STAGING));
+            load();
+        } catch (IOException e) {
+            log.warn("could not scan blob cache {}: {}", dir, e.toString());
+        }
+    }
+
+    /** Re-registers what a previous process left behind, oldest first; half-written files are dropped. */
+    private void load() throws IOException {
+        try (Stream<Path> staged = Files.list(dir.resolve(STAGING))) {
+            for (Path p : staged.toList()) Files.deleteIfExists(p);
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            var found = files.filter(Files::isRegularFile)
+                    .filter(p -> !p.startsWith(dir.resolve(STAGING)))
+                    .sorted(Comparator.comparing(BlobCache::lastModified))
+                    .toList();
+            synchronized (this) {
+                for (Path p : found) {
+                    long size = Files.size(p);
+                    entries.put(dir.relativize(p).toString().replace('\\', '/'), new Entry(p, size));
+                    bytes += size;
+                }
+                evict();
+            }
+        }
+    }
+
+    /** A fresh path on the cache's file system for an upload that is about to be stored. */
+    Path stagingFile() {
+        return dir.resolve(STAGING).resolve(UUID.randomUUID().toString());
+    }
+
+    /** Takes over a staged upload that was just written to the store, so the first run needn't download it. */
+    StorageService.LocalFile adopt(String uri, Path staged) throws IOException {
+        String key = keyOf(uri);
+        Path target = dir.resolve(key);
+        Files.createDirectories(target.getParent());
+        Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return register(key, uri, target);
+    }
+
+    /** The cached copy of {@code uri}, downloading it from {@code store} on a miss. */
+    StorageService.LocalFile fetch(String uri, BlobStore store) throws IOException {
+        String key = keyOf(uri);
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null && !e.deleted) {
+                e.pins++;
+                metrics.blobCache("hit");
+                return lease(key, uri, e);
+            }
+        }
+        metrics.blobCache("miss");
+        Path part = stagingFile();
+        try {
+            download(store, uri, part);
+            Path target = dir.resolve(key);
+            Files.createDirectories(target.getParent());
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return register(key, uri, target);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private void download(BlobStore store, String uri, Path target) throws IOException {
+        long size = store.size(uri);
+        try (OutputStream out = Files.newOutputStream(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long offset = 0; offset < size; offset += chunkBytes) {
+                long length = Math.min(chunkBytes, size - offset);
+                out.write(chunk(store, uri, offset, length));
+            }
+        }
+    }
+
+    private static byte[] chunk(BlobStore store, String uri, long offset, long length) throws IOException {
+        IOException last = null;
+        for (int attempt = 1; attempt <= CHUNK_ATTEMPTS; attempt++) {
+            try (InputStream in = store.read(uri, offset, length)) {
+                byte[] data = in.readNBytes((int) length);
+                if (data.length == length) return data;
+                last = new IOException("short read of " + uri + " at " + offset + ": " + data.length + " of " + length + " bytes");
+            } catch (IOException e) {
+                last = e;
+            } catch (SdkException e) {
+                // the S3 response stream throws unchecked SDK exceptions when a read is aborted midway
+                last = new IOException("read of " + uri + " at " + offset + " failed", e);
+            }
+            log.debug("chunk {}@{} of {} failed (attempt {}): {}", length, offset, uri, attempt, last.toString());
+        }
+        throw last;
+    }
+
+    private synchronized StorageService.LocalFile register(String key, String uri, Path path) throws IOException {
+        long size = Files.size(path);
+        Entry previous = entries.get(key);
+        if (previous != null && previous.pins > 0) {
+            // another caller fetched the same object concurrently; both copies are identical
+            previous.pins++;
+            return lease(key, uri, previous);
+        }
+        if (previous != null) bytes -= previous.size;
+        Entry e = new Entry(path, size);
+        e.pins = 1;
+        entries.put(key, e);
+        bytes += size;
+        evict();
+        return lease(key, uri, e);
+    }
+
+    private StorageService.LocalFile lease(String key, String uri, Entry e) {
+        var released = new AtomicBoolean();
+        return new StorageService.LocalFile(uri, e.path, () -> {
+            if (released.compareAndSet(false, true)) release(key, e);
+        });
+    }
+
+    private synchronized void release(String key, Entry e) {
+        e.pins--;
+        if (e.pins == 0 && e.deleted) {
+            drop(key, e);
+        } else {
+            evict();
+        }
+    }
+
+    /** Forgets the cached copy of a deleted original; one still being read goes when its lease is closed. */
+    synchronized void remove(String uri) {
+        String key = keyOf(uri);
+        Entry e = entries.get(key);
+        if (e == null) return;
+        e.deleted = true;
+        if (e.pins == 0) drop(key, e);
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            var next = it.next();
+            Entry e = next.getValue();
+            if (e.pins > 0) continue;
+            it.remove();
+            bytes -= e.size;
+            deleteQuietly(e.path);
+        }
+    }
+
+    private void drop(String key, Entry e) {
+        if (entries.get(key) == e) {
+            entries.remove(key);
+            bytes -= e.size;
+        }
+        deleteQuietly(e.path);
+    }
+
+    private static void deleteQuietly(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException e) {
+            log.warn("could not delete cached copy {}: {}", p, e.toString());
+        }
+    }
+
+    // s3://bucket/aa/bb/<fileId>_<name> is cached as <dir>/bucket/aa/bb/<fileId>_<name>
+    private static String keyOf(String uri) {
+        return uri.substring(uri.indexOf("://") + 3);
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
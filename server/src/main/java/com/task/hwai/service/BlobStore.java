@@ -0,0 +1,27 @@
+package com.task.hwai.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Where uploaded originals live. Objects are addressed by the URI returned from {@link #put},
+ * which is what {@code files.storage_uri} records; keys are relative paths such as
+ * {@code aa/bb/<fileId>_<name>}.
+ */
+public interface BlobStore {
+
+    /** Stores {@code source} under {@code key} (the file may be moved) and returns the object's URI. */
+    String put(String key, Path source, String contentType) throws IOException;
+
+    /** Bytes {@code [offset, offset + length)} of the object; a negative length reads to the end. */
+    InputStream read(String uri, long offset, long length) throws IOException;
+
+    long size(String uri) throws IOException;
+
+    /** Returns false if there was nothing to delete. */
+    boolean delete(String uri) throws IOException;
+
+    /** The object as a file on this node, or null if it has to be fetched (see {@link StorageService#open}). */
+    Path localPath(String uri);
+}
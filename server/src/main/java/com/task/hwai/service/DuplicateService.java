@@ -0,0 +1,113 @@
+package com.task.hwai.service;
+
+import com.task.hwai.entity.FileEntity;
+import com.task.hwai.repo.FileRepo;
+import com.task.hwai.repo.RunRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Near-duplicate detection for uploads. Page hashes are computed when the file is stored; completed
+ * (non-fallback) runs are kept in a {@link NearDuplicateIndex}. In {@code offer} mode a match is
+ * reported on the upload response; in {@code reuse} mode the run copies the matched extraction
+ * instead of running OCR and the LLM. Only the first {@code app.dedup.maxPages} pages are hashed:
+ * matches need the same real page count, and a file with unhashed pages is never reused.
+ */
+@Service
+public class DuplicateService {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicateService.class);
+
+    public enum Mode { OFF, OFFER, REUSE }
+
+    private final FileRepo fileRepo;
+    private final RunRepo runRepo;
+    private final NearDuplicateIndex index = new NearDuplicateIndex();
+    private final Mode mode;
+
+    @Value("${app.dedup.maxDistance:6}")
+    private int maxDistance = 6;
+
+    @Value("${app.dedup.maxPages:32}")
+    private int maxPages = 32;
+
+    public DuplicateService(FileRepo fileRepo, RunRepo runRepo, @Value("${app.dedup.mode:offer}") String mode) {
+        this.fileRepo = fileRepo;
+        this.runRepo = runRepo;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase());
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (mode == Mode.OFF) return;
+        long t0 = System.currentTimeMillis();
+        int n = 0;
+        for (Object[] row : runRepo.findReusableHashes()) {
+            int pages = pagesOf((Integer) row[1], (long[]) row[2]);
+            if (pages < 0) continue;
+            index.add((UUID) row[0], pages, (long[]) row[2]);
+            n++;
+        }
+        log.info("near-duplicate index loaded runs={} ms={}", n, System.currentTimeMillis() - t0);
+    }
+
+    /** Page hashes of a stored file, or {@code null} when disabled or the file can't be decoded. */
+    public PerceptualHash.FileHashes hash(Path path) {
+        if (mode == Mode.OFF) return null;
+        try {
+            var hashes = PerceptualHash.ofFile(path, maxPages);
+            return hashes.hashes().length == 0 ? null : hashes;
+        } catch (Exception e) {
+            log.debug("perceptual hash failed for {}: {}", path.getFileName(), e.toString());
+            return null;
+        }
+    }
+
+    public NearDuplicateIndex.Match find(FileEntity file) {
+        if (mode == Mode.OFF || file.getPageHashes() == null) return null;
+        int pages = pagesOf(file.getPages(), file.getPageHashes());
+        return pages < 0 ? null : index.nearest(pages, file.getPageHashes(), maxDistance);
+    }
+
+    /**
+     * The match to reuse for a file about to be processed, only in {@code reuse} mode and only if
+     * every page of the file was hashed: pages past {@code maxPages} could differ.
+     */
+    public NearDuplicateIndex.Match reusable(UUID fileId) {
+        if (mode != Mode.REUSE) return null;
+        return fileRepo.findById(fileId)
+                .filter(f -> f.getPageHashes() != null && pagesOf(f.getPages(), f.getPageHashes()) == f.getPageHashes().length)
+                .map(this::find)
+                .orElse(null);
+    }
+
+    public void completed(UUID runId, UUID fileId) {
+        if (mode == Mode.OFF) return;
+        fileRepo.findById(fileId).ifPresent(f -> {
+            int pages = f.getPageHashes() == null ? -1 : pagesOf(f.getPages(), f.getPageHashes());
+            if (pages >= 0) index.add(runId, pages, f.getPageHashes());
+        });
+    }
+
+    public void removed(UUID runId) {
+        index.remove(runId);
+    }
+
+    // files hashed before the page count was stored: fewer hashes than maxPages means all pages
+    // were hashed; a full set may have been cut short, so its real count is unknown (-1)
+    private int pagesOf(Integer pages, long[] hashes) {
+        if (pages != null) return pages;
+        return hashes.length < maxPages ? hashes.length : -1;
+    }
+}
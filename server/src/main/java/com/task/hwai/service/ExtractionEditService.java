@@ -0,0 +1,73 @@
+package com.task.hwai.service;
+
+import com.task.hwai.model.ConfidenceStats;
+import com.task.hwai.model.ExtractionResult;
+import com.task.hwai.repo.ExtractionRepo;
+import com.task.hwai.repo.RunRepo;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Replaces a run's whole extraction ({@code PUT /v1/extractions/{runId}}). The tables, the
+ * stored document, the field index and the rollups change in one transaction, so a failure at
+ * any step leaves all of them as they were.
+ */
+@Service
+public class ExtractionEditService {
+
+    private final ExtractionRepo extractionRepo;
+    private final RunRepo runRepo;
+    private final TableStore tables;
+    private final FieldIndexService fieldIndex;
+    private final AnalyticsService analytics;
+
+    public ExtractionEditService(ExtractionRepo extractionRepo, RunRepo runRepo, TableStore tables,
+                                 FieldIndexService fieldIndex, AnalyticsService analytics) {
+        this.extractionRepo = extractionRepo;
+        this.runRepo = runRepo;
+        this.tables = tables;
+        this.fieldIndex = fieldIndex;
+        this.analytics = analytics;
+    }
+
+    /**
+     * Stores {@code updated} as the run's extraction and returns it with table stubs, or empty if
+     * the run has no extraction. Tables sent with rows replace the stored ones and stubs
+     * ({@code table_id} only) keep them; a stub of a table that is not the run's own throws
+     * {@link IllegalArgumentException}.
+     */
+    @Transactional
+    public Optional<ExtractionResult> replace(UUID runId, ExtractionResult updated) {
+        var entity = extractionRepo.findByRunId(runId).orElse(null);
+        if (entity == null || !runRepo.existsById(runId)) return Optional.empty();
+
+        // retract the previous document from the rollups before overwriting it
+        ExtractionResult previous;
+        try {
+            previous = AgentService.OM.readValue(entity.getResultJson(), ExtractionResult.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("stored extraction of run " + runId + " is unreadable", e);
+        }
+        analytics.apply(entity.getDocumentType(), entity.getCreatedAt(),
+                RollupDelta.ofDocument(previous, entity.isFallback(), -1));
+
+        var stored = tables.store(runId, updated, null);
+        try {
+            entity.setResultJson(AgentService.OM.writeValueAsString(stored));
+        } catch (IOException e) {
+            throw new IllegalStateException("could not serialize extraction", e);
+        }
+        entity.setConfidenceStats(ConfidenceStats.of(updated));
+        entity.setDocumentType(updated.documentType());
+        extractionRepo.save(entity);
+
+        fieldIndex.index(runId, updated);
+        analytics.apply(updated.documentType(), entity.getCreatedAt(),
+                RollupDelta.ofDocument(updated, entity.isFallback(), 1));
+        return Optional.of(stored);
+    }
+}
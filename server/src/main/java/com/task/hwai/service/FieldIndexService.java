@@ -0,0 +1,107 @@
+package com.task.hwai.service;
+
+import com.task.hwai.entity.ExtractionFieldEntity;
+import com.task.hwai.model.ExtractionResult;
+import com.task.hwai.repo.ExtractionFieldRepo;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Maintains the {@code extraction_fields} side table and answers field-level searches from it.
+ */
+@Service
+public class FieldIndexService {
+
+    static final int MAX_VALUE_LENGTH = 1000;
+    static final int MAX_NORM_LENGTH = 255;
+
+    private final ExtractionFieldRepo fieldRepo;
+
+    public FieldIndexService(ExtractionFieldRepo fieldRepo) {
+        this.fieldRepo = fieldRepo;
+    }
+
+    /** Replaces all indexed fields of a run with the fields of {@code result}. */
+    @Transactional
+    public void index(UUID runId, ExtractionResult result) {
+        fieldRepo.deleteByRunId(runId);
+        if (result == null || result.pages() == null) return;
+
+        List<ExtractionFieldEntity> rows = new ArrayList<>();
+        for (var page : result.pages()) {
+            if (page == null || page.fields() == null) continue;
+            for (var field : page.fields()) {
+                if (field == null || field.name() == null) continue;
+                rows.add(toEntity(runId, result.documentType(), page.page(), field));
+            }
+        }
+        fieldRepo.saveAll(rows);
+    }
+
+    /** Re-indexes only the fields named {@code name} on one page, after a field-level edit. */
+    @Transactional
+    public void reindexField(UUID runId, String documentType, int page, String name,
+                             List<ExtractionResult.Field> current) {
+        fieldRepo.deleteByRunIdAndPageAndName(runId, page, name);
+        fieldRepo.saveAll(current.stream().map(f -> toEntity(runId, documentType, page, f)).toList());
+    }
+
+    @Transactional
+    public void updateDocumentType(UUID runId, String documentType) {
+        fieldRepo.updateDocumentType(runId, documentType);
+    }
+
+    @Transactional
+    public void remove(UUID runId) {
+        fieldRepo.deleteByRunId(runId);
+    }
+
+    /**
+     * Finds indexed fields matching every non-null predicate. Only the predicates that were
+     * supplied end up in the SQL, so the name/value and name/confidence indexes stay usable.
+     */
+    @Transactional(readOnly = true)
+    public List<ExtractionFieldEntity> search(String name, String value, String documentType,
+                                              Double minConfidence, Double maxConfidence, int limit) {
+        Specification<ExtractionFieldEntity> spec = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (name != null && !name.isBlank()) predicates.add(cb.equal(root.get("name"), name));
+            if (value != null) predicates.add(cb.equal(root.get("valueNorm"), normalize(value)));
+            if (documentType != null && !documentType.isBlank()) predicates.add(cb.equal(root.get("documentType"), documentType));
+            if (minConfidence != null) predicates.add(cb.greaterThanOrEqualTo(root.get("confidence"), minConfidence));
+            if (maxConfidence != null) predicates.add(cb.lessThanOrEqualTo(root.get("confidence"), maxConfidence));
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+        return fieldRepo.findAll(spec, PageRequest.of(0, limit, Sort.by("id"))).getContent();
+    }
+
+    private static ExtractionFieldEntity toEntity(UUID runId, String documentType, int page, ExtractionResult.Field field) {
+        String value = field.value() == null ? null : String.valueOf(field.value());
+        var e = new ExtractionFieldEntity();
+        e.setRunId(runId);
+        e.setDocumentType(documentType);
+        e.setPage(page);
+        e.setName(field.name());
+        e.setValue(truncate(value, MAX_VALUE_LENGTH));
+        e.setValueNorm(value == null ? null : normalize(value));
+        e.setConfidence(field.confidence());
+        return e;
+    }
+
+    static String normalize(String value) {
+        return truncate(value.trim().toLowerCase(Locale.ROOT), MAX_NORM_LENGTH);
+    }
+
+    private static String truncate(String s, int max) {
+        return s == null || s.length() <= max ? s : s.substring(0, max);
+    }
+}
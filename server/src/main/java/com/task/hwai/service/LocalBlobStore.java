@@ -0,0 +1,72 @@
+package com.task.hwai.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/** Originals on the local disk under {@code app.storage.localDir}; the URI is the file path. */
+public class LocalBlobStore implements BlobStore {
+
+    private final Path baseDir;
+
+    public LocalBlobStore(Path baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    @Override
+    public String put(String key, Path source, String contentType) throws IOException {
+        Path target = baseDir.resolve(key);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        return target.toString();
+    }
+
+    @Override
+    public InputStream read(String uri, long offset, long length) throws IOException {
+        InputStream in = Files.newInputStream(Path.of(uri));
+        in.skipNBytes(offset);
+        return length < 0 ? in : new BoundedInputStream(in, length);
+    }
+
+    @Override
+    public long size(String uri) throws IOException {
+        return Files.size(Path.of(uri));
+    }
+
+    @Override
+    public boolean delete(String uri) throws IOException {
+        return Files.deleteIfExists(Path.of(uri));
+    }
+
+    @Override
+    public Path localPath(String uri) {
+        return Path.of(uri);
+    }
+
+    private static final class BoundedInputStream extends java.io.FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(buf, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.task.hwai.service;
+
+import com.task.hwai.model.ConfidenceStats;
+import com.task.hwai.model.ExtractionResult;
+import com.theokanning.openai.OpenAiHttpException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the model and completion budget for a run. Small documents start on the cheap model with
+ * a budget sized from the OCR text; large ones go straight to the strong model. A weak first answer
+ * (unparseable, truncated, low confidence, too many warnings) is escalated once. A call that got no
+ * answer at all (timeout, 429, 5xx) says nothing about the route and is retried on it with backoff.
+ */
+@Component
+public class ModelRouter {
+
+    public record Route(String model, int maxTokens, String reason) {}
+
+    @Value("${app.llm.routing.defaultModel:gpt-4o-mini}")
+    private String defaultModel = "gpt-4o-mini";
+
+    @Value("${app.llm.routing.strongModel:gpt-4o}")
+    private String strongModel = "gpt-4o";
+
+    @Value("${app.llm.routing.minTokens:512}")
+    private int minTokens = 512;
+
+    @Value("${app.llm.routing.maxTokens:4096}")
+    private int maxTokens = 4096;
+
+    // extracted JSON is roughly as long as the OCR text; ~4 chars per token, doubled for JSON overhead
+    @Value("${app.llm.routing.tokensPerOcrChar:0.5}")
+    private double tokensPerOcrChar = 0.5;
+
+    @Value("${app.llm.routing.largeDocumentChars:8000}")
+    private long largeDocumentChars = 8000;
+
+    @Value("${app.llm.routing.largeDocumentPages:4}")
+    private int largeDocumentPages = 4;
+
+    @Value("${app.llm.routing.escalate:true}")
+    private boolean escalate = true;
+
+    @Value("${app.llm.routing.minConfidence:0.7}")
+    private double minConfidence = 0.7;
+
+    // document types where a mistake is expensive get a higher bar before we accept the cheap answer
+    @Value("${app.llm.routing.strictDocumentTypes:}")
+    private String strictDocumentTypes = "";
+
+    @Value("${app.llm.routing.strictMinConfidence:0.85}")
+    private double strictMinConfidence = 0.85;
+
+    @Value("${app.llm.routing.maxWarnings:2}")
+    private int maxWarnings = 2;
+
+    @Value("${app.llm.routing.transportRetries:2}")
+    private int transportRetries = 2;
+
+    @Value("${app.llm.routing.retryBackoffMs:500}")
+    private long retryBackoffMs = 500;
+
+    public Route initial(long ocrChars, int pages) {
+        int budget = budget(ocrChars);
+        if (ocrChars >= largeDocumentChars || pages >= largeDocumentPages) {
+            return new Route(strongModel, budget, "large_document");
+        }
+        return new Route(defaultModel, budget, "default");
+    }
+
+    /**
+     * Why the answer from {@code route} should be retried on a stronger route, or {@code null} to
+     * accept it. {@code outcome} is the call outcome (ok, error, empty, invalid_json); a failed call
+     * ({@code error}) is never escalated, see {@link #retryDelayMs}.
+     */
+    public String escalationReason(ExtractionResult result, String outcome, String finishReason) {
+        if (!escalate || "error".equals(outcome)) return null;
+        if ("length".equals(finishReason)) return "truncated";
+        if (result == null) return outcome;
+
+        ConfidenceStats stats = ConfidenceStats.of(result);
+        if (stats.count() == 0) return "no_fields";
+        if (stats.average() < threshold(result.documentType())) return "low_confidence";
+        if (result.warnings() != null && result.warnings().size() > maxWarnings) return "warnings";
+        return null;
+    }
+
+    /** The route to retry on, or {@code null} when there is nothing stronger to try. */
+    public Route escalate(Route from, String reason) {
+        int budget = "truncated".equals(reason) ? Math.min(maxTokens, from.maxTokens() * 2) : from.maxTokens();
+        if (from.model().equals(strongModel) && budget <= from.maxTokens()) return null;
+        return new Route(strongModel, budget, "escalated:" + reason);
+    }
+
+    /**
+     * How long to wait before the {@code retry}-th retry of a call that failed with {@code error},
+     * on the same route, or -1 to give up. The delay doubles from {@code retryBackoffMs}; requests
+     * the API rejected outright (4xx other than 408/429) are not retried.
+     */
+    public long retryDelayMs(Throwable error, int retry) {
+        if (retry < 1 || retry > transportRetries) return -1;
+        if (error instanceof OpenAiHttpException http && http.statusCode >= 400 && http.statusCode < 500
+                && http.statusCode != 408 && http.statusCode != 429) {
+            return -1;
+        }
+        return retryBackoffMs << Math.min(retry - 1, 10);
+    }
+
+    private double threshold(String documentType) {
+        return documentType != null && strictTypes().contains(documentType) ? strictMinConfidence : minConfidence;
+    }
+
+    private Set<String> strictTypes() {
+        return Arrays.stream(strictDocumentTypes.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    private int budget(long ocrChars) {
+        long estimate = minTokens + Math.round(ocrChars * tokensPerOcrChar);
+        return (int) Math.max(minTokens, Math.min(maxTokens, estimate));
+    }
+}
@@ -0,0 +1,149 @@
+package com.task.hwai.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * BK-tree over first-page perceptual hashes with Hamming distance, so a radius query only visits
+ * subtrees whose edge distance can still hold a match. Candidates are then checked page by page.
+ * Removing or re-adding a run leaves its old tree entry stale (skipped by queries); the tree is
+ * rebuilt from the live entries once stale ones outnumber them.
+ */
+public class NearDuplicateIndex {
+
+    public record Match(UUID runId, int distance) {}
+
+    // pages is the document's real page count; hashes may cover only its first pages
+    private record Entry(UUID runId, int pages, long[] hashes) {}
+
+    private static final class Node {
+        final long hash;
+        final List<Entry> entries = new ArrayList<>(1);
+        final Map<Integer, Node> children = new HashMap<>();
+
+        Node(long hash) {
+            this.hash = hash;
+        }
+    }
+
+    // stale entries are tolerated up to this many, or as many as there are live ones
+    private static final int MIN_STALE_TO_COMPACT = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // the current entry per run; tree entries that aren't here are stale
+    private final Map<UUID, Entry> live = new HashMap<>();
+    private int stale;
+    private Node root;
+
+    public void add(UUID runId, int pages, long[] hashes) {
+        if (hashes == null || hashes.length == 0 || pages < hashes.length) return;
+        var entry = new Entry(runId, pages, hashes.clone());
+        lock.writeLock().lock();
+        try {
+            if (live.put(runId, entry) != null) stale++;
+            insert(entry);
+            compactIfStale();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID runId) {
+        lock.writeLock().lock();
+        try {
+            if (live.remove(runId) != null) stale++;
+            compactIfStale();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Closest indexed run with the same page count and the same number of hashed pages whose
+     * every hashed page is within {@code maxDistance}.
+     */
+    public Match nearest(int pages, long[] hashes, int maxDistance) {
+        if (hashes == null || hashes.length == 0) return null;
+        lock.readLock().lock();
+        try {
+            if (root == null) return null;
+            Match best = null;
+            List<Node> stack = new ArrayList<>();
+            stack.add(root);
+            while (!stack.isEmpty()) {
+                Node node = stack.remove(stack.size() - 1);
+                int d = PerceptualHash.distance(node.hash, hashes[0]);
+                if (d <= maxDistance) {
+                    for (Entry e : node.entries) {
+                        if (e.pages != pages || e.hashes.length != hashes.length || live.get(e.runId) != e) continue;
+                        int worst = worstPage(e.hashes, hashes, maxDistance);
+                        if (worst <= maxDistance && (best == null || worst < best.distance())) {
+                            best = new Match(e.runId, worst);
+                        }
+                    }
+                }
+                // triangle inequality: only children at edge distance d±maxDistance can match
+                for (var child : node.children.entrySet()) {
+                    if (Math.abs(child.getKey() - d) <= maxDistance) stack.add(child.getValue());
+                }
+            }
+            return best;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(Entry entry) {
+        long first = entry.hashes[0];
+        if (root == null) {
+            root = new Node(first);
+            root.entries.add(entry);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int d = PerceptualHash.distance(node.hash, first);
+            if (d == 0) {
+                node.entries.add(entry);
+                return;
+            }
+            Node child = node.children.get(d);
+            if (child == null) {
+                child = new Node(first);
+                child.entries.add(entry);
+                node.children.put(d, child);
+                return;
+            }
+            node = child;
+        }
+    }
+
+    // a BK-tree can't drop nodes in place; once stale entries are as many as live ones, rebuild
+    private void compactIfStale() {
+        if (stale < Math.max(MIN_STALE_TO_COMPACT, live.size())) return;
+        root = null;
+        stale = 0;
+        for (Entry e : live.values()) insert(e);
+    }
+
+    private static int worstPage(long[] a, long[] b, int maxDistance) {
+        int worst = 0;
+        for (int i = 0; i < a.length && worst <= maxDistance; i++) {
+            worst = Math.max(worst, PerceptualHash.distance(a[i], b[i]));
+        }
+        return worst;
+    }
+}
@@ -1,5 +1,6 @@
 package com.task.hwai.service;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
@@ -8,6 +9,52 @@ public interface OcrTool {
 
     List<PageResult> extract(Path path) throws Exception;
 
+    /** Number of pages {@link #extractPage} can be asked for. */
+    default int pageCount(Path path) throws Exception {
+        return 1;
+    }
+
+    /** OCR of one page (1-based), so callers can checkpoint page by page. */
+    default PageResult extractPage(Path path, int page) throws Exception {
+        var pages = extract(path);
+        if (page < 1 || page > pages.size()) throw new IllegalArgumentException("no page " + page + " in " + path);
+        return pages.get(page - 1);
+    }
+
+    /**
+     * Opens {@code path} for OCR page by page, so a multi-page file is parsed once per run rather
+     * than once per page. By default every page goes through {@link #extractPage(Path, int)}.
+     */
+    default Document open(Path path) throws Exception {
+        int count = pageCount(path);
+        return new Document() {
+            @Override
+            public int pageCount() {
+                return count;
+            }
+
+            @Override
+            public PageResult extractPage(int page) throws Exception {
+                return OcrTool.this.extractPage(path, page);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /** A file opened by {@link #open}; used by one thread at a time. */
+    interface Document extends AutoCloseable {
+        int pageCount();
+
+        /** OCR of one page (1-based). */
+        PageResult extractPage(int page) throws Exception;
+
+        @Override
+        void close() throws IOException;
+    }
+
     record Token(String text, double x, double y, double w, double h, Double confidence) {
         // Convenience constructor: allow creating a Token with only text and confidence.
         public Token(String text, double confidence) {
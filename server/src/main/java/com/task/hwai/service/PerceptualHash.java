@@ -0,0 +1,147 @@
+package com.task.hwai.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * 64-bit DCT perceptual hash (pHash) of a page image: the page is reduced to a 32x32 grid of mean
+ * luminance, and each bit says whether one of the 8x8 lowest DCT frequencies is above their median.
+ * It follows the page layout rather than the pixels, so re-scans and photos of the same page land a
+ * few bits apart while different pages land far apart. Compare with {@link #distance(long, long)}.
+ */
+public final class PerceptualHash {
+
+    private static final int N = 32;
+    private static final int LOW = 8;
+    private static final double[][] COS = new double[LOW][N];
+
+    static {
+        for (int u = 0; u < LOW; u++) {
+            for (int x = 0; x < N; x++) COS[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * N));
+        }
+    }
+
+    // decode large scans subsampled to about this many pixels on the short side
+    private static final int DECODE_SIZE = 128;
+    private static final float PDF_DPI = 24f;
+
+    private PerceptualHash() {}
+
+    /** Hashes of a file's first pages and its real page count, which may be larger. */
+    public record FileHashes(int pages, long[] hashes) {
+        static final FileHashes NONE = new FileHashes(0, new long[0]);
+    }
+
+    /**
+     * One hash per page, up to {@code maxPages}, with the page count of the whole file; no hashes
+     * if the file is not a readable image or PDF.
+     */
+    public static FileHashes ofFile(Path path, int maxPages) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".pdf")) {
+            try (PDDocument doc = PDDocument.load(path.toFile())) {
+                int pages = Math.min(maxPages, doc.getNumberOfPages());
+                long[] hashes = new long[pages];
+                PDFRenderer renderer = new PDFRenderer(doc);
+                for (int i = 0; i < pages; i++) {
+                    hashes[i] = of(renderer.renderImageWithDPI(i, PDF_DPI, ImageType.GRAY));
+                }
+                return new FileHashes(doc.getNumberOfPages(), hashes);
+            }
+        }
+        BufferedImage image = readSubsampled(path);
+        return image == null ? FileHashes.NONE : new FileHashes(1, new long[] { of(image) });
+    }
+
+    public static long of(BufferedImage image) {
+        double[][] grid = luminanceGrid(image);
+
+        // separable 2D DCT-II; only the 8x8 lowest frequencies are needed
+        double[][] rows = new double[N][LOW];
+        for (int y = 0; y < N; y++) {
+            for (int u = 0; u < LOW; u++) {
+                double sum = 0;
+                for (int x = 0; x < N; x++) sum += grid[y][x] * COS[u][x];
+                rows[y][u] = sum;
+            }
+        }
+        double[] coeffs = new double[LOW * LOW];
+        for (int v = 0; v < LOW; v++) {
+            for (int u = 0; u < LOW; u++) {
+                double sum = 0;
+                for (int y = 0; y < N; y++) sum += rows[y][u] * COS[v][y];
+                coeffs[v * LOW + u] = sum;
+            }
+        }
+
+        // median without the DC term, which only carries overall brightness
+        double[] sorted = java.util.Arrays.copyOfRange(coeffs, 1, coeffs.length);
+        java.util.Arrays.sort(sorted);
+        double median = sorted[sorted.length / 2];
+
+        long hash = 0;
+        for (int i = 0; i < coeffs.length; i++) {
+            hash <<= 1;
+            if (coeffs[i] > median) hash |= 1;
+        }
+        return hash;
+    }
+
+    // mean luminance over an N x N grid of cells (area average, so speckle noise washes out)
+    private static double[][] luminanceGrid(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        double[][] grid = new double[N][N];
+        for (int cy = 0; cy < N; cy++) {
+            int y0 = cy * h / N, y1 = Math.max(y0 + 1, (cy + 1) * h / N);
+            for (int cx = 0; cx < N; cx++) {
+                int x0 = cx * w / N, x1 = Math.max(x0 + 1, (cx + 1) * w / N);
+                long sum = 0;
+                int n = 0;
+                for (int y = y0; y < y1 && y < h; y++) {
+                    for (int x = x0; x < x1 && x < w; x++) {
+                        int rgb = image.getRGB(x, y);
+                        sum += (((rgb >> 16) & 0xff) * 299 + ((rgb >> 8) & 0xff) * 587 + (rgb & 0xff) * 114) / 1000;
+                        n++;
+                    }
+                }
+                grid[cy][cx] = n == 0 ? 0 : (double) sum / n;
+            }
+        }
+        return grid;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // subsampled decode: reads every n-th pixel instead of decoding the full scan
+    private static BufferedImage readSubsampled(Path path) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int shortSide = Math.min(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, shortSide / DECODE_SIZE);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
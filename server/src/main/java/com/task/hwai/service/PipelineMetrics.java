@@ -0,0 +1,251 @@
+package com.task.hwai.service;
+
+import com.task.hwai.model.Flow;
+import com.task.hwai.model.RunPriority;
+import com.task.hwai.model.RunStatus;
+import com.task.hwai.repo.RunRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Meters for the upload → OCR → LLM → persist pipeline, scraped from {@code /actuator/prometheus}.
+ * Histograms use fixed buckets bounded by the expected range, and tagged meters are registered
+ * once per tag combination and then looked up in a map, so recording stays allocation free.
+ */
+@Component
+public class PipelineMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineMetrics.class);
+
+    private final MeterRegistry registry;
+    private final Counter uploads;
+    private final Counter uploadBytes;
+    private final Counter promptTokens;
+    private final Counter completionTokens;
+    private final Timer ocrLatency;
+    private final DistributionSummary ocrPages;
+    private final Counter ocrFailures;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // smoothed run duration, used to estimate how long a backlog takes to drain
+    private volatile double avgRunMs = 0;
+    // JVM start to the first completed run: what a freshly scaled-out instance costs before it is useful
+    private final AtomicBoolean firstDocumentSeen = new AtomicBoolean();
+    private volatile double firstDocumentSeconds = Double.NaN;
+    // clients that get their own queue-wait series; the rest are tagged "other" to bound cardinality
+    private final Set<String> taggedClients = ConcurrentHashMap.newKeySet();
+
+    private final Map<RunStatus, Map<String, Timer>> runTimers = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Timer>> llmTimers = new ConcurrentHashMap<>();
+    private final Map<RunPriority, Map<String, Timer>> queueWaitTimers = new ConcurrentHashMap<>();
+    private final Map<RunPriority, Map<WorkSlots.Stage, Timer>> slotWaitTimers = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Counter>> counters = new ConcurrentHashMap<>();
+    // registration on a cache miss; fields so that a hit does not allocate a method reference
+    private final BiFunction<RunStatus, String, Timer> registerRunTimer = this::registerRunTimer;
+    private final BiFunction<String, String, Timer> registerLlmTimer = this::registerLlmTimer;
+    private final BiFunction<RunPriority, String, Timer> registerQueueWaitTimer = this::registerQueueWaitTimer;
+    private final BiFunction<RunPriority, WorkSlots.Stage, Timer> registerSlotWaitTimer = this::registerSlotWaitTimer;
+
+    @Value("${app.scheduler.metricClients:50}")
+    private int maxTaggedClients = 50;
+
+    public PipelineMetrics(MeterRegistry registry, RunRepo runRepo) {
+        this.registry = registry;
+        this.uploads = Counter.builder("hwai.uploads").description("Accepted uploads").register(registry);
+        this.uploadBytes = Counter.builder("hwai.upload.bytes").baseUnit("bytes").register(registry);
+        this.promptTokens = Counter.builder("hwai.llm.tokens").tag("type", "prompt").register(registry);
+        this.completionTokens = Counter.builder("hwai.llm.tokens").tag("type", "completion").register(registry);
+        this.ocrLatency = Timer.builder("hwai.ocr.duration")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofMinutes(2))
+                .register(registry);
+        this.ocrPages = DistributionSummary.builder("hwai.ocr.pages").register(registry);
+        this.ocrFailures = Counter.builder("hwai.ocr.failures").register(registry);
+
+        Gauge.builder("hwai.runs.queued", runRepo, r -> r.countByStatus(RunStatus.QUEUED))
+                .description("Runs waiting to be processed")
+                .register(registry);
+        Gauge.builder("hwai.runs.in_flight", inFlight, AtomicInteger::get)
+                .description("Runs currently being processed")
+                .register(registry);
+        Gauge.builder("hwai.startup.first_document", this, m -> m.firstDocumentSeconds)
+                .description("Seconds from JVM start until the first run completed (NaN until then)")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    public void upload(long bytes) {
+        uploads.increment();
+        uploadBytes.increment(bytes);
+    }
+
+    public void runStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /** Terminal status of a run; {@code outcome} distinguishes e.g. "fallback" from a normal completion. */
+    public void runFinished(RunStatus status, String outcome, long durationMs) {
+        inFlight.decrementAndGet();
+        if (status == RunStatus.COMPLETED && firstDocumentSeen.compareAndSet(false, true)) {
+            long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+            firstDocumentSeconds = (System.currentTimeMillis() - jvmStart) / 1000.0;
+            log.info("first document processed {}s after JVM start", firstDocumentSeconds);
+        }
+        double avg = avgRunMs;
+        avgRunMs = avg == 0 ? durationMs : avg + 0.1 * (durationMs - avg);
+        meter(runTimers, status, outcome, registerRunTimer).record(durationMs, TimeUnit.MILLISECONDS);
+    }
+
+    private Timer registerRunTimer(RunStatus status, String outcome) {
+        return Timer.builder("hwai.run.duration")
+                .tag("status", status.name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(50))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(registry);
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /** Exponentially weighted average run duration, or 0 before the first run finished. */
+    public double averageRunMs() {
+        return avgRunMs;
+    }
+
+    public void uploadRejected(String reason) {
+        counter("hwai.uploads.rejected", "reason", reason).increment();
+    }
+
+    public void fallback(String reason) {
+        counter("hwai.runs.fallback", "reason", reason).increment();
+    }
+
+    public void ocr(long durationNanos, int pages) {
+        ocrLatency.record(durationNanos, TimeUnit.NANOSECONDS);
+        ocrPages.record(pages);
+    }
+
+    public void ocrFailed() {
+        ocrFailures.increment();
+    }
+
+    public void llm(String model, String outcome, long durationNanos) {
+        meter(llmTimers, model, outcome, registerLlmTimer).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer registerLlmTimer(String model, String outcome) {
+        return Timer.builder("hwai.llm.duration")
+                .tag("model", model)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(100))
+                .maximumExpectedValue(Duration.ofMinutes(2))
+                .register(registry);
+    }
+
+    /** Time a run spent QUEUED before a worker took it, per client and priority class. */
+    public void queueWait(Flow flow, long millis) {
+        queueWaitTimer(flow).record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /** p95 of {@link #queueWait} for {@code flow} over the recent window, in ms; NaN before any run was taken. */
+    public double queueWaitP95Ms(Flow flow) {
+        for (var p : queueWaitTimer(flow).takeSnapshot().percentileValues()) {
+            if (p.percentile() == 0.95) return p.value(TimeUnit.MILLISECONDS);
+        }
+        return Double.NaN;
+    }
+
+    private Timer queueWaitTimer(Flow flow) {
+        String client = flow.clientId();
+        if (!taggedClients.contains(client)) {
+            client = taggedClients.size() < maxTaggedClients && taggedClients.add(client) ? client : "other";
+        }
+        return meter(queueWaitTimers, flow.priority(), client, registerQueueWaitTimer);
+    }
+
+    private Timer registerQueueWaitTimer(RunPriority priority, String client) {
+        return Timer.builder("hwai.scheduler.queue.wait")
+                .description("Time from upload (or retry) until a worker starts the run")
+                .tag("client", client)
+                .tag("priority", priority.name())
+                .publishPercentiles(0.5, 0.95)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofHours(6))
+                .register(registry);
+    }
+
+    /** Time spent waiting for an OCR or LLM slot inside a run. */
+    public void slotWait(WorkSlots.Stage stage, RunPriority priority, long durationNanos) {
+        meter(slotWaitTimers, priority, stage, registerSlotWaitTimer).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer registerSlotWaitTimer(RunPriority priority, WorkSlots.Stage stage) {
+        return Timer.builder("hwai.scheduler.slot.wait")
+                .tag("stage", stage.name().toLowerCase())
+                .tag("priority", priority.name())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(registry);
+    }
+
+    public void storageReclaimed(String reason, long bytes) {
+        counter("hwai.storage.reclaimed.files", "reason", reason).increment();
+        counter("hwai.storage.reclaimed.bytes", "reason", reason).increment(bytes);
+    }
+
+    public void blobCache(String outcome) {
+        counter("hwai.storage.cache.requests", "outcome", outcome).increment();
+    }
+
+    public void reprocessed(String outcome) {
+        counter("hwai.reprocess.items", "outcome", outcome).increment();
+    }
+
+    public void escalation(String reason) {
+        counter("hwai.llm.escalations", "reason", reason).increment();
+    }
+
+    public void tokens(long prompt, long completion) {
+        promptTokens.increment(prompt);
+        completionTokens.increment(completion);
+    }
+
+    // a counter with one tag; each name is only ever used with one tag key
+    private Counter counter(String name, String tag, String value) {
+        Map<String, Counter> byValue = counters.get(name);
+        if (byValue == null) byValue = counters.computeIfAbsent(name, k -> new ConcurrentHashMap<>());
+        Counter counter = byValue.get(value);
+        return counter != null ? counter : byValue.computeIfAbsent(value, v -> registry.counter(name, tag, v));
+    }
+
+    // the meter for tags (a, b), registered on first use; a hit is two map lookups
+    private static <A, B, M> M meter(Map<A, Map<B, M>> cache, A a, B b, BiFunction<A, B, M> register) {
+        Map<B, M> inner = cache.get(a);
+        if (inner == null) inner = cache.computeIfAbsent(a, k -> new ConcurrentHashMap<>());
+        M meter = inner.get(b);
+        return meter != null ? meter : inner.computeIfAbsent(b, k -> register.apply(a, k));
+    }
+}
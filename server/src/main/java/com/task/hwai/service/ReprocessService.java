@@ -0,0 +1,250 @@
+package com.task.hwai.service;
+
+import com.task.hwai.entity.ReprocessJobEntity;
+import com.task.hwai.model.JobStatus;
+import com.task.hwai.model.ReprocessRequest;
+import com.task.hwai.model.RunStatus;
+import com.task.hwai.repo.FileRepo;
+import com.task.hwai.repo.ReprocessJobRepo;
+import com.task.hwai.repo.RunRepo;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bulk reprocessing jobs: extraction again over the stored files of runs matching a filter,
+ * archiving each replaced extraction. Jobs run one at a time on a background dispatcher; within a
+ * job at most {@code parallelism} runs are in flight, starts are paced to {@code ratePerMinute},
+ * and the job pauses while live uploads are waiting, so interactive traffic keeps priority.
+ * Progress lives in the database and a restart continues with the items still pending.
+ */
+@Service
+public class ReprocessService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReprocessService.class);
+    private static final Set<RunStatus> LIVE = EnumSet.of(RunStatus.QUEUED, RunStatus.PROCESSING);
+    private static final UUID FIRST = new UUID(0L, 0L);
+
+    private final ReprocessJobRepo jobRepo;
+    private final RunRepo runRepo;
+    private final FileRepo fileRepo;
+    private final AgentService agent;
+    private final PipelineMetrics metrics;
+    private final StorageService storage;
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "reprocess-dispatcher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Set<UUID> cancelRequested = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.reprocess.defaultParallelism:2}")
+    private int defaultParallelism = 2;
+
+    @Value("${app.reprocess.maxParallelism:4}")
+    private int maxParallelism = 4;
+
+    @Value("${app.reprocess.defaultRatePerMinute:60}")
+    private int defaultRatePerMinute = 60;
+
+    @Value("${app.reprocess.maxRatePerMinute:600}")
+    private int maxRatePerMinute = 600;
+
+    // live QUEUED/PROCESSING runs above which a job stops starting new items until they drain
+    @Value("${app.reprocess.yieldAbovePendingRuns:20}")
+    private long yieldAbovePendingRuns = 20;
+
+    @Value("${app.reprocess.batchSize:200}")
+    private int batchSize = 200;
+
+    public ReprocessService(ReprocessJobRepo jobRepo, RunRepo runRepo, FileRepo fileRepo, AgentService agent,
+                            PipelineMetrics metrics, StorageService storage) {
+        this.jobRepo = jobRepo;
+        this.runRepo = runRepo;
+        this.fileRepo = fileRepo;
+        this.agent = agent;
+        this.metrics = metrics;
+        this.storage = storage;
+    }
+
+    /** Creates the job, snapshots the matching runs into it and queues it behind any running job. */
+    public ReprocessJobEntity create(ReprocessRequest req) {
+        Instant from = req.from() == null ? Instant.EPOCH : req.from();
+        Instant to = req.to() == null ? Instant.now() : req.to();
+        if (!from.isBefore(to)) throw new IllegalArgumentException("from must be before to");
+        if (req.maxConfidence() != null && (req.maxConfidence() <= 0 || req.maxConfidence() > 1)) {
+            throw new IllegalArgumentException("maxConfidence must be in (0, 1]");
+        }
+
+        var job = new ReprocessJobEntity();
+        job.setFrom(from);
+        job.setTo(to);
+        job.setDocumentType(req.documentType() == null || req.documentType().isBlank() ? null : req.documentType());
+        job.setMaxConfidence(req.maxConfidence());
+        job.setParallelism(clamp(req.parallelism(), defaultParallelism, maxParallelism));
+        job.setRatePerMinute(clamp(req.ratePerMinute(), defaultRatePerMinute, maxRatePerMinute));
+        jobRepo.save(job);
+
+        job.setTotal(jobRepo.addItems(job.getJobId(), from, to, job.getDocumentType(), job.getMaxConfidence()));
+        job.setSkipped(jobRepo.countPurged(from, to, job.getDocumentType(), job.getMaxConfidence()));
+        job = jobRepo.save(job);
+        log.info("reprocess job {} created total={} skipped={} parallelism={} ratePerMinute={}",
+                job.getJobId(), job.getTotal(), job.getSkipped(), job.getParallelism(), job.getRatePerMinute());
+
+        UUID jobId = job.getJobId();
+        dispatcher.execute(() -> execute(jobId));
+        return job;
+    }
+
+    /** Stops a queued or running job; items already in flight finish, the rest stay pending. */
+    public boolean cancel(UUID jobId) {
+        if (jobRepo.cancel(jobId, Instant.now()) == 0) return false;
+        cancelRequested.add(jobId);
+        log.info("reprocess job {} cancelled", jobId);
+        return true;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        for (var job : jobRepo.findByStatusInOrderByCreatedAt(EnumSet.of(JobStatus.QUEUED, JobStatus.RUNNING))) {
+            log.info("resuming reprocess job {} ({} of {} done)", job.getJobId(),
+                    job.getSucceeded() + job.getFailed(), job.getTotal());
+            UUID jobId = job.getJobId();
+            dispatcher.execute(() -> execute(jobId));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // in-flight items are interrupted and stay PENDING for the next start
+        dispatcher.shutdownNow();
+    }
+
+    private void execute(UUID jobId) {
+        if (jobRepo.start(jobId, Instant.now()) == 0) {
+            cancelRequested.remove(jobId);
+            return;
+        }
+        var job = jobRepo.findById(jobId).orElseThrow();
+        int parallelism = job.getParallelism();
+        var pacer = new Pacer(job.getRatePerMinute());
+        var slots = new Semaphore(parallelism);
+        AtomicInteger workerNo = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "reprocess-" + workerNo.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+
+        try {
+            UUID after = FIRST;
+            List<UUID> batch;
+            while (!cancelRequested.contains(jobId) && !(batch = pending(jobId, after)).isEmpty()) {
+                for (UUID runId : batch) {
+                    if (cancelRequested.contains(jobId)) break;
+                    yieldToLiveTraffic(jobId);
+                    pacer.acquire();
+                    slots.acquire();
+                    // a cancel that arrived while waiting for a slot leaves this item pending too
+                    if (cancelRequested.contains(jobId)) {
+                        slots.release();
+                        break;
+                    }
+                    workers.execute(() -> {
+                        try {
+                            reprocessOne(jobId, runId);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                }
+                after = batch.get(batch.size() - 1);
+            }
+            slots.acquire(parallelism);
+            if (!cancelRequested.contains(jobId) && jobRepo.complete(jobId, Instant.now()) > 0) {
+                var done = jobRepo.findById(jobId).orElse(job);
+                log.info("reprocess job {} completed succeeded={} failed={}", jobId, done.getSucceeded(), done.getFailed());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // the job stays RUNNING and is picked up again on the next start
+            log.error("reprocess job {} stopped", jobId, e);
+        } finally {
+            workers.shutdownNow();
+            cancelRequested.remove(jobId);
+        }
+    }
+
+    private List<UUID> pending(UUID jobId, UUID after) {
+        return jobRepo.pendingItems(jobId, after, batchSize).stream().map(UUID::fromString).toList();
+    }
+
+    private void reprocessOne(UUID jobId, UUID runId) {
+        try {
+            var run = runRepo.findById(runId).orElse(null);
+            if (run == null || run.getStatus() != RunStatus.COMPLETED) {
+                throw new IllegalStateException("run " + runId + " is no longer COMPLETED");
+            }
+            var file = fileRepo.findById(run.getFileId())
+                    .orElseThrow(() -> new IllegalStateException("file of run " + runId + " not found"));
+            try (var original = storage.open(file)) {
+                agent.reprocess(file.getFileId(), runId, original.path(), jobId);
+            }
+            jobRepo.markItem(jobId, runId, "DONE");
+            jobRepo.addSucceeded(jobId);
+            metrics.reprocessed("succeeded");
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) return; // shutting down: leave the item pending
+            log.warn("reprocess job {} run {} failed: {}", jobId, runId, e.toString());
+            jobRepo.markItem(jobId, runId, "FAILED");
+            jobRepo.addFailed(jobId, AgentService.errorText(e));
+            metrics.reprocessed("failed");
+        }
+    }
+
+    private void yieldToLiveTraffic(UUID jobId) throws InterruptedException {
+        while (!cancelRequested.contains(jobId) && runRepo.countByStatusIn(LIVE) > yieldAbovePendingRuns) {
+            TimeUnit.SECONDS.sleep(1);
+        }
+    }
+
+    private static int clamp(Integer requested, int fallback, int max) {
+        int value = requested == null || requested < 1 ? fallback : requested;
+        return Math.min(value, max);
+    }
+
+    // spaces item starts evenly instead of letting a minute's budget go out in one burst
+    private static final class Pacer {
+        private final long intervalNanos;
+        private long next = System.nanoTime();
+
+        Pacer(int perMinute) {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+        }
+
+        void acquire() throws InterruptedException {
+            long now = System.nanoTime();
+            if (next > now) TimeUnit.NANOSECONDS.sleep(next - now);
+            next = Math.max(next, now) + intervalNanos;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.task.hwai.service;
+
+import com.task.hwai.model.ConfidenceStats;
+import com.task.hwai.model.ExtractionResult;
+
+/**
+ * Change to apply to one confidence rollup bucket. Writes add a document, deletes subtract it,
+ * and field-level edits move single fields between histogram bins.
+ */
+public final class RollupDelta {
+
+    /** Field confidence histogram: 20 bins of width 0.05 over [0, 1]. */
+    public static final int BINS = 20;
+
+    long documents;
+    long fallbacks;
+    double avgConfidenceSum;
+    long fieldCount;
+    double fieldConfidenceSum;
+    final long[] histogram = new long[BINS];
+
+    public static RollupDelta ofDocument(ExtractionResult result, boolean fallback, int sign) {
+        var d = new RollupDelta();
+        d.documents = sign;
+        d.fallbacks = fallback ? sign : 0;
+        d.avgConfidenceSum = sign * ConfidenceStats.of(result).average();
+        if (result != null && result.pages() != null) {
+            for (var page : result.pages()) {
+                if (page == null || page.fields() == null) continue;
+                for (var field : page.fields()) {
+                    if (field != null) d.addField(field.confidence(), sign);
+                }
+            }
+        }
+        return d;
+    }
+
+    public void addField(Double confidence, int sign) {
+        if (confidence == null) return;
+        fieldCount += sign;
+        fieldConfidenceSum += sign * confidence;
+        histogram[bin(confidence)] += sign;
+    }
+
+    /** Shift of the per-document average, e.g. after an edit changed it from {@code before} to {@code after}. */
+    public void moveAverage(double before, double after) {
+        avgConfidenceSum += after - before;
+    }
+
+    public RollupDelta plus(RollupDelta other) {
+        documents += other.documents;
+        fallbacks += other.fallbacks;
+        avgConfidenceSum += other.avgConfidenceSum;
+        fieldCount += other.fieldCount;
+        fieldConfidenceSum += other.fieldConfidenceSum;
+        for (int i = 0; i < BINS; i++) histogram[i] += other.histogram[i];
+        return this;
+    }
+
+    public boolean isEmpty() {
+        if (documents != 0 || fallbacks != 0 || fieldCount != 0) return false;
+        if (avgConfidenceSum != 0.0 || fieldConfidenceSum != 0.0) return false;
+        for (long c : histogram) if (c != 0) return false;
+        return true;
+    }
+
+    static int bin(double confidence) {
+        int b = (int) Math.floor(confidence * BINS);
+        return Math.max(0, Math.min(BINS - 1, b));
+    }
+}
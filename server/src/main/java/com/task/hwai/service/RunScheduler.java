@@ -0,0 +1,344 @@
+package com.task.hwai.service;
+
+import com.task.hwai.entity.RunEntity;
+import com.task.hwai.model.ExtractionResult;
+import com.task.hwai.model.Flow;
+import com.task.hwai.model.RunPriority;
+import com.task.hwai.repo.FileRepo;
+import com.task.hwai.repo.RunRepo;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes QUEUED runs on a fixed pool of workers, sharing them between flows (a client's runs
+ * of one priority class) by weighted fair queuing: each run gets a virtual finish tag of
+ * {@code max(now, flow's last tag) + pages / weight}, and a free worker takes the run with the
+ * smallest tag. A client uploading thousands of batch pages therefore gets its weighted share
+ * and no more, while a one-page interactive form is served next. A client never has more than
+ * {@code maxRunsPerClient} runs in progress; OCR and LLM calls within a run are further capped
+ * per client by {@link WorkSlots}.
+ * <p>
+ * Several instances can share one database. Each polls it for QUEUED runs, so a run uploaded to
+ * one instance can be processed by any, and the atomic QUEUED to PROCESSING claim decides which
+ * one does. A claimed run carries a lease that its instance renews while working; a run whose
+ * lease ran out (its instance crashed or was stopped) is queued again by whichever instance polls
+ * next, and resumes from its page checkpoints.
+ */
+@Service
+public class RunScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(RunScheduler.class);
+
+    /** A flow's queue and who is running, for {@code GET /v1/scheduler}. */
+    public record FlowState(String clientId, RunPriority priority, int queued, int running,
+                            Long oldestWaitMs, Double waitP95Ms) {}
+
+    record Entry(UUID runId, UUID fileId, Flow flow, Instant queuedAt, double startTag, double finishTag,
+                 CompletableFuture<ExtractionResult> done) {}
+
+    private final RunRepo runRepo;
+    private final FileRepo fileRepo;
+    private final AgentService agent;
+    private final StorageService storage;
+    private final PipelineMetrics metrics;
+    private final int workers;
+    private final ExecutorService pool;
+    private final ScheduledExecutorService leases = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "run-leases");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // guarded by this
+    private final Map<Flow, ArrayDeque<Entry>> queues = new LinkedHashMap<>();
+    private final Map<Flow, Double> lastTag = new HashMap<>();
+    private final Map<Flow, Integer> runningByFlow = new HashMap<>();
+    private final Map<String, Integer> runningByClient = new HashMap<>();
+    private final Map<UUID, CompletableFuture<ExtractionResult>> pending = new HashMap<>();
+    private double virtualTime;
+
+    @Value("${app.scheduler.weights.interactive:8}")
+    private double interactiveWeight = 8;
+
+    @Value("${app.scheduler.weights.batch:1}")
+    private double batchWeight = 1;
+
+    // extra weight per client, e.g. "acme:4,archive:0.5"; unlisted clients have 1
+    @Value("${app.scheduler.clientWeights:}")
+    private String clientWeightsSpec = "";
+    private Map<String, Double> clientWeights;
+
+    @Value("${app.scheduler.maxRunsPerClient:4}")
+    private int maxRunsPerClient = 4;
+
+    // this instance in runs.lease_owner; when unset, the host name plus a random suffix per process
+    @Value("${app.scheduler.nodeId:}")
+    private String nodeId = "";
+
+    // how long a claim holds without renewal; it is renewed every third of that while the run works
+    @Value("${app.scheduler.lease:60s}")
+    private Duration lease = Duration.ofSeconds(60);
+
+    // how often runs queued on any instance, and runs whose lease ran out, are picked up
+    @Value("${app.scheduler.pollInterval:2s}")
+    private Duration pollInterval = Duration.ofSeconds(2);
+
+    public RunScheduler(RunRepo runRepo, FileRepo fileRepo, AgentService agent, StorageService storage,
+                        PipelineMetrics metrics, @Value("${app.scheduler.workers:8}") int workers) {
+        this.runRepo = runRepo;
+        this.fileRepo = fileRepo;
+        this.agent = agent;
+        this.storage = storage;
+        this.metrics = metrics;
+        this.workers = Math.max(1, workers);
+        AtomicInteger workerNo = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(this.workers, r -> {
+            Thread t = new Thread(r, "run-worker-" + workerNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (nodeId.isBlank()) nodeId = defaultNodeId();
+        log.info("scheduling runs as node {}", nodeId);
+        leases.scheduleWithFixedDelay(this::poll, 0, Math.max(100, pollInterval.toMillis()), TimeUnit.MILLISECONDS);
+        long renewEvery = Math.max(100, lease.toMillis() / 3);
+        leases.scheduleWithFixedDelay(this::renewLeases, renewEvery, renewEvery, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < workers; i++) pool.execute(this::work);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // interrupted runs are left PROCESSING and requeued once their lease runs out
+        leases.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Queues a newly uploaded (or retried) run of a file of {@code pages} pages (null if unknown);
+     * a run already queued is left where it is.
+     */
+    public void submit(RunEntity run, Integer pages) {
+        enqueue(run.getRunId(), run.getFileId(), new Flow(run.getClientId(), run.getPriority()),
+                run.getQueuedAt(), pages(pages));
+    }
+
+    /**
+     * Waits up to {@code timeout} for a QUEUED or PROCESSING run to finish, queueing it first if
+     * it isn't (a run retried through the repository, say). Returns the result, or {@code null}
+     * if the run failed, is still waiting, or was not this instance's to run.
+     */
+    public ExtractionResult await(RunEntity run, Duration timeout) throws InterruptedException {
+        CompletableFuture<ExtractionResult> done;
+        synchronized (this) {
+            done = pending.get(run.getRunId());
+        }
+        if (done == null) {
+            var file = fileRepo.findById(run.getFileId()).orElse(null);
+            done = enqueue(run.getRunId(), run.getFileId(), new Flow(run.getClientId(), run.getPriority()),
+                    run.getQueuedAt(), pages(file == null ? null : file.getPages()));
+        }
+        try {
+            return done.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        }
+    }
+
+    public synchronized List<FlowState> snapshot() {
+        Instant now = Instant.now();
+        var flows = new ArrayList<Flow>(queues.keySet());
+        for (Flow f : runningByFlow.keySet()) if (!queues.containsKey(f)) flows.add(f);
+        List<FlowState> states = new ArrayList<>(flows.size());
+        for (Flow f : flows) {
+            var queue = queues.get(f);
+            Entry oldest = queue == null ? null : queue.peekFirst();
+            double p95 = metrics.queueWaitP95Ms(f);
+            states.add(new FlowState(f.clientId(), f.priority(), queue == null ? 0 : queue.size(),
+                    runningByFlow.getOrDefault(f, 0),
+                    oldest == null ? null : Duration.between(oldest.queuedAt(), now).toMillis(),
+                    Double.isNaN(p95) ? null : p95));
+        }
+        return states;
+    }
+
+    public int workers() {
+        return workers;
+    }
+
+    /**
+     * Queues again the runs whose lease ran out, then schedules every QUEUED run not already
+     * scheduled here, including those uploaded to other instances. Page checkpoints survive, so an
+     * interrupted run resumes where it stopped.
+     */
+    void poll() {
+        try {
+            int requeued = runRepo.requeueExpired(Instant.now());
+            if (requeued > 0) log.info("requeued {} runs whose lease ran out", requeued);
+            for (Object[] row : runRepo.findQueued()) {
+                var flow = new Flow((String) row[2], (RunPriority) row[3]);
+                enqueue((UUID) row[0], (UUID) row[1], flow, (Instant) row[4], pages((Integer) row[5]));
+            }
+        } catch (RuntimeException e) {
+            log.warn("polling for queued runs failed: {}", e.toString());
+        }
+    }
+
+    void renewLeases() {
+        try {
+            runRepo.renewLeases(nodeId, Instant.now().plus(lease));
+        } catch (RuntimeException e) {
+            log.warn("renewing run leases failed: {}", e.toString());
+        }
+    }
+
+    private synchronized CompletableFuture<ExtractionResult> enqueue(UUID runId, UUID fileId, Flow flow,
+                                                                     Instant queuedAt, int pages) {
+        var existing = pending.get(runId);
+        if (existing != null) return existing;
+        // a flow that was idle starts at the current virtual time: no credit saved up while away
+        double start = Math.max(virtualTime, lastTag.getOrDefault(flow, 0.0));
+        double finish = start + pages / weight(flow);
+        lastTag.put(flow, finish);
+        var entry = new Entry(runId, fileId, flow, queuedAt == null ? Instant.now() : queuedAt, start, finish,
+                new CompletableFuture<>());
+        queues.computeIfAbsent(flow, f -> new ArrayDeque<>()).addLast(entry);
+        pending.put(runId, entry.done());
+        notifyAll();
+        return entry.done();
+    }
+
+    private void work() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Entry entry = take();
+                try {
+                    entry.done().complete(execute(entry));
+                } finally {
+                    finished(entry);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // the head with the smallest finish tag among flows whose client is under its cap
+    synchronized Entry take() throws InterruptedException {
+        while (true) {
+            Entry best = null;
+            for (var queue : queues.values()) {
+                Entry head = queue.peekFirst();
+                if (head == null || runningByClient.getOrDefault(head.flow().clientId(), 0) >= maxRunsPerClient) continue;
+                if (best == null || head.finishTag() < best.finishTag()) best = head;
+            }
+            if (best != null) {
+                Flow flow = best.flow();
+                var queue = queues.get(flow);
+                queue.pollFirst();
+                if (queue.isEmpty()) queues.remove(flow);
+                virtualTime = Math.max(virtualTime, best.startTag());
+                runningByFlow.merge(flow, 1, Integer::sum);
+                runningByClient.merge(flow.clientId(), 1, Integer::sum);
+                forgetIdleFlows();
+                return best;
+            }
+            wait();
+        }
+    }
+
+    synchronized void finished(Entry entry) {
+        pending.remove(entry.runId());
+        runningByFlow.computeIfPresent(entry.flow(), (k, n) -> n > 1 ? n - 1 : null);
+        runningByClient.computeIfPresent(entry.flow().clientId(), (k, n) -> n > 1 ? n - 1 : null);
+        notifyAll();
+    }
+
+    private ExtractionResult execute(Entry entry) {
+        Instant now = Instant.now();
+        try {
+            // claimed first, so a run another instance got to is dropped before its original is fetched
+            if (runRepo.claim(entry.runId(), nodeId, now, now.plus(lease)) == 0) return null;
+        } catch (RuntimeException e) {
+            log.warn("could not claim run {}, leaving it queued: {}", entry.runId(), e.toString());
+            return null;
+        }
+        long waitMs = Math.max(0, Duration.between(entry.queuedAt(), now).toMillis());
+        metrics.queueWait(entry.flow(), waitMs);
+        try {
+            var file = fileRepo.findById(entry.fileId())
+                    .orElseThrow(() -> new IllegalStateException("File not found"));
+            try (var original = storage.open(file)) {
+                return agent.run(file.getFileId(), entry.runId(), original.path(), entry.flow());
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException || Thread.currentThread().isInterrupted()) {
+                // shutting down: the run stays PROCESSING and is requeued once its lease runs out
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            log.error("Error processing queued run {}", entry.runId(), e);
+            runRepo.fail(entry.runId(), Instant.now(), AgentService.errorText(e), null);
+            return null;
+        }
+    }
+
+    // tags of flows with nothing queued that have fallen behind the virtual time carry no information
+    private void forgetIdleFlows() {
+        lastTag.entrySet().removeIf(e -> e.getValue() <= virtualTime && !queues.containsKey(e.getKey()));
+    }
+
+    private double weight(Flow flow) {
+        double base = flow.priority() == RunPriority.BATCH ? batchWeight : interactiveWeight;
+        return Math.max(1e-3, base * clientWeights().getOrDefault(flow.clientId(), 1.0));
+    }
+
+    private Map<String, Double> clientWeights() {
+        if (clientWeights == null) {
+            Map<String, Double> parsed = new HashMap<>();
+            for (String pair : clientWeightsSpec.split(",")) {
+                int colon = pair.lastIndexOf(':');
+                if (colon <= 0) continue;
+                parsed.put(pair.substring(0, colon).trim(), Double.parseDouble(pair.substring(colon + 1).trim()));
+            }
+            clientWeights = parsed;
+        }
+        return clientWeights;
+    }
+
+    private static String defaultNodeId() {
+        String host = System.getenv().getOrDefault("HOSTNAME", "node");
+        if (host.length() > 48) host = host.substring(0, 48);
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    // a run costs its page count, recorded at upload; files uploaded before that cost one page
+    private static int pages(Integer pages) {
+        return pages == null || pages < 1 ? 1 : pages;
+    }
+}
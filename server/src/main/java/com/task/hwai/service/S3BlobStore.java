@@ -0,0 +1,155 @@
+package com.task.hwai.service;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Originals in an S3-compatible bucket ({@code s3://bucket/key}). Files above the multipart
+ * threshold are uploaded part by part, so a failed part is retried alone rather than the whole
+ * upload; reads are ranged so callers can fetch large objects in chunks.
+ */
+public class S3BlobStore implements BlobStore, AutoCloseable {
+
+    static final String SCHEME = "s3://";
+
+    private final S3Client s3;
+    private final String bucket;
+    private final long multipartThreshold;
+    private final int partSize;
+
+    public S3BlobStore(S3Client s3, String bucket, long multipartThreshold, int partSize) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.multipartThreshold = multipartThreshold;
+        // S3 rejects parts below 5 MiB (except the last one)
+        this.partSize = Math.max(partSize, 5 * 1024 * 1024);
+    }
+
+    @Override
+    public String put(String key, Path source, String contentType) throws IOException {
+        long size = Files.size(source);
+        try {
+            if (size < multipartThreshold) {
+                s3.putObject(PutObjectRequest.builder().bucket(bucket).key(key).contentType(contentType).build(),
+                        RequestBody.fromFile(source));
+            } else {
+                putMultipart(key, source, size, contentType);
+            }
+        } catch (SdkException e) {
+            throw new IOException("upload of " + key + " to bucket " + bucket + " failed", e);
+        }
+        return SCHEME + bucket + "/" + key;
+    }
+
+    private void putMultipart(String key, Path source, long size, String contentType) throws IOException {
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(key).contentType(contentType).build()).uploadId();
+        try (FileChannel ch = FileChannel.open(source, StandardOpenOption.READ)) {
+            List<CompletedPart> parts = new ArrayList<>();
+            ByteBuffer buf = ByteBuffer.allocate(partSize);
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                buf.clear();
+                buf.limit((int) Math.min(partSize, size - offset));
+                while (buf.hasRemaining() && ch.read(buf, offset + buf.position()) >= 0) {}
+                buf.flip();
+                String eTag = s3.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucket).key(key).uploadId(uploadId).partNumber(partNumber)
+                        .contentLength((long) buf.remaining()).build(), RequestBody.fromByteBuffer(buf)).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+            }
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build()).build());
+        } catch (IOException | RuntimeException e) {
+            try {
+                s3.abortMultipartUpload(AbortMultipartUploadRequest.builder().bucket(bucket).key(key).uploadId(uploadId).build());
+            } catch (SdkException abort) {
+                e.addSuppressed(abort);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream read(String uri, long offset, long length) throws IOException {
+        String range = "bytes=" + offset + "-" + (length < 0 ? "" : String.valueOf(offset + length - 1));
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(keyOf(uri)).range(range).build());
+        } catch (SdkException e) {
+            throw new IOException("read of " + uri + " failed", e);
+        }
+    }
+
+    @Override
+    public long size(String uri) throws IOException {
+        try {
+            return s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(keyOf(uri)).build()).contentLength();
+        } catch (SdkException e) {
+            throw new IOException("head of " + uri + " failed", e);
+        }
+    }
+
+    @Override
+    public boolean delete(String uri) throws IOException {
+        // DeleteObject succeeds whether or not the key exists, so look first: the reclaimer counts
+        // the bytes of every original reported deleted
+        try {
+            s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(keyOf(uri)).build());
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) return false;
+            throw new IOException("head of " + uri + " failed", e);
+        } catch (SdkException e) {
+            throw new IOException("head of " + uri + " failed", e);
+        }
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(keyOf(uri)).build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (SdkException e) {
+            throw new IOException("delete of " + uri + " failed", e);
+        }
+    }
+
+    @Override
+    public Path localPath(String uri) {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        s3.close();
+    }
+
+    private String keyOf(String uri) {
+        String prefix = SCHEME + bucket + "/";
+        if (!uri.startsWith(prefix)) throw new IllegalArgumentException(uri + " is not in bucket " + bucket);
+        return uri.substring(prefix.length());
+    }
+}
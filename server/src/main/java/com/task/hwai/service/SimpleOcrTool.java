@@ -1,11 +1,33 @@
 package com.task.hwai.service;
 
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import com.task.hwai.config.LogPayload;
+
 import net.sourceforge.tess4j.ITesseract;
 import net.sourceforge.tess4j.Tesseract;
 import net.sourceforge.tess4j.TesseractException;
@@ -13,8 +35,130 @@ import net.sourceforge.tess4j.TesseractException;
 @Service
 public class SimpleOcrTool implements OcrTool {
 
+    private static final Logger log = LoggerFactory.getLogger(SimpleOcrTool.class);
+
+    // tesseract's own PDF path rasterizes at 300 DPI as well
+    private static final float PDF_DPI = 300f;
+
+    private final PipelineMetrics metrics;
+
+    @Value("${app.logging.maxPayloadChars:2000}")
+    private int maxPayloadChars = 2000;
+
+    @Value("${app.ocr.warmup:true}")
+    private boolean warmup = true;
+
+    public SimpleOcrTool(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<PageResult> extract(Path path) throws Exception {
+        try (Document doc = open(path)) {
+            List<PageResult> pages = new ArrayList<>(doc.pageCount());
+            for (int page = 1; page <= doc.pageCount(); page++) pages.add(doc.extractPage(page));
+            return pages;
+        }
+    }
+
     @Override
-    public List<PageResult> extract(Path path) {
+    public int pageCount(Path path) throws IOException {
+        if (!isPdf(path)) return 1;
+        try (PDDocument doc = PDDocument.load(path.toFile())) {
+            return Math.max(1, doc.getNumberOfPages());
+        }
+    }
+
+    // a PDF is parsed once here and its pages rendered one at a time, so a run can checkpoint between pages
+    @Override
+    public Document open(Path path) throws Exception {
+        if (!isPdf(path)) return OcrTool.super.open(path);
+        PDDocument doc = PDDocument.load(path.toFile());
+        PDFRenderer renderer = new PDFRenderer(doc);
+        return new Document() {
+            @Override
+            public int pageCount() {
+                return Math.max(1, doc.getNumberOfPages());
+            }
+
+            @Override
+            public PageResult extractPage(int page) throws IOException {
+                if (page < 1 || page > doc.getNumberOfPages()) {
+                    throw new IllegalArgumentException("no page " + page + " in " + path);
+                }
+                long start = System.nanoTime();
+                BufferedImage image = renderer.renderImageWithDPI(page - 1, PDF_DPI);
+                return ocr(page, start, tesseract -> tesseract.doOCR(image),
+                        List.of(Map.of("width", image.getWidth(), "height", image.getHeight())));
+            }
+
+            @Override
+            public void close() throws IOException {
+                doc.close();
+            }
+        };
+    }
+
+    @Override
+    public PageResult extractPage(Path path, int page) throws Exception {
+        if (isPdf(path)) {
+            try (Document doc = open(path)) {
+                return doc.extractPage(page);
+            }
+        }
+        if (page != 1) throw new IllegalArgumentException("no page " + page + " in " + path);
+        return ocr(page, System.nanoTime(), tesseract -> tesseract.doOCR(new File(path.toString())), dimensions(path));
+    }
+
+    private interface Recognizer {
+        String text(ITesseract tesseract) throws TesseractException;
+    }
+
+    private PageResult ocr(int page, long start, Recognizer recognizer, List<Map<String, Object>> dims) {
+        ITesseract tesseract = tesseract();
+        try {
+            String text = recognizer.text(tesseract);
+            log.debug("ocr extracted page={} chars={} text={}", page, text.length(), LogPayload.of(text, maxPayloadChars));
+
+            Token token = new Token(text.trim(), 0.92f);
+            metrics.ocr(System.nanoTime() - start, 1);
+            return new PageResult(page, List.of(token), dims);
+
+        } catch (TesseractException e) {
+            metrics.ocrFailed();
+            throw new RuntimeException("Tesseract OCR failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads the native library and the traineddata by OCR'ing a tiny rendered image. Runs on
+     * ApplicationStartedEvent, i.e. before readiness is reported, so the first real document
+     * does not pay for it. A missing Tesseract is logged, not fatal: uploads still work.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void warmUp() {
+        if (!warmup) return;
+        long start = System.nanoTime();
+        try {
+            BufferedImage image = new BufferedImage(160, 48, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, image.getWidth(), image.getHeight());
+                g.setColor(Color.BLACK);
+                g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 24));
+                g.drawString("warm up", 12, 32);
+            } finally {
+                g.dispose();
+            }
+            tesseract().doOCR(image);
+            log.info("tesseract warm-up took {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (Throwable t) {
+            log.warn("tesseract warm-up failed, first OCR will be slow or fail: {}", t.toString());
+        }
+    }
+
+    private ITesseract tesseract() {
         // Support configurable tessdata path via environment variable `TESSDATA_PATH` or `TESSDATA_PREFIX`.
         // Fall back to common Linux location where tesseract installs its tessdata.
         String tessdata = System.getenv("TESSDATA_PATH");
@@ -29,30 +173,35 @@ public class SimpleOcrTool implements OcrTool {
         java.nio.file.Path engData = java.nio.file.Path.of(tessdata, "eng.traineddata");
         if (!java.nio.file.Files.exists(engData)) {
             String msg = String.format("Tesseract traineddata not found: %s. Set TESSDATA_PATH or mount tessdata.", engData);
-            System.err.println(msg);
+            log.error(msg);
             throw new RuntimeException(msg);
         }
 
         ITesseract tesseract = new Tesseract();
         tesseract.setDatapath(tessdata);
         tesseract.setLanguage("eng");
+        return tesseract;
+    }
 
-        try {
-            String text = tesseract.doOCR(new File(path.toString()));
-            System.out.println("✔ OCR Extracted:\n" + text);
-
-            Token token = new Token(text.trim(), 0.92f);
-
-            PageResult page = new PageResult(
-                    1,
-                    List.of(token),
-                    List.of()
-            );
-
-            return List.of(page);
+    private static boolean isPdf(Path path) {
+        return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
 
-        } catch (TesseractException e) {
-            throw new RuntimeException("Tesseract OCR failed: " + e.getMessage(), e);
+    // Reads width/height from the image header only (no pixel decode); empty for formats ImageIO can't read, e.g. PDF.
+    private static List<Map<String, Object>> dimensions(Path path) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            if (in == null) return List.of();
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return List.of();
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return List.of(Map.of("width", reader.getWidth(0), "height", reader.getHeight(0)));
+            } finally {
+                reader.dispose();
+            }
+        } catch (Exception e) {
+            return List.of();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.task.hwai.service;
+
+import com.task.hwai.entity.FileEntity;
+import com.task.hwai.model.RunStatus;
+import com.task.hwai.repo.FileRepo;
+import com.task.hwai.repo.RunRepo;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Deletes stored originals in the background. Retention is per final run status (age counted from
+ * run completion); files that never got a run are dropped after {@code orphaned}. Over the disk
+ * quota, originals of completed runs are evicted least recently read first down to 90% of it.
+ * Extraction results are kept either way. The reclaimer runs on one minimum-priority thread and
+ * paces its deletes, more slowly while many live runs are queued or processing, so uploads keep
+ * the disk. A zero duration or quota disables that rule; all are zero by default, so nothing is
+ * deleted until an operator opts in.
+ */
+@Service
+public class StorageReclaimer {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageReclaimer.class);
+
+    private static final Set<RunStatus> LIVE = EnumSet.of(RunStatus.QUEUED, RunStatus.PROCESSING);
+
+    private final FileRepo fileRepo;
+    private final RunRepo runRepo;
+    private final StorageService storage;
+    private final PipelineMetrics metrics;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "storage-reclaimer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    @Value("${app.storage.retention.completed:0}")
+    private Duration completedRetention = Duration.ZERO;
+
+    @Value("${app.storage.retention.failed:0}")
+    private Duration failedRetention = Duration.ZERO;
+
+    @Value("${app.storage.retention.orphaned:0}")
+    private Duration orphanedRetention = Duration.ZERO;
+
+    @Value("${app.storage.quotaMb:0}")
+    private long quotaMb = 0;
+
+    // originals read more recently than this are never touched (a retry or reprocess may be using them)
+    @Value("${app.storage.reclaim.minIdle:15m}")
+    private Duration minIdle = Duration.ofMinutes(15);
+
+    @Value("${app.storage.reclaim.interval:5m}")
+    private Duration interval = Duration.ofMinutes(5);
+
+    @Value("${app.storage.reclaim.batchSize:100}")
+    private int batchSize = 100;
+
+    @Value("${app.storage.reclaim.maxDeletesPerSecond:20}")
+    private int maxDeletesPerSecond = 20;
+
+    // live QUEUED/PROCESSING runs above which deletes slow to busyDeletesPerSecond (reprocessing keeps
+    // runs COMPLETED, so it does not count); slowing rather than stopping means steady traffic cannot starve it
+    @Value("${app.storage.reclaim.yieldAbovePendingRuns:10}")
+    private long yieldAbovePendingRuns = 10;
+
+    @Value("${app.storage.reclaim.busyDeletesPerSecond:2}")
+    private int busyDeletesPerSecond = 2;
+
+    public StorageReclaimer(FileRepo fileRepo, RunRepo runRepo, StorageService storage, PipelineMetrics metrics) {
+        this.fileRepo = fileRepo;
+        this.runRepo = runRepo;
+        this.storage = storage;
+        this.metrics = metrics;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long every = Math.max(1, interval.toSeconds());
+        scheduler.scheduleWithFixedDelay(this::reclaim, every, every, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /** One pass over all rules; also callable directly, e.g. from an admin task. */
+    public void reclaim() {
+        try {
+            Instant now = Instant.now();
+            Instant idleSince = now.minus(minIdle);
+            long freed = 0;
+            if (!completedRetention.isZero()) {
+                Instant cutoff = now.minus(completedRetention);
+                freed += drain("retention_completed", () -> fileRepo.findExpired(RunStatus.COMPLETED, cutoff, idleSince, page()), Long.MAX_VALUE);
+            }
+            if (!failedRetention.isZero()) {
+                Instant cutoff = now.minus(failedRetention);
+                freed += drain("retention_failed", () -> fileRepo.findExpired(RunStatus.FAILED, cutoff, idleSince, page()), Long.MAX_VALUE);
+            }
+            if (!orphanedRetention.isZero()) {
+                Instant cutoff = now.minus(orphanedRetention);
+                freed += drain("orphaned", () -> fileRepo.findOrphaned(cutoff, page()), Long.MAX_VALUE);
+            }
+            if (quotaMb > 0) {
+                long quota = quotaMb * 1024 * 1024;
+                long stored = fileRepo.storedBytes();
+                if (stored > quota) {
+                    long target = stored - quota * 9 / 10;
+                    freed += drain("quota", () -> fileRepo.findLeastRecentlyUsed(idleSince, page()), target);
+                    if (fileRepo.storedBytes() > quota) {
+                        log.warn("storage still over quota after eviction storedMb={} quotaMb={}",
+                                fileRepo.storedBytes() / (1024 * 1024), quotaMb);
+                    }
+                }
+            }
+            if (freed > 0) log.info("storage reclaimed bytes={}", freed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("storage reclamation pass failed: {}", e.toString());
+        }
+    }
+
+    // deletes batch after batch until the rule has nothing left or `wanted` bytes were freed
+    private long drain(String reason, Supplier<List<FileEntity>> next, long wanted) throws InterruptedException {
+        long freed = 0;
+        while (freed < wanted) {
+            boolean busy = runRepo.countByStatusIn(LIVE) > yieldAbovePendingRuns;
+            long pauseMs = 1000L / Math.max(1, busy ? Math.min(busyDeletesPerSecond, maxDeletesPerSecond) : maxDeletesPerSecond);
+            List<FileEntity> batch = next.get();
+            int deleted = 0;
+            for (FileEntity file : batch) {
+                if (freed >= wanted) break;
+                long bytes = storage.delete(file);
+                if (bytes < 0) continue;
+                deleted++;
+                freed += bytes;
+                metrics.storageReclaimed(reason, bytes);
+                TimeUnit.MILLISECONDS.sleep(pauseMs);
+            }
+            // a batch where nothing could be deleted would come back unchanged
+            if (batch.size() < batchSize || deleted == 0) break;
+        }
+        return freed;
+    }
+
+    private PageRequest page() {
+        return PageRequest.of(0, batchSize);
+    }
+}
@@ -1,22 +1,117 @@
 package com.task.hwai.service;
 
+import com.task.hwai.entity.FileEntity;
+import com.task.hwai.repo.FileRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.*;
+import java.time.Instant;
 
+/**
+ * Originals in the configured {@link BlobStore} under {@code <aa>/<bb>/<fileId>_<name>}, keyed by
+ * the first four hex digits of the file id so no directory or prefix grows past a few thousand
+ * entries. Processing reads go through {@link #open(FileEntity)}, which records the access for
+ * quota eviction and, for an object store, pins a copy in the local {@link BlobCache} until the
+ * returned {@link LocalFile} is closed. {@link StorageReclaimer} deletes originals through
+ * {@link #delete(FileEntity)}. Rows written before the backend was switched keep working: each
+ * URI is read from the store its scheme names.
+ */
 @Service
 public class StorageService {
-    private final Path baseDir;
+    private static final Logger log = LoggerFactory.getLogger(StorageService.class);
+    private static final Runnable NOTHING = () -> {};
+
+    private final BlobStore store;
+    private final LocalBlobStore local;
+    private final BlobCache cache;
+    private final FileRepo fileRepo;
 
-    public StorageService(@Value("${app.storage.localDir}") String dir) {
-        this.baseDir = Path.of(dir);
+    public StorageService(@Value("${app.storage.localDir}") String dir,
+                          @Value("${app.storage.cache.maxMb:2048}") long cacheMaxMb,
+                          @Value("${app.storage.cache.chunkMb:8}") long cacheChunkMb,
+                          BlobStore store, FileRepo fileRepo, PipelineMetrics metrics) {
+        Path baseDir = Path.of(dir);
+        this.store = store;
+        this.local = store instanceof LocalBlobStore l ? l : new LocalBlobStore(baseDir);
+        this.fileRepo = fileRepo;
         try { Files.createDirectories(baseDir); } catch (Exception ignored) {}
+        this.cache = new BlobCache(baseDir.resolve("cache"), cacheMaxMb * 1024 * 1024,
+                Math.max(1, cacheChunkMb) * 1024 * 1024, metrics);
+    }
+
+    /** An original readable as a local file until closed. */
+    public record LocalFile(String uri, Path path, Runnable release) implements AutoCloseable {
+        @Override
+        public void close() {
+            release.run();
+        }
+    }
+
+    /**
+     * Stores an upload; the returned file (already local, so it can be hashed without a
+     * download) must be closed by the caller. {@link LocalFile#uri()} goes into {@code files.storage_uri}.
+     */
+    public LocalFile save(MultipartFile file, String fileId) throws IOException {
+        String key = fileId.substring(0, 2) + "/" + fileId.substring(2, 4) + "/" + fileId + "_" + safeName(file.getOriginalFilename());
+        Path staged = cache.stagingFile();
+        try {
+            try (InputStream in = file.getInputStream()) {
+                Files.copy(in, staged, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String uri = store.put(key, staged, file.getContentType());
+            Path path = store.localPath(uri);
+            return path != null ? new LocalFile(uri, path, NOTHING) : cache.adopt(uri, staged);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    /** The original for processing, fetched into the cache if needed; fails if retention already reclaimed it. */
+    public LocalFile open(FileEntity file) throws IOException {
+        if (file.getPurgedAt() != null) {
+            throw new IllegalStateException("Original of file " + file.getFileId()
+                    + " was deleted from storage at " + file.getPurgedAt());
+        }
+        fileRepo.touch(file.getFileId(), Instant.now());
+        String uri = file.getStorageUri();
+        BlobStore owner = storeOf(uri);
+        Path path = owner.localPath(uri);
+        return path != null ? new LocalFile(uri, path, NOTHING) : cache.fetch(uri, owner);
+    }
+
+    /** Deletes the original and marks the row purged; returns the bytes freed (0 if already gone). */
+    public long delete(FileEntity file) {
+        if (file.getPurgedAt() != null || file.getStorageUri() == null) return 0;
+        String uri = file.getStorageUri();
+        try {
+            BlobStore owner = storeOf(uri);
+            boolean existed = owner.delete(uri);
+            if (owner.localPath(uri) == null) cache.remove(uri);
+            fileRepo.markPurged(file.getFileId(), Instant.now());
+            return existed ? file.getSize() : 0;
+        } catch (IOException | IllegalStateException e) {
+            log.warn("could not delete original of file {}: {}", file.getFileId(), e.toString());
+            return -1;
+        }
+    }
+
+    private BlobStore storeOf(String uri) {
+        if (!uri.startsWith(S3BlobStore.SCHEME)) return local;
+        if (store instanceof S3BlobStore) return store;
+        throw new IllegalStateException(uri + " is in an object store but app.storage.backend is not s3");
     }
 
-    public Path save(MultipartFile file, String fileId) throws Exception {
-        Path p = baseDir.resolve(fileId + "_" + file.getOriginalFilename());
-        Files.copy(file.getInputStream(), p, StandardCopyOption.REPLACE_EXISTING);
-        return p;
+    // the client's name is kept in FileEntity.name; on disk only a plain, bounded file name is used
+    private static String safeName(String original) {
+        String name = original == null ? "" : original.substring(Math.max(original.lastIndexOf('/'), original.lastIndexOf('\\')) + 1);
+        name = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        if (name.length() > 100) name = name.substring(name.length() - 100);
+        return name.isEmpty() || name.matches("\\.+") ? "upload" : name;
     }
 }
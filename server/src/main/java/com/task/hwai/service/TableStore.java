@@ -0,0 +1,276 @@
+package com.task.hwai.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.task.hwai.entity.ExtractionTableChunkEntity;
+import com.task.hwai.entity.ExtractionTableEntity;
+import com.task.hwai.model.ExtractionResult;
+import com.task.hwai.model.TableRows;
+import com.task.hwai.repo.ExtractionTableChunkRepo;
+import com.task.hwai.repo.ExtractionTableRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Extracted tables, kept out of {@code extractions.result_json}. Each table is a row in
+ * {@code extraction_tables} and its rows are column-oriented chunks of {@code app.tables.chunkRows}
+ * rows, so the stored document stays small however long a ledger is and any page of rows is
+ * read without loading the others. The document keeps a stub per table (id, columns, row count);
+ * {@link #inline} puts the rows of small tables back for API responses.
+ */
+@Service
+public class TableStore {
+    private static final Logger log = LoggerFactory.getLogger(TableStore.class);
+
+    // extraction_table_chunks.data is varchar(1000000); a chunk over this is split in half
+    private static final int MAX_CHUNK_CHARS = 1_000_000;
+    private static final TypeReference<List<String>> COLUMNS = new TypeReference<>() {};
+    private static final TypeReference<List<List<Object>>> CHUNK = new TypeReference<>() {};
+
+    private final ExtractionTableRepo tableRepo;
+    private final ExtractionTableChunkRepo chunkRepo;
+
+    @Value("${app.tables.chunkRows:500}")
+    private int chunkRows = 500;
+
+    // responses carry the rows of tables up to this size; larger ones only through the rows endpoints
+    @Value("${app.tables.inlineMaxRows:200}")
+    private int inlineMaxRows = 200;
+
+    public TableStore(ExtractionTableRepo tableRepo, ExtractionTableChunkRepo chunkRepo) {
+        this.tableRepo = tableRepo;
+        this.chunkRepo = chunkRepo;
+    }
+
+    /**
+     * Makes the run's stored tables match {@code result} and returns it with a stub in place of
+     * every table, ready for {@code result_json}. Tables with rows are written; stubs of the run's
+     * own tables are kept (moved if their page or position changed); stubs of tables of
+     * {@code sourceRunId}, the near-duplicate run a reused extraction came from, are copied. A
+     * stub of any other table is rejected with an {@link IllegalArgumentException}, so a client
+     * cannot read another run's table by naming its id. Current tables that are no longer
+     * referenced are deleted.
+     */
+    @Transactional
+    public ExtractionResult store(UUID runId, ExtractionResult result, UUID sourceRunId) {
+        Map<Long, ExtractionTableEntity> current = new LinkedHashMap<>();
+        for (var t : tableRepo.findByRunIdAndArchivedVersionIsNullOrderByPageAscPositionAsc(runId)) current.put(t.getId(), t);
+        Set<Long> kept = new HashSet<>();
+
+        List<ExtractionResult.Page> pages = new ArrayList<>();
+        for (var page : result.pages() == null ? List.<ExtractionResult.Page>of() : result.pages()) {
+            if (page.tables() == null || page.tables().isEmpty()) {
+                pages.add(page);
+                continue;
+            }
+            List<ExtractionResult.Table> stubs = new ArrayList<>();
+            for (var table : page.tables()) {
+                if (table == null) continue;
+                ExtractionTableEntity stored;
+                if (table.rows() != null) {
+                    stored = write(runId, page.page(), stubs.size(), table, table.rows());
+                } else if (table.tableId() != null && current.containsKey(table.tableId()) && kept.add(table.tableId())) {
+                    stored = current.get(table.tableId());
+                    stored.setPage(page.page());
+                    stored.setPosition(stubs.size());
+                    stored.setName(table.name());
+                    stored.setConfidence(table.confidence());
+                    tableRepo.save(stored);
+                } else if (table.tableId() != null) {
+                    stored = copy(runId, page.page(), stubs.size(), table, sourceRunId);
+                } else {
+                    stored = write(runId, page.page(), stubs.size(), table, new TableRows(List.of()));
+                }
+                if (stored != null) stubs.add(stub(stored));
+            }
+            pages.add(new ExtractionResult.Page(page.page(), page.fields(), stubs));
+        }
+
+        List<Long> dropped = current.keySet().stream().filter(id -> !kept.contains(id)).toList();
+        if (!dropped.isEmpty()) {
+            chunkRepo.deleteByTableIds(dropped);
+            tableRepo.deleteAllById(dropped);
+        }
+        return new ExtractionResult(result.fileId(), result.runId(), result.documentType(), pages,
+                result.warnings(), result.processingTimeMs());
+    }
+
+    /** Marks the run's current tables as belonging to archived extraction {@code version}. */
+    @Transactional
+    public void archive(UUID runId, int version) {
+        tableRepo.archive(runId, version);
+    }
+
+    @Transactional
+    public void deleteCurrent(UUID runId) {
+        List<Long> ids = tableRepo.findByRunIdAndArchivedVersionIsNullOrderByPageAscPositionAsc(runId).stream()
+                .map(ExtractionTableEntity::getId).toList();
+        if (ids.isEmpty()) return;
+        chunkRepo.deleteByTableIds(ids);
+        tableRepo.deleteAllById(ids);
+    }
+
+    /** {@code result} with the rows of stored tables of up to {@code app.tables.inlineMaxRows} rows filled in. */
+    public ExtractionResult inline(ExtractionResult result) {
+        if (result == null || result.pages() == null) return result;
+        List<ExtractionResult.Page> pages = new ArrayList<>(result.pages().size());
+        for (var page : result.pages()) {
+            if (page.tables() == null || page.tables().isEmpty()) {
+                pages.add(page);
+                continue;
+            }
+            List<ExtractionResult.Table> tables = new ArrayList<>(page.tables().size());
+            for (var table : page.tables()) {
+                boolean small = table.rows() == null && table.tableId() != null
+                        && table.rowCount() != null && table.rowCount() <= inlineMaxRows;
+                tables.add(small ? table.withRows(read(table.tableId(), table.columns(), 0, table.rowCount())) : table);
+            }
+            pages.add(new ExtractionResult.Page(page.page(), page.fields(), tables));
+        }
+        return new ExtractionResult(result.fileId(), result.runId(), result.documentType(), pages,
+                result.warnings(), result.processingTimeMs());
+    }
+
+    /** Current and archived tables of a run, by id; empty if the id belongs to another run. */
+    public Optional<ExtractionTableEntity> table(UUID runId, long tableId) {
+        return tableRepo.findById(tableId).filter(t -> t.getRunId().equals(runId));
+    }
+
+    public List<ExtractionTableEntity> tables(UUID runId) {
+        return tableRepo.findByRunIdAndArchivedVersionIsNullOrderByPageAscPositionAsc(runId);
+    }
+
+    public static List<String> columns(ExtractionTableEntity table) {
+        return parse(table.getColumnsJson(), COLUMNS);
+    }
+
+    /** Rows {@code [offset, offset + limit)}, reading only the chunks that hold them. */
+    public TableRows rows(ExtractionTableEntity table, int offset, int limit) {
+        return read(table.getId(), columns(table), offset, Math.min(table.getRowCount(), offset + limit));
+    }
+
+    /**
+     * Writes every row as one JSON object per line, loading one chunk at a time, so the memory
+     * used does not depend on the size of the table.
+     */
+    public void stream(ExtractionTableEntity table, OutputStream out) throws IOException {
+        List<String> columns = columns(table);
+        try (JsonGenerator gen = AgentService.OM.getFactory().createGenerator(out)
+                .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)) {
+            gen.setRootValueSeparator(new SerializedString("\n"));
+            int next = 0;
+            while (next < table.getRowCount()) {
+                var chunk = chunkRepo.findFirstByTableIdAndFirstRowGreaterThanEqualOrderByFirstRow(table.getId(), next).orElse(null);
+                if (chunk == null) break;
+                var rows = new TableRows(columns);
+                rows.append(parse(chunk.getData(), CHUNK), 0, chunk.getRowCount());
+                rows.writeRows(gen, 0, rows.size());
+                gen.flush();
+                next = chunk.getFirstRow() + chunk.getRowCount();
+            }
+            gen.writeRaw('\n');
+        }
+    }
+
+    private TableRows read(long tableId, List<String> columns, int start, int end) {
+        var rows = new TableRows(columns == null ? List.of() : columns);
+        if (start >= end) return rows;
+        for (var chunk : chunkRepo.findOverlapping(tableId, start, end)) {
+            int from = Math.max(start - chunk.getFirstRow(), 0);
+            int to = Math.min(end - chunk.getFirstRow(), chunk.getRowCount());
+            rows.append(parse(chunk.getData(), CHUNK), from, to);
+        }
+        return rows;
+    }
+
+    private ExtractionTableEntity write(UUID runId, int page, int position, ExtractionResult.Table table, TableRows rows) {
+        var t = new ExtractionTableEntity();
+        t.setRunId(runId);
+        t.setPage(page);
+        t.setPosition(position);
+        t.setName(table.name());
+        t.setConfidence(table.confidence());
+        t.setColumnsJson(json(rows.columns()));
+        t.setRowCount(rows.size());
+        t = tableRepo.save(t);
+        for (int from = 0; from < rows.size(); from += chunkRows) {
+            writeChunks(t.getId(), rows, from, Math.min(rows.size(), from + chunkRows));
+        }
+        return t;
+    }
+
+    private void writeChunks(long tableId, TableRows rows, int from, int to) {
+        String data = json(rows.slice(from, to));
+        if (data.length() > MAX_CHUNK_CHARS && to - from > 1) {
+            int mid = (from + to) >>> 1;
+            writeChunks(tableId, rows, from, mid);
+            writeChunks(tableId, rows, mid, to);
+            return;
+        }
+        var chunk = new ExtractionTableChunkEntity();
+        chunk.setTableId(tableId);
+        chunk.setFirstRow(from);
+        chunk.setRowCount(to - from);
+        chunk.setData(data);
+        chunkRepo.save(chunk);
+    }
+
+    private ExtractionTableEntity copy(UUID runId, int page, int position, ExtractionResult.Table table,
+                                       UUID sourceRunId) {
+        var source = tableRepo.findById(table.tableId()).orElse(null);
+        if (source == null && sourceRunId != null) {
+            // the near-duplicate was edited or deleted since its extraction was read
+            log.warn("table {} referenced by run {} no longer exists; dropped", table.tableId(), runId);
+            return null;
+        }
+        if (source == null || !(source.getRunId().equals(runId) || source.getRunId().equals(sourceRunId))) {
+            throw new IllegalArgumentException("unknown table_id " + table.tableId());
+        }
+        var t = new ExtractionTableEntity();
+        t.setRunId(runId);
+        t.setPage(page);
+        t.setPosition(position);
+        t.setName(table.name());
+        t.setConfidence(table.confidence());
+        t.setColumnsJson(source.getColumnsJson());
+        t.setRowCount(source.getRowCount());
+        t = tableRepo.save(t);
+        chunkRepo.copy(source.getId(), t.getId());
+        return t;
+    }
+
+    private static ExtractionResult.Table stub(ExtractionTableEntity t) {
+        return new ExtractionResult.Table(t.getId(), t.getName(), columns(t), t.getRowCount(), null, t.getConfidence());
+    }
+
+    private static String json(Object value) {
+        try {
+            return AgentService.OM.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("could not serialize table data", e);
+        }
+    }
+
+    private static <T> T parse(String json, TypeReference<T> type) {
+        try {
+            return AgentService.OM.readValue(json, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("stored table data is unreadable", e);
+        }
+    }
+}
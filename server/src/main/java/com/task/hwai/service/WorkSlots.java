@@ -0,0 +1,120 @@
+package com.task.hwai.service;
+
+import com.task.hwai.model.Flow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Concurrency limits on the two expensive stages of a run, OCR of a page and an LLM call: a
+ * number of slots per stage for the whole instance and a cap per client, so one client's bulk
+ * load can't hold every slot while someone else waits in the UI. A freed slot goes to the oldest
+ * INTERACTIVE waiter, else the oldest BATCH one, skipping waiters whose client is at its cap.
+ */
+@Service
+public class WorkSlots {
+
+    public enum Stage { OCR, LLM }
+
+    /** Held while the stage runs; closing it hands the slot on. */
+    public final class Slot implements AutoCloseable {
+        private final Gate gate;
+        private final String clientId;
+        private boolean released;
+
+        private Slot(Gate gate, String clientId) {
+            this.gate = gate;
+            this.clientId = clientId;
+        }
+
+        @Override
+        public void close() {
+            if (released) return;
+            released = true;
+            gate.release(clientId);
+        }
+    }
+
+    private final PipelineMetrics metrics;
+    private final Gate ocr;
+    private final Gate llm;
+
+    public WorkSlots(PipelineMetrics metrics,
+                     // 0: one per CPU, OCR being CPU bound
+                     @Value("${app.scheduler.ocrSlots:0}") int ocrSlots,
+                     @Value("${app.scheduler.ocrSlotsPerClient:2}") int ocrSlotsPerClient,
+                     @Value("${app.scheduler.llmSlots:8}") int llmSlots,
+                     @Value("${app.scheduler.llmSlotsPerClient:4}") int llmSlotsPerClient) {
+        this.metrics = metrics;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        this.ocr = new Gate(ocrSlots > 0 ? ocrSlots : cpus, ocrSlotsPerClient);
+        this.llm = new Gate(Math.max(1, llmSlots), llmSlotsPerClient);
+    }
+
+    /** Blocks until {@code flow} may run {@code stage}; close the returned slot when done. */
+    public Slot acquire(Stage stage, Flow flow) throws InterruptedException {
+        long start = System.nanoTime();
+        Slot slot = (stage == Stage.OCR ? ocr : llm).acquire(flow);
+        metrics.slotWait(stage, flow.priority(), System.nanoTime() - start);
+        return slot;
+    }
+
+    private static final class Waiter {
+        final Flow flow;
+
+        Waiter(Flow flow) {
+            this.flow = flow;
+        }
+    }
+
+    private final class Gate {
+        private final int slots;
+        private final int perClient;
+        private int used;
+        private final Map<String, Integer> usedByClient = new HashMap<>();
+        // in arrival order
+        private final List<Waiter> waiting = new ArrayList<>();
+
+        Gate(int slots, int perClient) {
+            this.slots = slots;
+            // a cap above the total would never bind; below 1 nothing could run
+            this.perClient = Math.max(1, Math.min(perClient, slots));
+        }
+
+        synchronized Slot acquire(Flow flow) throws InterruptedException {
+            Waiter me = new Waiter(flow);
+            waiting.add(me);
+            try {
+                while (next() != me) wait();
+            } finally {
+                waiting.remove(me);
+                // whoever is next may have been held up behind this waiter
+                notifyAll();
+            }
+            used++;
+            usedByClient.merge(flow.clientId(), 1, Integer::sum);
+            return new Slot(this, flow.clientId());
+        }
+
+        synchronized void release(String clientId) {
+            used--;
+            usedByClient.computeIfPresent(clientId, (k, n) -> n > 1 ? n - 1 : null);
+            notifyAll();
+        }
+
+        // the waiter that gets a free slot, or null while none is free or every waiter's client is at its cap
+        private Waiter next() {
+            if (used >= slots) return null;
+            Waiter best = null;
+            for (Waiter w : waiting) {
+                if (usedByClient.getOrDefault(w.flow.clientId(), 0) >= perClient) continue;
+                if (best == null || w.flow.priority().ordinal() < best.flow.priority().ordinal()) best = w;
+            }
+            return best;
+        }
+    }
+}
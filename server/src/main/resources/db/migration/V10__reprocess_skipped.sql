@@ -0,0 +1,2 @@
+-- Runs a reprocessing job matched but left out because retention had purged their original
+alter table reprocess_jobs add column skipped integer not null default 0;
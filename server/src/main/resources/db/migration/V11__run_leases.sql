@@ -0,0 +1,4 @@
+-- Which instance is processing a run and until when its claim holds; an expired lease lets any instance requeue it
+alter table runs add column lease_owner varchar(64);
+alter table runs add column lease_until timestamp(6) with time zone;
+create index idx_runs_status_lease on runs (status, lease_until);
@@ -0,0 +1,69 @@
+-- Baseline schema. Written to run unchanged on PostgreSQL and on H2 in MODE=PostgreSQL.
+
+create table files (
+    file_id     uuid primary key,
+    name        varchar(255),
+    mime_type   varchar(255),
+    size        bigint not null,
+    storage_uri varchar(255),
+    pages       integer,
+    created_at  timestamp(6) with time zone
+);
+
+create table runs (
+    run_id       uuid primary key,
+    file_id      uuid,
+    status       varchar(32),
+    started_at   timestamp(6) with time zone,
+    completed_at timestamp(6) with time zone,
+    error        varchar(4000),
+    metrics_json varchar(4000)
+);
+-- queued-run gauge and status polling
+create index idx_runs_status on runs (status);
+create index idx_runs_file on runs (file_id);
+
+create table extractions (
+    id               bigint generated by default as identity primary key,
+    run_id           uuid not null,
+    document_type    varchar(255),
+    result_json      varchar(65535),
+    avg_confidence   double precision,
+    confidence_sum   double precision,
+    confidence_count integer,
+    fallback         boolean not null,
+    version          bigint,
+    created_at       timestamp(6) with time zone,
+    -- every read path looks extractions up by run; one extraction per run
+    constraint uk_extractions_run unique (run_id)
+);
+
+-- ids are handed out in blocks of 50 so field rows can be inserted in JDBC batches
+create sequence extraction_fields_seq start with 1 increment by 50;
+
+create table extraction_fields (
+    id            bigint primary key,
+    run_id        uuid,
+    document_type varchar(255),
+    page          integer not null,
+    name          varchar(255),
+    field_value   varchar(1000),
+    value_norm    varchar(255),
+    confidence    double precision
+);
+create index idx_extraction_fields_run on extraction_fields (run_id);
+create index idx_extraction_fields_name_value on extraction_fields (name, value_norm);
+create index idx_extraction_fields_name_confidence on extraction_fields (name, confidence);
+
+create table confidence_rollups (
+    id                   bigint generated by default as identity primary key,
+    document_type        varchar(255),
+    bucket_start         timestamp(6) with time zone,
+    documents            bigint not null,
+    fallbacks            bigint not null,
+    avg_confidence_sum   double precision not null,
+    field_count          bigint not null,
+    field_confidence_sum double precision not null,
+    histogram            varchar(1000),
+    constraint uk_confidence_rollups_type_bucket unique (document_type, bucket_start)
+);
@@ -0,0 +1,3 @@
+-- Client that submitted the run, for per-client admission quotas
+alter table runs add column client_id varchar(128);
+create index idx_runs_client_status on runs (client_id, status);
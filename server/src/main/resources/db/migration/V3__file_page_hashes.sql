@@ -0,0 +1,2 @@
+-- Perceptual hash per page (comma separated signed longs) for near-duplicate detection
+alter table files add column page_hashes varchar(4000);
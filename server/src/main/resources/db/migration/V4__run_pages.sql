@@ -0,0 +1,12 @@
+-- Per-page checkpoints so a failed or interrupted run resumes instead of starting over
+create table run_pages (
+    id          bigint generated by default as identity primary key,
+    run_id      uuid,
+    page        integer not null,
+    status      varchar(16),
+    ocr_json    varchar(1000000),
+    result_json varchar(1000000),
+    warning     varchar(1000),
+    updated_at  timestamp(6) with time zone,
+    constraint uk_run_pages_run_page unique (run_id, page)
+);
@@ -0,0 +1,46 @@
+-- Bulk reprocessing: a job, the runs it matched when it was created, and the extraction each rerun replaced
+
+create table reprocess_jobs (
+    job_id          uuid primary key,
+    status          varchar(16),
+    from_ts         timestamp(6) with time zone,
+    to_ts           timestamp(6) with time zone,
+    document_type   varchar(255),
+    max_confidence  double precision,
+    parallelism     integer not null,
+    rate_per_minute integer not null,
+    total           integer not null,
+    succeeded       integer not null,
+    failed          integer not null,
+    last_error      varchar(4000),
+    created_at      timestamp(6) with time zone,
+    started_at      timestamp(6) with time zone,
+    completed_at    timestamp(6) with time zone
+);
+
+-- matched runs are snapshotted up front so progress is stable and a restart picks up where it stopped
+create table reprocess_job_items (
+    job_id uuid not null,
+    run_id uuid not null,
+    status varchar(16) not null,
+    primary key (job_id, run_id)
+);
+create index idx_reprocess_job_items_status on reprocess_job_items (job_id, status);
+
+create table extraction_versions (
+    id             bigint generated by default as identity primary key,
+    run_id         uuid not null,
+    version        integer not null,
+    job_id         uuid,
+    document_type  varchar(255),
+    result_json    varchar(65535),
+    avg_confidence double precision,
+    fallback       boolean not null,
+    metrics_json   varchar(4000),
+    created_at     timestamp(6) with time zone,
+    archived_at    timestamp(6) with time zone,
+    constraint uk_extraction_versions_run_version unique (run_id, version)
+);
+
+-- reprocessing filters on these
+create index idx_extractions_created on extractions (created_at);
@@ -0,0 +1,4 @@
+-- Retention and quota eviction of stored originals: last read (LRU order) and when the bytes were reclaimed
+alter table files add column last_accessed_at timestamp(6) with time zone;
+alter table files add column purged_at timestamp(6) with time zone;
+create index idx_files_purged_accessed on files (purged_at, last_accessed_at);
@@ -0,0 +1,25 @@
+-- Extracted tables kept out of extractions.result_json: one row per table, rows in column-oriented
+-- chunks addressed by their first row so any page of a large table is read without the rest
+create table extraction_tables (
+    id               bigint generated by default as identity primary key,
+    run_id           uuid not null,
+    page             integer not null,
+    position         integer not null,
+    name             varchar(255),
+    columns_json     varchar(65535),
+    row_count        integer not null,
+    confidence       double precision,
+    -- set when a reprocessing job archives the extraction the table belonged to
+    archived_version integer,
+    created_at       timestamp(6) with time zone
+);
+create index idx_extraction_tables_run on extraction_tables (run_id, archived_version);
+
+create table extraction_table_chunks (
+    id        bigint generated by default as identity primary key,
+    table_id  bigint not null,
+    first_row integer not null,
+    row_count integer not null,
+    data      varchar(1000000),
+    constraint uk_extraction_table_chunks_row unique (table_id, first_row)
+);
@@ -0,0 +1,4 @@
+-- Scheduling class of a run and when it last entered the queue, for weighted fair scheduling and queue-wait metrics
+alter table runs add column priority varchar(16);
+alter table runs add column queued_at timestamp(6) with time zone;
+create index idx_runs_status_queued on runs (status, queued_at);
@@ -0,0 +1,3 @@
+-- Per-run metrics list every LLM attempt (one or more per page), which outgrew varchar(4000) from about 35 pages
+alter table runs alter column metrics_json set data type varchar(1000000);
+alter table extraction_versions alter column metrics_json set data type varchar(1000000);
@@ -0,0 +1,43 @@
+package com.task.hwai.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.task.hwai.service.AdmissionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class AdmissionInterceptorTest {
+
+    private final AdmissionInterceptor interceptor =
+            new AdmissionInterceptor(mock(AdmissionService.class), " 10.0.0.5, 10.0.0.6 ");
+
+    private static MockHttpServletRequest request(String remote, String clientId) {
+        var request = new MockHttpServletRequest("POST", "/v1/uploads");
+        request.setRemoteAddr(remote);
+        if (clientId != null) request.addHeader(AdmissionInterceptor.CLIENT_HEADER, clientId);
+        return request;
+    }
+
+    @Test
+    void headerFromUntrustedCallerIsIgnored() {
+        assertThat(interceptor.clientOf(request("203.0.113.9", "acme"))).isEqualTo("203.0.113.9");
+    }
+
+    @Test
+    void headerFromTrustedProxyNamesTheClient() {
+        assertThat(interceptor.clientOf(request("10.0.0.6", "acme"))).isEqualTo("acme");
+        assertThat(interceptor.clientOf(request("10.0.0.5", " "))).isEqualTo("10.0.0.5");
+    }
+
+    @Test
+    void noTrustedProxiesMeansRemoteAddressOnly() {
+        var strict = new AdmissionInterceptor(mock(AdmissionService.class), "");
+        assertThat(strict.clientOf(request("10.0.0.5", "acme"))).isEqualTo("10.0.0.5");
+    }
+
+    @Test
+    void longIdsAreTruncated() {
+        assertThat(interceptor.clientOf(request("10.0.0.5", "x".repeat(300)))).hasSize(128);
+    }
+}
@@ -0,0 +1,66 @@
+package com.task.hwai.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class SlowTraceSpanProcessorTest {
+
+    private static final long THRESHOLD = TimeUnit.SECONDS.toNanos(1);
+
+    private static ReadableSpan rootSpan(String traceId, long latencyNanos) {
+        var span = mock(ReadableSpan.class);
+        when(span.getSpanContext()).thenReturn(SpanContext.create(traceId, "00000000000000a1",
+                TraceFlags.getDefault(), TraceState.getDefault()));
+        when(span.getParentSpanContext()).thenReturn(SpanContext.getInvalid());
+        when(span.getLatencyNanos()).thenReturn(latencyNanos);
+        when(span.toSpanData()).thenReturn(mock(SpanData.class));
+        return span;
+    }
+
+    @Test
+    void slowTraceIsExportedOffTheEndingThread() throws Exception {
+        var exporter = mock(SpanExporter.class);
+        var release = new CountDownLatch(1);
+        when(exporter.export(anyCollection())).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return CompletableResultCode.ofSuccess();
+        });
+        var processor = new SlowTraceSpanProcessor(exporter, THRESHOLD, 8, 8, 4);
+
+        long start = System.nanoTime();
+        processor.onEnd(rootSpan("0000000000000000000000000000000a", 2 * THRESHOLD));
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+
+        verify(exporter, timeout(2000)).export(anyCollection());
+        release.countDown();
+        processor.shutdown();
+    }
+
+    @Test
+    void fastTraceIsDropped() {
+        var exporter = mock(SpanExporter.class);
+        var processor = new SlowTraceSpanProcessor(exporter, THRESHOLD, 8, 8, 4);
+
+        processor.onEnd(rootSpan("0000000000000000000000000000000b", THRESHOLD / 2));
+        processor.forceFlush();
+
+        verify(exporter, never()).export(anyCollection());
+        processor.shutdown();
+    }
+}
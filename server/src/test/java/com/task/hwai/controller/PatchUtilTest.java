@@ -0,0 +1,97 @@
+package com.task.hwai.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.task.hwai.model.ConfidenceStats;
+import com.task.hwai.model.ExtractionPatch;
+import com.task.hwai.service.RollupDelta;
+import org.junit.jupiter.api.Test;
+
+class PatchUtilTest {
+
+    private static final String DOC = """
+            {"document_type":"invoice","pages":[
+              {"page":1,"fields":[
+                {"name":"total","value":"10","confidence":0.9},
+                {"name":"item","value":"a","confidence":0.5},
+                {"name":"item","value":"b","confidence":0.7}]},
+              {"page":2,"fields":[{"name":"item","value":"c","confidence":0.3}]}]}
+            """;
+
+    private final ObjectNode root = RunController.JsonUtil.readTree(DOC);
+    private final ConfidenceStats stats = new ConfidenceStats(2.4, 4);
+
+    @Test
+    void setUpdatesValueAndConfidence() {
+        var delta = new RollupDelta();
+        var after = RunController.PatchUtil.apply(root,
+                new ExtractionPatch.FieldEdit("set", 1, "total", "12", 0.5), stats, delta);
+
+        assertThat(after.count()).isEqualTo(4);
+        assertThat(after.sum()).isCloseTo(2.0, within());
+        var fields = RunController.PatchUtil.fieldsNamed(root, 1, "total");
+        assertThat(fields).singleElement().satisfies(f -> {
+            assertThat(f.value()).isEqualTo("12");
+            assertThat(f.confidence()).isEqualTo(0.5);
+        });
+    }
+
+    @Test
+    void setAppendsMissingFieldWithoutTouchingStatsWhenNoConfidence() {
+        var after = RunController.PatchUtil.apply(root,
+                new ExtractionPatch.FieldEdit(null, 2, "date", "2024-01-01", null), stats, new RollupDelta());
+
+        assertThat(after).isEqualTo(stats);
+        assertThat(RunController.PatchUtil.fieldsNamed(root, 2, "date")).hasSize(1);
+    }
+
+    @Test
+    void removeDeletesEveryFieldOfTheNameOnThatPageOnly() {
+        var delta = new RollupDelta();
+        var after = RunController.PatchUtil.apply(root,
+                new ExtractionPatch.FieldEdit("remove", 1, "item", null, null), stats, delta);
+
+        assertThat(after.count()).isEqualTo(2);
+        assertThat(after.sum()).isCloseTo(1.2, within());
+        assertThat(RunController.PatchUtil.fieldsNamed(root, 1, "item")).isEmpty();
+        assertThat(RunController.PatchUtil.fieldsNamed(root, 1, "total")).hasSize(1);
+        assertThat(RunController.PatchUtil.fieldsNamed(root, 2, "item")).hasSize(1);
+    }
+
+    @Test
+    void removeOfMissingFieldIsANoOp() {
+        var delta = new RollupDelta();
+        var after = RunController.PatchUtil.apply(root,
+                new ExtractionPatch.FieldEdit("remove", 1, "nope", null, null), stats, delta);
+
+        assertThat(after).isEqualTo(stats);
+        assertThat(delta.isEmpty()).isTrue();
+    }
+
+    @Test
+    void rejectsUnknownPageOpAndMissingField() {
+        assertThatThrownBy(() -> RunController.PatchUtil.apply(root,
+                new ExtractionPatch.FieldEdit("set", 9, "total", "1", null), stats, new RollupDelta()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RunController.PatchUtil.apply(root,
+                new ExtractionPatch.FieldEdit("rename", 1, "total", "1", null), stats, new RollupDelta()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RunController.PatchUtil.apply(root,
+                new ExtractionPatch.FieldEdit("set", 1, " ", "1", null), stats, new RollupDelta()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void eTagRoundTrips() {
+        assertThat(RunController.PatchUtil.eTag(7L)).isEqualTo("\"7\"");
+        assertThat(RunController.PatchUtil.parseETag("W/\"7\"")).isEqualTo(7L);
+        assertThat(RunController.PatchUtil.parseETag("\"x\"")).isNull();
+        assertThat(RunController.PatchUtil.parseETag(null)).isNull();
+    }
+
+    private static org.assertj.core.data.Offset<Double> within() {
+        return org.assertj.core.data.Offset.offset(1e-9);
+    }
+}
@@ -0,0 +1,97 @@
+package com.task.hwai.controller;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.task.hwai.model.ExtractionResult;
+import com.task.hwai.service.FieldIndexService;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+// searches run against the real extraction_fields table (in memory); names are unique per test
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:search;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH")
+@AutoConfigureMockMvc
+class SearchControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private FieldIndexService fieldIndex;
+
+    private final String tag = UUID.randomUUID().toString().substring(0, 8);
+    private final UUID invoice = UUID.randomUUID();
+    private final UUID receipt = UUID.randomUUID();
+
+    @BeforeEach
+    void indexTwoDocuments() {
+        fieldIndex.index(invoice, document("invoice-" + tag,
+                field("number", "INV-001", 0.95), field("date", "2024-01-31", 0.4)));
+        fieldIndex.index(receipt, document("receipt-" + tag,
+                field("number", " inv-001 ", 0.6), field("date", "2024-02-01", 0.9)));
+    }
+
+    @Test
+    void valuesMatchIgnoringCaseAndSurroundingSpace() throws Exception {
+        mvc.perform(get("/v1/search").param("field", "number-" + tag).param("value", "Inv-001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[*].runId", containsInAnyOrder(invoice.toString(), receipt.toString())));
+    }
+
+    @Test
+    void everySuppliedPredicateMustMatch() throws Exception {
+        mvc.perform(get("/v1/search").param("field", "number-" + tag).param("value", "INV-001")
+                        .param("documentType", "invoice-" + tag))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].runId").value(invoice.toString()))
+                .andExpect(jsonPath("$[0].value").value("INV-001"))
+                .andExpect(jsonPath("$[0].page").value(1));
+
+        mvc.perform(get("/v1/search").param("field", "date-" + tag).param("maxConfidence", "0.5"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].runId").value(invoice.toString()));
+
+        mvc.perform(get("/v1/search").param("documentType", "receipt-" + tag).param("minConfidence", "0.7"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].field").value("date-" + tag));
+    }
+
+    @Test
+    void reindexingAndRemovingARunUpdateTheResults() throws Exception {
+        fieldIndex.index(invoice, document("invoice-" + tag, field("number", "INV-002", 0.99)));
+        fieldIndex.remove(receipt);
+
+        mvc.perform(get("/v1/search").param("field", "number-" + tag).param("value", "inv-001"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mvc.perform(get("/v1/search").param("field", "date-" + tag))
+                .andExpect(jsonPath("$.length()").value(0));
+        mvc.perform(get("/v1/search").param("field", "number-" + tag).param("value", "inv-002"))
+                .andExpect(jsonPath("$[0].runId").value(invoice.toString()));
+    }
+
+    @Test
+    void limitIsAppliedAndBounded() throws Exception {
+        mvc.perform(get("/v1/search").param("field", "number-" + tag).param("limit", "1"))
+                .andExpect(jsonPath("$.length()").value(1));
+        mvc.perform(get("/v1/search").param("limit", "0")).andExpect(status().isBadRequest());
+        mvc.perform(get("/v1/search").param("limit", "1001")).andExpect(status().isBadRequest());
+    }
+
+    private ExtractionResult.Field field(String name, String value, double confidence) {
+        return new ExtractionResult.Field(name + "-" + tag, value, confidence, null);
+    }
+
+    private static ExtractionResult document(String documentType, ExtractionResult.Field... fields) {
+        return new ExtractionResult(null, null, documentType,
+                List.of(new ExtractionResult.Page(1, List.of(fields), List.of())), List.of(), 0);
+    }
+}
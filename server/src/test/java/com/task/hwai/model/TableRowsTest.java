@@ -0,0 +1,49 @@
+package com.task.hwai.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TableRowsTest {
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    @Test
+    void parsesRowObjectsIntoColumnsWithNullsForMissingKeys() throws Exception {
+        var rows = OM.readValue("[{\"a\":1,\"b\":\"x\"},{\"b\":\"y\",\"c\":true},{\"a\":2.5,\"a\":3}]", TableRows.class);
+
+        assertThat(rows.columns()).containsExactly("a", "b", "c");
+        assertThat(rows.size()).isEqualTo(3);
+        assertThat(rows.get(0, 2)).isNull();
+        assertThat(rows.get(1, 0)).isNull();
+        assertThat(rows.get(1, 2)).isEqualTo(true);
+        // a repeated key: the last value wins
+        assertThat(rows.get(2, 0)).isEqualTo(3);
+        assertThat(OM.writeValueAsString(rows))
+                .isEqualTo("[{\"a\":1,\"b\":\"x\",\"c\":null},{\"a\":null,\"b\":\"y\",\"c\":true},{\"a\":3,\"b\":null,\"c\":null}]");
+    }
+
+    @Test
+    void sliceAndAppendCopyARangeOfRows() {
+        var rows = new TableRows(List.of("n", "s"));
+        for (int i = 0; i < 6; i++) rows.add(i, "r" + i);
+
+        var chunk = rows.slice(2, 5);
+        var read = new TableRows(List.of("n", "s"));
+        read.append(chunk, 1, 3);
+
+        assertThat(read.size()).isEqualTo(2);
+        assertThat(read.get(0, 0)).isEqualTo(3);
+        assertThat(read.get(1, 1)).isEqualTo("r4");
+    }
+
+    @Test
+    void rejectsRowsAndSlicesOfTheWrongWidth() {
+        var rows = new TableRows(List.of("n", "s"));
+        assertThatThrownBy(() -> rows.add(1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rows.append(List.of(List.of(1)), 0, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
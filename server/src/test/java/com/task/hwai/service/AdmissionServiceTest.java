@@ -0,0 +1,97 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.task.hwai.repo.RunRepo;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AdmissionServiceTest {
+
+    @TempDir
+    Path storage;
+
+    private final RunRepo runRepo = mock(RunRepo.class);
+    private final PipelineMetrics metrics = mock(PipelineMetrics.class);
+    private AdmissionService admission;
+
+    @BeforeEach
+    void setUp() {
+        admission = new AdmissionService(runRepo, metrics, storage.toString());
+        ReflectionTestUtils.setField(admission, "minFreeDiskMb", 0L);
+        ReflectionTestUtils.setField(admission, "maxPendingRuns", 10L);
+        ReflectionTestUtils.setField(admission, "maxPendingPerClient", 3L);
+    }
+
+    @Test
+    void admitsUnderLimits() {
+        when(runRepo.countByStatusIn(anyCollection())).thenReturn(5L);
+        when(runRepo.countByClientIdAndStatusIn(eq("a"), anyCollection())).thenReturn(1L);
+
+        assertThat(admission.tryAdmit("a", 100).admitted()).isTrue();
+    }
+
+    @Test
+    void admittedButUnfinishedUploadsCountAgainstTheClientQuota() {
+        assertThat(admission.tryAdmit("a", 100).admitted()).isTrue();
+        assertThat(admission.tryAdmit("a", 100).admitted()).isTrue();
+        assertThat(admission.tryAdmit("a", 100).admitted()).isTrue();
+
+        var rejected = admission.tryAdmit("a", 100);
+        assertThat(rejected.admitted()).isFalse();
+        assertThat(rejected.reason()).isEqualTo("client_quota");
+        verify(metrics).uploadRejected("client_quota");
+
+        // another client is not affected, and a release frees a slot
+        assertThat(admission.tryAdmit("b", 100).admitted()).isTrue();
+        admission.release("a");
+        assertThat(admission.tryAdmit("a", 100).admitted()).isTrue();
+    }
+
+    @Test
+    void backlogRejectionEstimatesRetryAfterFromThisInstancesDrainRate() {
+        when(runRepo.countByStatusIn(anyCollection())).thenReturn(29L);
+        when(metrics.averageRunMs()).thenReturn(10_000.0);
+        when(metrics.inFlight()).thenReturn(4);
+
+        var rejected = admission.tryAdmit("a", 100);
+
+        // 20 runs over the limit, 10 s each, 4 at a time
+        assertThat(rejected.reason()).isEqualTo("backlog");
+        assertThat(rejected.retryAfterSeconds()).isEqualTo(50);
+    }
+
+    @Test
+    void retryAfterIsCapped() {
+        when(runRepo.countByStatusIn(anyCollection())).thenReturn(100_000L);
+        when(metrics.averageRunMs()).thenReturn(60_000.0);
+
+        assertThat(admission.tryAdmit("a", 100).retryAfterSeconds()).isEqualTo(300);
+    }
+
+    @Test
+    void rejectsWhenDiskIsShort() {
+        ReflectionTestUtils.setField(admission, "minFreeDiskMb", Long.MAX_VALUE / (2L * 1024 * 1024));
+
+        var rejected = admission.tryAdmit("a", 100);
+        assertThat(rejected.reason()).isEqualTo("disk");
+        verify(metrics).uploadRejected(any());
+    }
+
+    @Test
+    void disabledAdmitsEverything() {
+        ReflectionTestUtils.setField(admission, "enabled", false);
+        when(runRepo.countByStatusIn(anyCollection())).thenReturn(100_000L);
+
+        assertThat(admission.tryAdmit("a", 100).admitted()).isTrue();
+    }
+}
@@ -0,0 +1,75 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.task.hwai.entity.RunPageEntity;
+import com.task.hwai.model.ExtractionResult;
+import com.task.hwai.model.PageStatus;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AgentServiceMergeTest {
+
+    private static RunPageEntity structured(int page, String json) {
+        var cp = new RunPageEntity();
+        cp.setPage(page);
+        cp.setStatus(PageStatus.STRUCTURED);
+        cp.setResultJson(json);
+        return cp;
+    }
+
+    private static RunPageEntity fallback(int page, String warning) {
+        var cp = new RunPageEntity();
+        cp.setPage(page);
+        cp.setStatus(PageStatus.FALLBACK);
+        cp.setWarning(warning);
+        return cp;
+    }
+
+    private static String answer(String type, String field, String... warnings) {
+        return "{\"document_type\":" + (type == null ? "null" : "\"" + type + "\"")
+                + ",\"pages\":[{\"page\":1,\"fields\":[{\"name\":\"" + field + "\",\"value\":\"x\",\"confidence\":0.9}]}]"
+                + ",\"warnings\":[" + String.join(",", java.util.Arrays.stream(warnings).map(w -> "\"" + w + "\"").toList()) + "]}";
+    }
+
+    @Test
+    void pagesKeepCheckpointNumbersAndOrder() throws Exception {
+        var merged = AgentService.merge(List.of(
+                structured(1, answer("invoice", "total")),
+                structured(2, answer("invoice", "date"))));
+
+        assertThat(merged.pages()).extracting(ExtractionResult.Page::page).containsExactly(1, 2);
+        assertThat(merged.pages().get(1).fields()).extracting(ExtractionResult.Field::name).containsExactly("date");
+    }
+
+    @Test
+    void documentTypeIsTheMajorityOfPages() throws Exception {
+        var merged = AgentService.merge(List.of(
+                structured(1, answer("receipt", "a")),
+                structured(2, answer("invoice", "b")),
+                structured(3, answer("invoice", "c")),
+                structured(4, answer(null, "d"))));
+
+        assertThat(merged.documentType()).isEqualTo("invoice");
+    }
+
+    @Test
+    void fallbackPagesBecomeWarningsAndWarningsAreDeduplicated() throws Exception {
+        var merged = AgentService.merge(List.of(
+                structured(1, answer("invoice", "a", "blurry")),
+                fallback(2, "invalid JSON from model"),
+                structured(3, answer("invoice", "c", "blurry"))));
+
+        assertThat(merged.pages()).extracting(ExtractionResult.Page::page).containsExactly(1, 3);
+        assertThat(merged.warnings()).containsExactly("blurry", "Page 2: invalid JSON from model");
+    }
+
+    @Test
+    void allFallbackPagesGiveAGenericFormWithoutPages() throws Exception {
+        var merged = AgentService.merge(List.of(fallback(1, "timeout")));
+
+        assertThat(merged.documentType()).isEqualTo("generic_form");
+        assertThat(merged.pages()).isEmpty();
+        assertThat(merged.warnings()).containsExactly("Page 1: timeout");
+    }
+}
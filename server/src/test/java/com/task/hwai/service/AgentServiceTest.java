@@ -0,0 +1,144 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.task.hwai.model.Flow;
+import com.task.hwai.model.RunStatus;
+import com.task.hwai.repo.ExtractionRepo;
+import com.task.hwai.repo.ExtractionVersionRepo;
+import com.task.hwai.repo.RunPageRepo;
+import com.task.hwai.repo.RunRepo;
+import com.theokanning.openai.OpenAiService;
+import com.theokanning.openai.completion.chat.ChatCompletionChoice;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.opentelemetry.api.OpenTelemetry;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class AgentServiceTest {
+
+    private static final String ANSWER = "{\"document_type\":\"invoice\",\"pages\":[{\"page\":1,\"fields\":"
+            + "[{\"name\":\"total\",\"value\":\"10\",\"confidence\":0.95}],\"tables\":[]}],\"warnings\":[]}";
+
+    private final UUID fileId = UUID.randomUUID();
+    private final UUID runId = UUID.randomUUID();
+    private final Path path = Path.of("doc.pdf");
+
+    private final OpenAiService openAi = mock(OpenAiService.class);
+    private final OcrTool ocr = mock(OcrTool.class);
+    private final RunRepo runRepo = mock(RunRepo.class);
+    private final ExtractionRepo extractionRepo = mock(ExtractionRepo.class);
+    private final RunPageRepo runPageRepo = mock(RunPageRepo.class);
+    private final PipelineMetrics pipelineMetrics = mock(PipelineMetrics.class);
+    private final DuplicateService duplicates = mock(DuplicateService.class);
+    private final TableStore tables = mock(TableStore.class);
+    private final ExtractionVersionRepo versions = mock(ExtractionVersionRepo.class);
+    private final ModelRouter router = new ModelRouter();
+    private AgentService agent;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        ObjectProvider<OpenAiService> llm = mock(ObjectProvider.class);
+        when(llm.getObject()).thenReturn(openAi);
+        ReflectionTestUtils.setField(router, "retryBackoffMs", 0L);
+        agent = new AgentService(llm, ocr, OpenTelemetry.noop().getTracer("test"), runRepo, extractionRepo,
+                runPageRepo, versions, mock(FieldIndexService.class),
+                mock(AnalyticsService.class), pipelineMetrics, mock(PlatformTransactionManager.class), router,
+                duplicates, tables, mock(WorkSlots.class));
+
+        when(ocr.open(path)).thenCallRealMethod();
+        when(ocr.pageCount(path)).thenReturn(1);
+        when(ocr.extractPage(eq(path), anyInt())).thenAnswer(inv ->
+                new OcrTool.PageResult(inv.getArgument(1), List.of(new OcrTool.Token("total 10", 0.9))));
+        when(runPageRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(extractionRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(tables.store(eq(runId), any(), any())).thenAnswer(inv -> inv.getArgument(1));
+        when(tables.inline(any())).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @Test
+    void transportRetriesAreCountedInRunMetrics() throws Exception {
+        when(openAi.createChatCompletion(any()))
+                .thenThrow(new RuntimeException(new SocketTimeoutException("timeout")))
+                .thenReturn(completion(ANSWER));
+
+        var result = agent.run(fileId, runId, path, Flow.REPROCESS);
+
+        assertThat(result.documentType()).isEqualTo("invoice");
+        var metricsJson = ArgumentCaptor.forClass(String.class);
+        verify(runRepo).finish(eq(runId), eq(RunStatus.COMPLETED), any(), eq(null), metricsJson.capture());
+        assertThat(metricsJson.getValue()).contains("\"retries\":1");
+    }
+
+    @Test
+    void aFailureAfterCommitDoesNotFailTheCompletedRun() throws Exception {
+        when(openAi.createChatCompletion(any())).thenReturn(completion(ANSWER));
+        doThrow(new IllegalStateException("registry closed"))
+                .when(pipelineMetrics).runFinished(any(), any(), anyLong());
+        doThrow(new IllegalStateException("index down")).when(duplicates).completed(runId, fileId);
+
+        var result = agent.run(fileId, runId, path, Flow.REPROCESS);
+
+        assertThat(result.documentType()).isEqualTo("invoice");
+        verify(runRepo).finish(eq(runId), eq(RunStatus.COMPLETED), any(), eq(null), any());
+        verify(runRepo, never()).fail(any(), any(), any(), any());
+        verify(pipelineMetrics, times(1)).runFinished(any(), any(), anyLong());
+    }
+
+    @Test
+    void everyPageIsRoutedByTheDocumentsPageCount() throws Exception {
+        when(ocr.pageCount(path)).thenReturn(4);
+        when(openAi.createChatCompletion(any())).thenReturn(completion(ANSWER));
+
+        agent.run(fileId, runId, path, Flow.REPROCESS);
+
+        var requests = ArgumentCaptor.forClass(ChatCompletionRequest.class);
+        verify(openAi, times(4)).createChatCompletion(requests.capture());
+        assertThat(requests.getAllValues()).extracting(ChatCompletionRequest::getModel).containsOnly("gpt-4o");
+    }
+
+    @Test
+    void aRerunThatOnlyFallsBackKeepsTheCurrentExtraction() throws Exception {
+        when(openAi.createChatCompletion(any())).thenReturn(completion(""));
+
+        assertThatThrownBy(() -> agent.reprocess(fileId, runId, path, UUID.randomUUID()))
+                .isInstanceOf(IllegalStateException.class);
+
+        verify(extractionRepo, never()).save(any());
+        verify(versions, never()).save(any());
+        verify(runRepo, never()).finish(any(), any(), any(), any(), any());
+        verify(runRepo, never()).fail(any(), any(), any(), any());
+        verify(runPageRepo).deleteByRunId(runId);
+    }
+
+    static ChatCompletionResult completion(String content) {
+        var choice = new ChatCompletionChoice();
+        choice.setFinishReason("stop");
+        choice.setMessage(new ChatMessage("assistant", content));
+        var result = new ChatCompletionResult();
+        result.setChoices(List.of(choice));
+        return result;
+    }
+}
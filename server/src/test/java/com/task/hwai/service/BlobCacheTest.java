@@ -0,0 +1,92 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+class BlobCacheTest {
+
+    private static final byte[] DATA = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path dir;
+
+    private final PipelineMetrics metrics = mock(PipelineMetrics.class);
+
+    @Test
+    void retriesChunksFailingWithSdkExceptions() throws IOException {
+        var store = new FlakyStore(2);
+        var cache = new BlobCache(dir, 1 << 20, 8, metrics);
+
+        try (var file = cache.fetch("s3://bucket/aa/bb/f.pdf", store)) {
+            assertThat(Files.readAllBytes(file.path())).isEqualTo(DATA);
+        }
+        // 3 chunks, the first of which failed twice
+        assertThat(store.reads.get()).isEqualTo(5);
+    }
+
+    @Test
+    void givesUpAsIOExceptionAfterTheLastAttempt() {
+        var store = new FlakyStore(Integer.MAX_VALUE);
+        var cache = new BlobCache(dir, 1 << 20, 8, metrics);
+
+        assertThatThrownBy(() -> cache.fetch("s3://bucket/aa/bb/f.pdf", store))
+                .isInstanceOf(IOException.class)
+                .hasCauseInstanceOf(SdkClientException.class);
+        assertThat(store.reads.get()).isEqualTo(3);
+    }
+
+    // an object whose first reads abort mid-stream the way the S3 response stream does
+    private static final class FlakyStore implements BlobStore {
+        final AtomicInteger reads = new AtomicInteger();
+        final int failures;
+
+        FlakyStore(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public InputStream read(String uri, long offset, long length) {
+            if (reads.incrementAndGet() <= failures) {
+                return new InputStream() {
+                    @Override
+                    public int read() {
+                        throw SdkClientException.create("connection reset");
+                    }
+                };
+            }
+            return new ByteArrayInputStream(DATA, (int) offset, (int) length);
+        }
+
+        @Override
+        public long size(String uri) {
+            return DATA.length;
+        }
+
+        @Override
+        public String put(String key, Path source, String contentType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean delete(String uri) {
+            return false;
+        }
+
+        @Override
+        public Path localPath(String uri) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.task.hwai.entity.ExtractionFieldEntity;
+import com.task.hwai.model.ExtractionResult;
+import com.task.hwai.repo.ExtractionFieldRepo;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+class FieldIndexServiceTest {
+
+    private final UUID runId = UUID.randomUUID();
+    private final ExtractionFieldRepo fieldRepo = mock(ExtractionFieldRepo.class);
+    private final FieldIndexService index = new FieldIndexService(fieldRepo);
+
+    @Test
+    void indexReplacesTheRunsFieldsWithOneRowPerNamedField() {
+        var result = document(
+                new ExtractionResult.Page(1, Arrays.asList(
+                        field("invoice_number", "  INV-001 ", 0.95),
+                        field(null, "dropped", 0.5),
+                        null), List.of()),
+                new ExtractionResult.Page(2, List.of(field("total", 12.5, 0.8), field("note", null, null)), List.of()));
+
+        index.index(runId, result);
+
+        var order = inOrder(fieldRepo);
+        order.verify(fieldRepo).deleteByRunId(runId);
+        var rows = saved(order);
+        assertThat(rows).extracting(ExtractionFieldEntity::getName).containsExactly("invoice_number", "total", "note");
+        assertThat(rows).allSatisfy(r -> {
+            assertThat(r.getRunId()).isEqualTo(runId);
+            assertThat(r.getDocumentType()).isEqualTo("invoice");
+        });
+        assertThat(rows.get(0).getValue()).isEqualTo("  INV-001 ");
+        assertThat(rows.get(0).getValueNorm()).isEqualTo("inv-001");
+        assertThat(rows.get(1).getPage()).isEqualTo(2);
+        assertThat(rows.get(1).getValueNorm()).isEqualTo("12.5");
+        assertThat(rows.get(2).getValueNorm()).isNull();
+        assertThat(rows.get(2).getConfidence()).isNull();
+    }
+
+    @Test
+    void longValuesAreTruncatedForStorageAndLookup() {
+        index.index(runId, document(new ExtractionResult.Page(1, List.of(field("notes", "X".repeat(2000), 0.9)), List.of())));
+
+        var row = saved(inOrder(fieldRepo)).get(0);
+        assertThat(row.getValue()).hasSize(FieldIndexService.MAX_VALUE_LENGTH);
+        assertThat(row.getValueNorm()).hasSize(FieldIndexService.MAX_NORM_LENGTH).isEqualTo("x".repeat(255));
+    }
+
+    @Test
+    void aResultWithoutPagesOnlyClearsTheRun() {
+        index.index(runId, new ExtractionResult(null, null, "invoice", null, List.of(), 0));
+
+        verify(fieldRepo).deleteByRunId(runId);
+        verify(fieldRepo, never()).saveAll(anyList());
+    }
+
+    @Test
+    void reindexingAFieldTouchesOnlyThatFieldOnThatPage() {
+        index.reindexField(runId, "invoice", 3, "total", List.of(field("total", "99", 0.7)));
+
+        var order = inOrder(fieldRepo);
+        order.verify(fieldRepo).deleteByRunIdAndPageAndName(runId, 3, "total");
+        var rows = saved(order);
+        assertThat(rows).singleElement().satisfies(r -> {
+            assertThat(r.getPage()).isEqualTo(3);
+            assertThat(r.getValueNorm()).isEqualTo("99");
+        });
+        verify(fieldRepo, never()).deleteByRunId(runId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ExtractionFieldEntity> saved(InOrder order) {
+        ArgumentCaptor<List<ExtractionFieldEntity>> rows = ArgumentCaptor.forClass(List.class);
+        order.verify(fieldRepo).saveAll(rows.capture());
+        return rows.getValue();
+    }
+
+    private static ExtractionResult.Field field(String name, Object value, Double confidence) {
+        return new ExtractionResult.Field(name, value, confidence, null);
+    }
+
+    private static ExtractionResult document(ExtractionResult.Page... pages) {
+        return new ExtractionResult(null, null, "invoice", List.of(pages), List.of(), 0);
+    }
+}
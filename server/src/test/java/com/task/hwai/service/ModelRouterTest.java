@@ -0,0 +1,90 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.task.hwai.model.ExtractionResult;
+import com.theokanning.openai.OpenAiError;
+import com.theokanning.openai.OpenAiHttpException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ModelRouterTest {
+
+    private final ModelRouter router = new ModelRouter();
+
+    private static ExtractionResult result(String type, double confidence, int warnings) {
+        return new ExtractionResult("f", "r", type,
+                List.of(new ExtractionResult.Page(1,
+                        List.of(new ExtractionResult.Field("total", "1", confidence, null)), List.of())),
+                java.util.Collections.nCopies(warnings, "w"), 0);
+    }
+
+    private static OpenAiHttpException http(int status) {
+        return new OpenAiHttpException(new OpenAiError(new OpenAiError.OpenAiErrorDetails()), null, status);
+    }
+
+    @Test
+    void smallDocumentsStartCheapLargeOnesStrong() {
+        var small = router.initial(1_000, 1);
+        assertThat(small.model()).isEqualTo("gpt-4o-mini");
+        assertThat(small.maxTokens()).isEqualTo(512 + 500);
+
+        assertThat(router.initial(8_000, 1).model()).isEqualTo("gpt-4o");
+        assertThat(router.initial(100, 4).reason()).isEqualTo("large_document");
+        assertThat(router.initial(1_000_000, 1).maxTokens()).isEqualTo(4096);
+    }
+
+    @Test
+    void weakAnswersEscalate() {
+        assertThat(router.escalationReason(result("invoice", 0.9, 0), "ok", "length")).isEqualTo("truncated");
+        assertThat(router.escalationReason(null, "invalid_json", "stop")).isEqualTo("invalid_json");
+        assertThat(router.escalationReason(result("invoice", 0.5, 0), "ok", "stop")).isEqualTo("low_confidence");
+        assertThat(router.escalationReason(result("invoice", 0.9, 3), "ok", "stop")).isEqualTo("warnings");
+        assertThat(router.escalationReason(result("invoice", 0.9, 0), "ok", "stop")).isNull();
+    }
+
+    @Test
+    void strictDocumentTypesNeedMoreConfidence() {
+        ReflectionTestUtils.setField(router, "strictDocumentTypes", "contract, cheque");
+
+        assertThat(router.escalationReason(result("cheque", 0.8, 0), "ok", "stop")).isEqualTo("low_confidence");
+        assertThat(router.escalationReason(result("invoice", 0.8, 0), "ok", "stop")).isNull();
+    }
+
+    @Test
+    void failedCallsAreNotEscalated() {
+        assertThat(router.escalationReason(null, "error", null)).isNull();
+    }
+
+    @Test
+    void escalationGoesToTheStrongModelAndDoublesTruncatedBudgets() {
+        var cheap = new ModelRouter.Route("gpt-4o-mini", 1000, "default");
+        assertThat(router.escalate(cheap, "low_confidence"))
+                .isEqualTo(new ModelRouter.Route("gpt-4o", 1000, "escalated:low_confidence"));
+
+        var strong = new ModelRouter.Route("gpt-4o", 1000, "large_document");
+        assertThat(router.escalate(strong, "low_confidence")).isNull();
+        assertThat(router.escalate(strong, "truncated").maxTokens()).isEqualTo(2000);
+        assertThat(router.escalate(new ModelRouter.Route("gpt-4o", 4096, "x"), "truncated")).isNull();
+    }
+
+    @Test
+    void transportErrorsAreRetriedWithBackoff() {
+        var timeout = new RuntimeException(new SocketTimeoutException("timeout"));
+        assertThat(router.retryDelayMs(timeout, 1)).isEqualTo(500);
+        assertThat(router.retryDelayMs(timeout, 2)).isEqualTo(1000);
+        assertThat(router.retryDelayMs(timeout, 3)).isEqualTo(-1);
+
+        assertThat(router.retryDelayMs(http(429), 1)).isEqualTo(500);
+        assertThat(router.retryDelayMs(http(503), 2)).isEqualTo(1000);
+        assertThat(router.retryDelayMs(http(408), 1)).isEqualTo(500);
+    }
+
+    @Test
+    void rejectedRequestsAreNotRetried() {
+        assertThat(router.retryDelayMs(http(400), 1)).isEqualTo(-1);
+        assertThat(router.retryDelayMs(http(401), 1)).isEqualTo(-1);
+    }
+}
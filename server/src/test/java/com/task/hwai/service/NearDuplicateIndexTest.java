@@ -0,0 +1,87 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class NearDuplicateIndexTest {
+
+    private final NearDuplicateIndex index = new NearDuplicateIndex();
+
+    private static long flip(long hash, int bits) {
+        for (int i = 0; i < bits; i++) hash ^= 1L << (i * 7);
+        return hash;
+    }
+
+    @Test
+    void radiusQueryFindsTheClosestRunWithinDistance() {
+        var random = new Random(42);
+        List<UUID> others = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            var id = UUID.randomUUID();
+            others.add(id);
+            index.add(id, 1, new long[] { random.nextLong() });
+        }
+        long page = 0x0123_4567_89ab_cdefL;
+        var near = UUID.randomUUID();
+        var nearer = UUID.randomUUID();
+        index.add(near, 1, new long[] { flip(page, 5) });
+        index.add(nearer, 1, new long[] { flip(page, 2) });
+
+        assertThat(index.nearest(1, new long[] { page }, 6)).isEqualTo(new NearDuplicateIndex.Match(nearer, 2));
+        assertThat(index.nearest(1, new long[] { page }, 1)).isNull();
+    }
+
+    @Test
+    void everyPageMustBeWithinDistance() {
+        var run = UUID.randomUUID();
+        index.add(run, 2, new long[] { 1L, 0xffL });
+
+        assertThat(index.nearest(2, new long[] { 1L, 0xffL }, 3)).isEqualTo(new NearDuplicateIndex.Match(run, 0));
+        assertThat(index.nearest(2, new long[] { 1L, 0L }, 3)).isNull();
+    }
+
+    @Test
+    void realPageCountMustMatchEvenWhenHashedPagesDo() {
+        var run = UUID.randomUUID();
+        index.add(run, 40, new long[] { 1L, 2L });
+
+        assertThat(index.nearest(41, new long[] { 1L, 2L }, 6)).isNull();
+        assertThat(index.nearest(2, new long[] { 1L, 2L }, 6)).isNull();
+        assertThat(index.nearest(40, new long[] { 1L, 2L }, 6)).isEqualTo(new NearDuplicateIndex.Match(run, 0));
+    }
+
+    @Test
+    void removedAndReplacedEntriesAreNotReturned() {
+        var run = UUID.randomUUID();
+        index.add(run, 1, new long[] { 7L });
+        index.remove(run);
+        assertThat(index.nearest(1, new long[] { 7L }, 0)).isNull();
+
+        index.add(run, 1, new long[] { -1L });
+        assertThat(index.nearest(1, new long[] { 7L }, 0)).isNull();
+        assertThat(index.nearest(1, new long[] { -1L }, 0)).isEqualTo(new NearDuplicateIndex.Match(run, 0));
+    }
+
+    @Test
+    void staleEntriesAreCompactedAway() {
+        List<UUID> runs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            var id = UUID.randomUUID();
+            runs.add(id);
+            index.add(id, 1, new long[] { i });
+        }
+        for (int i = 0; i < 150; i++) index.remove(runs.get(i));
+
+        assertThat(index.size()).isEqualTo(50);
+        assertThat(index.nearest(1, new long[] { 10L }, 0)).isNull();
+        assertThat(index.nearest(1, new long[] { 170L }, 0)).isEqualTo(new NearDuplicateIndex.Match(runs.get(170), 0));
+        // removing an unknown run leaves nothing behind
+        index.remove(UUID.randomUUID());
+        assertThat(index.size()).isEqualTo(50);
+    }
+}
@@ -0,0 +1,99 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PerceptualHashTest {
+
+    @TempDir
+    Path dir;
+
+    // a form-like page: a header bar and a column of boxes at the given x
+    private static BufferedImage form(int width, int height, int boxX) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, width, height / 10);
+            for (int i = 0; i < 5; i++) {
+                g.fillRect(boxX * width / 100, height / 5 + i * height / 7, width / 3, height / 20);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static BufferedImage speckled(BufferedImage image, long seed) {
+        var random = new Random(seed);
+        for (int i = 0; i < image.getWidth() * image.getHeight() / 50; i++) {
+            image.setRGB(random.nextInt(image.getWidth()), random.nextInt(image.getHeight()), 0x808080);
+        }
+        return image;
+    }
+
+    @Test
+    void distanceIsHammingDistance() {
+        assertThat(PerceptualHash.distance(0b1011L, 0b0001L)).isEqualTo(2);
+        assertThat(PerceptualHash.distance(-1L, 0L)).isEqualTo(64);
+    }
+
+    @Test
+    void rescansOfTheSamePageLandClose() {
+        long original = PerceptualHash.of(form(600, 800, 10));
+        long rescan = PerceptualHash.of(speckled(form(1200, 1600, 10), 7));
+
+        assertThat(PerceptualHash.distance(original, rescan)).isLessThanOrEqualTo(6);
+    }
+
+    @Test
+    void differentLayoutsLandFarApart() {
+        long left = PerceptualHash.of(form(600, 800, 10));
+        long right = PerceptualHash.of(form(600, 800, 60));
+
+        assertThat(PerceptualHash.distance(left, right)).isGreaterThan(6);
+    }
+
+    @Test
+    void imageFileHasOnePage() throws Exception {
+        Path png = dir.resolve("scan.png");
+        ImageIO.write(form(600, 800, 10), "png", png.toFile());
+
+        var hashes = PerceptualHash.ofFile(png, 32);
+        assertThat(hashes.pages()).isEqualTo(1);
+        assertThat(hashes.hashes()).hasSize(1);
+    }
+
+    @Test
+    void pdfKeepsItsRealPageCountWhenHashesAreCapped() throws Exception {
+        Path pdf = dir.resolve("ledger.pdf");
+        try (var doc = new PDDocument()) {
+            for (int i = 0; i < 3; i++) doc.addPage(new PDPage());
+            doc.save(pdf.toFile());
+        }
+
+        var hashes = PerceptualHash.ofFile(pdf, 2);
+        assertThat(hashes.pages()).isEqualTo(3);
+        assertThat(hashes.hashes()).hasSize(2);
+    }
+
+    @Test
+    void unreadableFileHasNoHashes() throws Exception {
+        Path text = Files.writeString(dir.resolve("notes.txt"), "not an image");
+
+        assertThat(PerceptualHash.ofFile(text, 32).hashes()).isEmpty();
+    }
+}
@@ -0,0 +1,59 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.task.hwai.model.Flow;
+import com.task.hwai.model.RunPriority;
+import com.task.hwai.model.RunStatus;
+import com.task.hwai.repo.RunRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class PipelineMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PipelineMetrics metrics = new PipelineMetrics(registry, mock(RunRepo.class));
+
+    @Test
+    void taggedTimersAreRegisteredOncePerTagCombination() {
+        metrics.runFinished(RunStatus.COMPLETED, "extracted", 100);
+        metrics.runFinished(RunStatus.COMPLETED, "extracted", 300);
+        metrics.runFinished(RunStatus.COMPLETED, "fallback", 50);
+        metrics.llm("gpt-4o-mini", "ok", 1_000_000);
+        metrics.llm("gpt-4o-mini", "ok", 1_000_000);
+        metrics.slotWait(WorkSlots.Stage.OCR, RunPriority.BATCH, 1_000);
+
+        assertThat(registry.find("hwai.run.duration").timers()).hasSize(2);
+        assertThat(registry.get("hwai.run.duration").tags("status", "COMPLETED", "outcome", "extracted").timer().count())
+                .isEqualTo(2);
+        assertThat(registry.get("hwai.llm.duration").tags("model", "gpt-4o-mini", "outcome", "ok").timer().count())
+                .isEqualTo(2);
+        assertThat(registry.get("hwai.scheduler.slot.wait").tags("stage", "ocr", "priority", "BATCH").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void countersKeepTheirTag() {
+        metrics.blobCache("hit");
+        metrics.blobCache("hit");
+        metrics.blobCache("miss");
+        metrics.storageReclaimed("quota", 4096);
+
+        assertThat(registry.get("hwai.storage.cache.requests").tag("outcome", "hit").counter().count()).isEqualTo(2);
+        assertThat(registry.get("hwai.storage.cache.requests").tag("outcome", "miss").counter().count()).isEqualTo(1);
+        assertThat(registry.get("hwai.storage.reclaimed.bytes").tag("reason", "quota").counter().count()).isEqualTo(4096);
+    }
+
+    @Test
+    void clientsPastTheLimitShareTheOtherSeries() {
+        ReflectionTestUtils.setField(metrics, "maxTaggedClients", 1);
+        metrics.queueWait(new Flow("acme", RunPriority.INTERACTIVE), 10);
+        metrics.queueWait(new Flow("globex", RunPriority.INTERACTIVE), 20);
+        metrics.queueWait(new Flow("initech", RunPriority.INTERACTIVE), 30);
+
+        assertThat(registry.get("hwai.scheduler.queue.wait").tag("client", "acme").timer().count()).isEqualTo(1);
+        assertThat(registry.get("hwai.scheduler.queue.wait").tag("client", "other").timer().count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,137 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.task.hwai.entity.FileEntity;
+import com.task.hwai.entity.ReprocessJobEntity;
+import com.task.hwai.entity.RunEntity;
+import com.task.hwai.model.JobStatus;
+import com.task.hwai.model.RunStatus;
+import com.task.hwai.repo.FileRepo;
+import com.task.hwai.repo.ReprocessJobRepo;
+import com.task.hwai.repo.RunRepo;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReprocessServiceTest {
+
+    private final ReprocessJobRepo jobRepo = mock(ReprocessJobRepo.class);
+    private final RunRepo runRepo = mock(RunRepo.class);
+    private final FileRepo fileRepo = mock(FileRepo.class);
+    private final AgentService agent = mock(AgentService.class);
+    private final StorageService storage = mock(StorageService.class);
+    private final ReprocessService service = new ReprocessService(jobRepo, runRepo, fileRepo, agent,
+            mock(PipelineMetrics.class), storage);
+
+    private final ReprocessJobEntity job = new ReprocessJobEntity();
+    private final List<UUID> items = new ArrayList<>();
+
+    @BeforeEach
+    void fakeRepos() throws Exception {
+        job.setStatus(JobStatus.RUNNING);
+        job.setParallelism(1);
+        job.setRatePerMinute(6000);
+        when(jobRepo.findById(job.getJobId())).thenReturn(Optional.of(job));
+        when(jobRepo.start(eq(job.getJobId()), any())).thenReturn(1);
+        // pending items in run id order after the given one, as the query pages them; compared as
+        // text because UUID.compareTo is signed and the database's order is not
+        when(jobRepo.pendingItems(eq(job.getJobId()), any(), anyInt())).thenAnswer(inv -> {
+            String after = inv.getArgument(1).toString();
+            return items.stream().map(UUID::toString).sorted().filter(id -> id.compareTo(after) > 0).toList();
+        });
+        when(storage.open(any())).thenReturn(new StorageService.LocalFile("file:doc.pdf", Path.of("doc.pdf"), () -> { }));
+    }
+
+    @AfterEach
+    void stop() {
+        service.shutdown();
+    }
+
+    @Test
+    void resumesARunningJobWithItsPendingItems() throws Exception {
+        UUID runId = completedRun();
+        items.add(runId);
+        when(jobRepo.findByStatusInOrderByCreatedAt(any())).thenReturn(List.of(job));
+
+        service.resumeUnfinished();
+
+        verify(agent, timeout(5000)).reprocess(any(), eq(runId), eq(Path.of("doc.pdf")), eq(job.getJobId()));
+        verify(jobRepo, timeout(5000)).complete(eq(job.getJobId()), any());
+        verify(jobRepo).markItem(job.getJobId(), runId, "DONE");
+        verify(jobRepo).addSucceeded(job.getJobId());
+    }
+
+    @Test
+    void cancelLeavesItemsNotYetStartedPending() throws Exception {
+        UUID first = completedRun();
+        UUID second = completedRun();
+        items.addAll(List.of(first, second));
+        items.sort(Comparator.comparing(UUID::toString));
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(agent.reprocess(any(), eq(items.get(0)), any(), any())).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        when(jobRepo.findByStatusInOrderByCreatedAt(any())).thenReturn(List.of(job));
+        when(jobRepo.cancel(eq(job.getJobId()), any())).thenReturn(1);
+
+        service.resumeUnfinished();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(service.cancel(job.getJobId())).isTrue();
+        release.countDown();
+
+        // the item in flight finishes; the other one is never started
+        verify(jobRepo, timeout(5000)).markItem(job.getJobId(), items.get(0), "DONE");
+        Thread.sleep(200);
+        verify(agent, never()).reprocess(any(), eq(items.get(1)), any(), any());
+        verify(jobRepo, never()).markItem(job.getJobId(), items.get(1), "DONE");
+        verify(jobRepo, never()).complete(any(), any());
+    }
+
+    @Test
+    void aFailedItemIsCountedAndTheJobCarriesOn() throws Exception {
+        UUID failing = completedRun();
+        UUID fine = completedRun();
+        items.addAll(List.of(failing, fine));
+        when(agent.reprocess(any(), eq(failing), any(), any()))
+                .thenThrow(new IllegalStateException("rerun produced no structured page"));
+        when(jobRepo.findByStatusInOrderByCreatedAt(any())).thenReturn(List.of(job));
+
+        service.resumeUnfinished();
+
+        verify(jobRepo, timeout(5000)).complete(eq(job.getJobId()), any());
+        verify(jobRepo).markItem(job.getJobId(), failing, "FAILED");
+        verify(jobRepo).addFailed(eq(job.getJobId()), anyString());
+        verify(jobRepo).markItem(job.getJobId(), fine, "DONE");
+    }
+
+    private UUID completedRun() {
+        var file = new FileEntity();
+        var run = new RunEntity();
+        run.setFileId(file.getFileId());
+        run.setStatus(RunStatus.COMPLETED);
+        when(runRepo.findById(run.getRunId())).thenReturn(Optional.of(run));
+        when(fileRepo.findById(file.getFileId())).thenReturn(Optional.of(file));
+        return run.getRunId();
+    }
+}
@@ -0,0 +1,88 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.task.hwai.model.ExtractionResult;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RollupDeltaTest {
+
+    private static ExtractionResult doc(Double... confidences) {
+        var fields = new java.util.ArrayList<ExtractionResult.Field>();
+        for (int i = 0; i < confidences.length; i++) {
+            fields.add(new ExtractionResult.Field("f" + i, "v", confidences[i], null));
+        }
+        return new ExtractionResult("file", "run", "invoice",
+                List.of(new ExtractionResult.Page(1, fields, List.of())), List.of(), 0);
+    }
+
+    @Test
+    void documentDeltaCountsFieldsAndBins() {
+        var d = RollupDelta.ofDocument(doc(0.1, 0.9, null), true, 1);
+
+        assertThat(d.documents).isEqualTo(1);
+        assertThat(d.fallbacks).isEqualTo(1);
+        assertThat(d.fieldCount).isEqualTo(2);
+        assertThat(d.fieldConfidenceSum).isCloseTo(1.0, within(1e-9));
+        assertThat(d.avgConfidenceSum).isCloseTo(0.5, within(1e-9));
+        assertThat(d.histogram[2]).isEqualTo(1);
+        assertThat(d.histogram[18]).isEqualTo(1);
+    }
+
+    @Test
+    void addingARetractionCancelsOut() {
+        var result = doc(0.2, 0.6, 1.0);
+        var d = RollupDelta.ofDocument(result, false, 1).plus(RollupDelta.ofDocument(result, false, -1));
+
+        assertThat(d.isEmpty()).isTrue();
+    }
+
+    @Test
+    void fieldEditMovesBinAndAverage() {
+        var d = new RollupDelta();
+        d.addField(0.3, -1);
+        d.addField(0.8, 1);
+        d.moveAverage(0.4, 0.65);
+
+        assertThat(d.documents).isZero();
+        assertThat(d.fieldCount).isZero();
+        assertThat(d.histogram[6]).isEqualTo(-1);
+        assertThat(d.histogram[16]).isEqualTo(1);
+        assertThat(d.avgConfidenceSum).isCloseTo(0.25, within(1e-9));
+        assertThat(d.isEmpty()).isFalse();
+    }
+
+    @Test
+    void binClampsOutOfRangeConfidences() {
+        assertThat(RollupDelta.bin(-0.5)).isZero();
+        assertThat(RollupDelta.bin(1.0)).isEqualTo(RollupDelta.BINS - 1);
+        assertThat(RollupDelta.bin(7.0)).isEqualTo(RollupDelta.BINS - 1);
+    }
+
+    @Test
+    void quantileInterpolatesInsideTheBin() {
+        long[] histogram = new long[RollupDelta.BINS];
+        histogram[10] = 4; // [0.50, 0.55)
+
+        assertThat(AnalyticsService.quantile(histogram, 0.5)).isCloseTo(0.525, within(1e-9));
+        assertThat(AnalyticsService.quantile(histogram, 1.0)).isCloseTo(0.55, within(1e-9));
+    }
+
+    @Test
+    void quantileSpansBins() {
+        long[] histogram = new long[RollupDelta.BINS];
+        histogram[2] = 1;
+        histogram[18] = 9;
+
+        assertThat(AnalyticsService.quantile(histogram, 0.1)).isCloseTo(0.15, within(1e-9));
+        assertThat(AnalyticsService.quantile(histogram, 0.9)).isGreaterThan(0.9).isLessThan(0.95);
+    }
+
+    @Test
+    void quantileOfEmptyHistogramIsNull() {
+        assertThat(AnalyticsService.quantile(new long[RollupDelta.BINS], 0.5)).isNull();
+        assertThat(AnalyticsService.quantile(null, 0.5)).isNull();
+    }
+}
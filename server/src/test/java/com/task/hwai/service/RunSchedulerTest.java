@@ -0,0 +1,187 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.task.hwai.entity.FileEntity;
+import com.task.hwai.entity.RunEntity;
+import com.task.hwai.model.Flow;
+import com.task.hwai.model.RunPriority;
+import com.task.hwai.repo.FileRepo;
+import com.task.hwai.repo.RunRepo;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RunSchedulerTest {
+
+    private final RunRepo runRepo = mock(RunRepo.class);
+    private final FileRepo fileRepo = mock(FileRepo.class);
+    private final AgentService agent = mock(AgentService.class);
+    private final StorageService storage = mock(StorageService.class);
+    // workers are only started by the lease tests; the others take runs themselves
+    private final RunScheduler scheduler = new RunScheduler(runRepo, fileRepo, agent, storage,
+            mock(PipelineMetrics.class), 1);
+
+    @AfterEach
+    void stop() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void interactiveRunGoesAheadOfQueuedBatchPages() throws InterruptedException {
+        UUID big1 = submit("archive", RunPriority.BATCH, 10);
+        UUID big2 = submit("archive", RunPriority.BATCH, 10);
+        UUID form = submit("acme", RunPriority.INTERACTIVE, 1);
+
+        assertThat(scheduler.take().runId()).isEqualTo(form);
+        assertThat(scheduler.take().runId()).isEqualTo(big1);
+        assertThat(scheduler.take().runId()).isEqualTo(big2);
+    }
+
+    @Test
+    void clientsOfOneClassShareByPages() throws InterruptedException {
+        UUID a1 = submit("a", RunPriority.BATCH, 5);
+        UUID a2 = submit("a", RunPriority.BATCH, 5);
+        UUID a3 = submit("a", RunPriority.BATCH, 5);
+        UUID b1 = submit("b", RunPriority.BATCH, 5);
+        UUID b2 = submit("b", RunPriority.BATCH, 20);
+
+        // finish tags: a 5, 10, 15; b 5, 25
+        assertThat(takeIds(5)).containsExactly(a1, b1, a2, a3, b2);
+    }
+
+    @Test
+    void unknownPageCountCostsOnePage() throws InterruptedException {
+        UUID unknown = submit("a", RunPriority.BATCH, null);
+        UUID twoPages = submit("b", RunPriority.BATCH, 2);
+
+        assertThat(takeIds(2)).containsExactly(unknown, twoPages);
+    }
+
+    @Test
+    void clientAtItsCapIsSkippedUntilARunFinishes() throws InterruptedException {
+        ReflectionTestUtils.setField(scheduler, "maxRunsPerClient", 2);
+        UUID a1 = submit("a", RunPriority.INTERACTIVE, 1);
+        UUID a2 = submit("a", RunPriority.INTERACTIVE, 1);
+        UUID a3 = submit("a", RunPriority.INTERACTIVE, 1);
+        UUID b1 = submit("b", RunPriority.BATCH, 100);
+
+        var first = scheduler.take();
+        assertThat(first.runId()).isEqualTo(a1);
+        assertThat(scheduler.take().runId()).isEqualTo(a2);
+        // a has two running, so b goes next despite its larger tag
+        assertThat(scheduler.take().runId()).isEqualTo(b1);
+
+        scheduler.finished(first);
+        assertThat(scheduler.take().runId()).isEqualTo(a3);
+        assertThat(scheduler.snapshot()).allSatisfy(s -> assertThat(s.queued()).isZero());
+    }
+
+    @Test
+    void resubmittingAQueuedRunKeepsItsPlace() throws InterruptedException {
+        var run = run("a", RunPriority.BATCH);
+        scheduler.submit(run, 3);
+        UUID other = submit("b", RunPriority.BATCH, 2);
+        scheduler.submit(run, 3);
+
+        assertThat(takeIds(2)).containsExactly(other, run.getRunId());
+        assertThat(scheduler.snapshot()).allSatisfy(s -> assertThat(s.queued()).isZero());
+    }
+
+    @Test
+    void pollingSchedulesRunsQueuedOnAnyInstanceOnce() {
+        UUID runId = UUID.randomUUID();
+        when(runRepo.findQueued()).thenReturn(List.<Object[]>of(
+                new Object[] {runId, UUID.randomUUID(), "acme", RunPriority.BATCH, Instant.now(), 3}));
+
+        Instant before = Instant.now();
+        scheduler.poll();
+        scheduler.poll();
+
+        assertThat(scheduler.snapshot()).singleElement().satisfies(s -> assertThat(s.queued()).isEqualTo(1));
+        var now = ArgumentCaptor.forClass(Instant.class);
+        verify(runRepo, times(2)).requeueExpired(now.capture());
+        assertThat(now.getValue()).isBetween(before, Instant.now());
+    }
+
+    @Test
+    void aRunClaimedByAnotherInstanceIsDroppedBeforeItsOriginalIsFetched() throws Exception {
+        UUID runId = queued();
+        when(runRepo.claim(eq(runId), anyString(), any(), any())).thenReturn(0);
+
+        scheduler.start();
+
+        verify(runRepo, timeout(5000)).claim(eq(runId), anyString(), any(), any());
+        Thread.sleep(100);
+        verify(storage, never()).open(any());
+        verify(agent, never()).run(any(), any(), any(), any());
+    }
+
+    @Test
+    void aClaimedRunIsProcessedUnderThisInstancesLease() throws Exception {
+        ReflectionTestUtils.setField(scheduler, "nodeId", "node-a");
+        ReflectionTestUtils.setField(scheduler, "lease", Duration.ofSeconds(30));
+        UUID runId = queued();
+        var file = new FileEntity();
+        when(fileRepo.findById(any())).thenReturn(Optional.of(file));
+        when(storage.open(file)).thenReturn(new StorageService.LocalFile("file:doc.pdf", Path.of("doc.pdf"), () -> { }));
+        when(runRepo.claim(eq(runId), eq("node-a"), any(), any())).thenReturn(1);
+
+        Instant before = Instant.now();
+        scheduler.start();
+
+        verify(agent, timeout(5000))
+                .run(file.getFileId(), runId, Path.of("doc.pdf"), new Flow("acme", RunPriority.BATCH));
+        var leaseUntil = ArgumentCaptor.forClass(Instant.class);
+        verify(runRepo).claim(eq(runId), eq("node-a"), any(), leaseUntil.capture());
+        assertThat(leaseUntil.getValue()).isBetween(before.plusSeconds(30), Instant.now().plusSeconds(30));
+
+        scheduler.renewLeases();
+        verify(runRepo).renewLeases(eq("node-a"), any());
+    }
+
+    // one run in the database queue, as another instance's upload would leave it
+    private UUID queued() {
+        UUID runId = UUID.randomUUID();
+        when(runRepo.findQueued()).thenReturn(List.<Object[]>of(
+                new Object[] {runId, UUID.randomUUID(), "acme", RunPriority.BATCH, Instant.now(), 1}));
+        return runId;
+    }
+
+    private UUID submit(String client, RunPriority priority, Integer pages) {
+        var run = run(client, priority);
+        scheduler.submit(run, pages);
+        return run.getRunId();
+    }
+
+    private static RunEntity run(String client, RunPriority priority) {
+        var run = new RunEntity();
+        run.setFileId(UUID.randomUUID());
+        run.setClientId(client);
+        run.setPriority(priority);
+        return run;
+    }
+
+    private List<UUID> takeIds(int n) throws InterruptedException {
+        var ids = new ArrayList<UUID>();
+        for (int i = 0; i < n; i++) ids.add(scheduler.take().runId());
+        return ids;
+    }
+}
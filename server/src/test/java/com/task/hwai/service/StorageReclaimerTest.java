@@ -0,0 +1,129 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.task.hwai.entity.FileEntity;
+import com.task.hwai.model.RunStatus;
+import com.task.hwai.repo.FileRepo;
+import com.task.hwai.repo.RunRepo;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class StorageReclaimerTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private final FileRepo fileRepo = mock(FileRepo.class);
+    private final RunRepo runRepo = mock(RunRepo.class);
+    private final StorageService storage = mock(StorageService.class);
+    private final PipelineMetrics metrics = mock(PipelineMetrics.class);
+    private final StorageReclaimer reclaimer = new StorageReclaimer(fileRepo, runRepo, storage, metrics);
+
+    @BeforeEach
+    void fastDeletes() {
+        ReflectionTestUtils.setField(reclaimer, "maxDeletesPerSecond", 1000);
+        when(storage.delete(any())).thenAnswer(inv -> ((FileEntity) inv.getArgument(0)).getSize());
+    }
+
+    @Test
+    void nothingIsDeletedUntilARuleIsConfigured() {
+        reclaimer.reclaim();
+
+        verify(fileRepo, never()).findExpired(any(), any(), any(), any());
+        verify(fileRepo, never()).findOrphaned(any(), any());
+        verify(fileRepo, never()).findLeastRecentlyUsed(any(), any());
+        verifyNoInteractions(storage);
+    }
+
+    @Test
+    void retentionDeletesExpiredOriginalsPerRule() {
+        ReflectionTestUtils.setField(reclaimer, "completedRetention", Duration.ofDays(30));
+        ReflectionTestUtils.setField(reclaimer, "failedRetention", Duration.ofDays(90));
+        ReflectionTestUtils.setField(reclaimer, "orphanedRetention", Duration.ofDays(1));
+        when(fileRepo.findExpired(eq(RunStatus.COMPLETED), any(), any(), any())).thenReturn(files(2, 10));
+        when(fileRepo.findExpired(eq(RunStatus.FAILED), any(), any(), any())).thenReturn(files(1, 20));
+        when(fileRepo.findOrphaned(any(), any())).thenReturn(files(1, 30));
+
+        Instant before = Instant.now();
+        reclaimer.reclaim();
+
+        verify(metrics, times(2)).storageReclaimed("retention_completed", 10);
+        verify(metrics).storageReclaimed("retention_failed", 20);
+        verify(metrics).storageReclaimed("orphaned", 30);
+        var cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(fileRepo).findExpired(eq(RunStatus.COMPLETED), cutoff.capture(), any(), any());
+        assertThat(cutoff.getValue()).isBetween(before.minus(Duration.ofDays(30)), Instant.now().minus(Duration.ofDays(30)));
+    }
+
+    @Test
+    void quotaEvictsLeastRecentlyReadDownToNinetyPercent() {
+        ReflectionTestUtils.setField(reclaimer, "quotaMb", 1L);
+        when(fileRepo.storedBytes()).thenReturn(2 * MB);
+        when(fileRepo.findLeastRecentlyUsed(any(), any())).thenReturn(files(5, 400 * 1024));
+
+        reclaimer.reclaim();
+
+        // 2 MiB stored, 0.9 MiB allowed: three 400 KiB files cover the 1.1 MiB to free
+        verify(storage, times(3)).delete(any());
+    }
+
+    @Test
+    void originalsReadWithinMinIdleAreNotCandidates() {
+        ReflectionTestUtils.setField(reclaimer, "completedRetention", Duration.ofDays(30));
+        ReflectionTestUtils.setField(reclaimer, "quotaMb", 1L);
+        ReflectionTestUtils.setField(reclaimer, "minIdle", Duration.ofHours(1));
+        when(fileRepo.storedBytes()).thenReturn(2 * MB);
+
+        Instant before = Instant.now();
+        reclaimer.reclaim();
+        Instant after = Instant.now();
+
+        var expiredIdle = ArgumentCaptor.forClass(Instant.class);
+        var lruIdle = ArgumentCaptor.forClass(Instant.class);
+        verify(fileRepo).findExpired(eq(RunStatus.COMPLETED), any(), expiredIdle.capture(), any());
+        verify(fileRepo).findLeastRecentlyUsed(lruIdle.capture(), any());
+        assertThat(expiredIdle.getValue()).isBetween(before.minus(Duration.ofHours(1)), after.minus(Duration.ofHours(1)));
+        assertThat(lruIdle.getValue()).isEqualTo(expiredIdle.getValue());
+    }
+
+    @Test
+    void liveRunsSlowDeletesDownInsteadOfStoppingThem() {
+        ReflectionTestUtils.setField(reclaimer, "completedRetention", Duration.ofDays(30));
+        ReflectionTestUtils.setField(reclaimer, "busyDeletesPerSecond", 10);
+        when(runRepo.countByStatusIn(any())).thenReturn(1_000L);
+        when(fileRepo.findExpired(eq(RunStatus.COMPLETED), any(), any(), any())).thenReturn(files(3, 10));
+
+        long start = System.nanoTime();
+        reclaimer.reclaim();
+
+        verify(storage, times(3)).delete(any());
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(250));
+        verify(metrics, times(3)).storageReclaimed(eq("retention_completed"), anyLong());
+    }
+
+    private static List<FileEntity> files(int n, long size) {
+        var files = new ArrayList<FileEntity>();
+        for (int i = 0; i < n; i++) {
+            var f = new FileEntity();
+            f.setSize(size);
+            f.setStorageUri("file:" + f.getFileId());
+            files.add(f);
+        }
+        return files;
+    }
+}
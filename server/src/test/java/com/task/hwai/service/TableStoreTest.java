@@ -0,0 +1,145 @@
+package com.task.hwai.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.task.hwai.entity.ExtractionTableChunkEntity;
+import com.task.hwai.entity.ExtractionTableEntity;
+import com.task.hwai.model.ExtractionResult;
+import com.task.hwai.model.TableRows;
+import com.task.hwai.repo.ExtractionTableChunkRepo;
+import com.task.hwai.repo.ExtractionTableRepo;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class TableStoreTest {
+
+    private final UUID runId = UUID.randomUUID();
+    private final ExtractionTableRepo tableRepo = mock(ExtractionTableRepo.class);
+    private final ExtractionTableChunkRepo chunkRepo = mock(ExtractionTableChunkRepo.class);
+    private final TableStore store = new TableStore(tableRepo, chunkRepo);
+
+    private final Map<Long, ExtractionTableEntity> tablesById = new HashMap<>();
+    private final List<ExtractionTableChunkEntity> chunks = new ArrayList<>();
+
+    @BeforeEach
+    void fakeRepos() {
+        ReflectionTestUtils.setField(store, "chunkRows", 3);
+        when(tableRepo.save(any())).thenAnswer(inv -> {
+            ExtractionTableEntity t = inv.getArgument(0);
+            if (t.getId() == null) t.setId((long) tablesById.size() + 1);
+            tablesById.put(t.getId(), t);
+            return t;
+        });
+        when(tableRepo.findById(anyLong())).thenAnswer(inv -> Optional.ofNullable(tablesById.get((Long) inv.getArgument(0))));
+        when(chunkRepo.save(any())).thenAnswer(inv -> {
+            chunks.add(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+        when(chunkRepo.findOverlapping(anyLong(), anyInt(), anyInt())).thenAnswer(inv -> {
+            long tableId = inv.getArgument(0);
+            int start = inv.getArgument(1);
+            int end = inv.getArgument(2);
+            return chunks.stream()
+                    .filter(c -> c.getTableId() == tableId && c.getFirstRow() < end && c.getFirstRow() + c.getRowCount() > start)
+                    .toList();
+        });
+    }
+
+    @Test
+    void splitsRowsIntoChunksOfChunkRows() {
+        var stored = store.store(runId, document(table(7, "x")), null);
+
+        var stub = stored.pages().get(0).tables().get(0);
+        assertThat(stub.rows()).isNull();
+        assertThat(stub.rowCount()).isEqualTo(7);
+        assertThat(stub.columns()).containsExactly("n", "s");
+        assertThat(chunks).extracting(ExtractionTableChunkEntity::getFirstRow).containsExactly(0, 3, 6);
+        assertThat(chunks).extracting(ExtractionTableChunkEntity::getRowCount).containsExactly(3, 3, 1);
+    }
+
+    @Test
+    void splitsAChunkOverTheColumnSizeInHalf() {
+        String big = "y".repeat(600_000);
+        store.store(runId, document(table(2, big)), null);
+
+        assertThat(chunks).extracting(ExtractionTableChunkEntity::getRowCount).containsExactly(1, 1);
+        assertThat(chunks).allSatisfy(c -> assertThat(c.getData().length()).isLessThanOrEqualTo(1_000_000));
+    }
+
+    @Test
+    void readsAnOffsetAcrossChunkBoundaries() {
+        var stub = store.store(runId, document(table(7, "x")), null).pages().get(0).tables().get(0);
+        var table = tablesById.get(stub.tableId());
+
+        var rows = store.rows(table, 2, 3);
+        assertThat(rows.size()).isEqualTo(3);
+        assertThat(rows.columns()).containsExactly("n", "s");
+        assertThat(List.of(rows.get(0, 0), rows.get(1, 0), rows.get(2, 0))).containsExactly(2, 3, 4);
+
+        assertThat(store.rows(table, 5, 10).size()).isEqualTo(2);
+        assertThat(store.rows(table, 7, 10).size()).isZero();
+    }
+
+    @Test
+    void copiesTablesOfTheNearDuplicateRun() {
+        UUID sourceRun = UUID.randomUUID();
+        var source = foreignTable(sourceRun);
+
+        var stored = store.store(runId, document(stubOf(source)), sourceRun);
+
+        var copy = tablesById.get(stored.pages().get(0).tables().get(0).tableId());
+        assertThat(copy.getRunId()).isEqualTo(runId);
+        assertThat(copy.getRowCount()).isEqualTo(4);
+        verify(chunkRepo).copy(source.getId(), copy.getId());
+    }
+
+    @Test
+    void rejectsStubsOfAnyOtherRunsTable() {
+        var other = foreignTable(UUID.randomUUID());
+
+        assertThatThrownBy(() -> store.store(runId, document(stubOf(other)), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.store(runId, document(stubOf(other)), UUID.randomUUID()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.store(runId,
+                document(new ExtractionResult.Table(999L, "t", null, null, null, null)), null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ExtractionTableEntity foreignTable(UUID owner) {
+        var t = new ExtractionTableEntity();
+        t.setRunId(owner);
+        t.setColumnsJson("[\"n\"]");
+        t.setRowCount(4);
+        return tableRepo.save(t);
+    }
+
+    private static ExtractionResult.Table stubOf(ExtractionTableEntity t) {
+        return new ExtractionResult.Table(t.getId(), "t", List.of("n"), t.getRowCount(), null, null);
+    }
+
+    private static ExtractionResult.Table table(int size, String text) {
+        var rows = new TableRows(List.of("n", "s"));
+        for (int i = 0; i < size; i++) rows.add(i, text);
+        return new ExtractionResult.Table("ledger", rows, 0.9);
+    }
+
+    private static ExtractionResult document(ExtractionResult.Table table) {
+        return new ExtractionResult(null, null, "invoice",
+                List.of(new ExtractionResult.Page(1, List.of(), List.of(table))), List.of(), 0);
+    }
+}